@@ -0,0 +1,76 @@
+package com.pusher.client.channel.impl;
+
+import com.pusher.client.PusherOptions;
+import com.pusher.client.channel.BorrowedEventListener;
+import com.pusher.client.channel.PusherEvent;
+import com.pusher.client.util.Factory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes a byte frame to a borrowing listener on a public channel, the way
+ * the connection does on the event thread, with and without a borrowed event.
+ * Run with the gc profiler to see the allocation per event:
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes="BorrowedEventBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BorrowedEventBenchmark {
+
+    private static final byte[] FRAME = (
+            "{\"event\":\"price-update\",\"channel\":\"market-btc-usd\"," +
+                    "\"data\":\"{\\\"bid\\\":\\\"27011.50\\\",\\\"ask\\\":\\\"27012.00\\\",\\\"ts\\\":1697030400123}\"}"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    @Param({"true", "false"})
+    public boolean borrowedEvents;
+
+    private Factory factory;
+    private ChannelManager channelManager;
+    private PusherEvent spare;
+    private ByteBuffer frame;
+    private long dataBytes;
+
+    @Setup
+    public void setUp() {
+        factory = new Factory(new PusherOptions().setBorrowedEvents(borrowedEvents));
+        channelManager = new ChannelManager(factory);
+        final ChannelImpl channel = factory.newPublicChannel("market-btc-usd");
+        channel.bind("price-update", new BorrowedEventListener() {
+            @Override
+            public void onEvent(final PusherEvent event) {
+                dataBytes += event.getChannelName().length();
+            }
+        });
+        channelManager.setConnection(new ChannelFootprintBenchmark.DisconnectedConnection());
+        channelManager.subscribeTo(channel, null);
+        spare = factory.newBorrowedEvent();
+        frame = ByteBuffer.wrap(FRAME);
+    }
+
+    @Benchmark
+    public long routeFrame() {
+        channelManager.handleEvent(factory.getEnvelopeCodec().decodeEvent(frame, factory.getSymbolTable(), spare));
+        return dataBytes;
+    }
+}
@@ -0,0 +1,135 @@
+package com.pusher.client.channel.impl;
+
+import com.pusher.client.channel.PusherEvent;
+import com.pusher.client.channel.SubscriptionEventListener;
+import com.pusher.client.connection.ConnectionEventListener;
+import com.pusher.client.connection.ConnectionState;
+import com.pusher.client.connection.impl.InternalConnection;
+import com.pusher.client.util.Factory;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Reports the retained heap per subscribed channel as the bytesPerChannel
+ * counter. The numbers come from the used heap after a full collection, so
+ * they are approximate, but stable enough to compare representations:
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes=ChannelFootprintBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class ChannelFootprintBenchmark {
+
+    private static final SubscriptionEventListener LISTENER = new SubscriptionEventListener() {
+        @Override
+        public void onEvent(final PusherEvent event) {
+        }
+    };
+
+    @Param({"100000"})
+    public int channels;
+
+    @Param({"0", "1", "3"})
+    public int boundEvents;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+
+        public long bytesPerChannel;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytesPerChannel = 0;
+        }
+    }
+
+    @Benchmark
+    public void subscribe(final Footprint footprint, final Blackhole blackhole) throws InterruptedException {
+        final Factory factory = new Factory();
+        final ChannelManager channelManager = new ChannelManager(factory);
+        channelManager.setConnection(new DisconnectedConnection());
+        drainEventQueue(factory);
+
+        final long before = usedHeap();
+        for (int i = 0; i < channels; i++) {
+            final ChannelImpl channel = factory.newPublicChannel("channel-" + i);
+            for (int j = 0; j < boundEvents; j++) {
+                channel.bind("event-" + j, LISTENER);
+            }
+            channelManager.subscribeTo(channel, null);
+        }
+        drainEventQueue(factory);
+        final long after = usedHeap();
+
+        footprint.bytesPerChannel = (after - before) / channels;
+        blackhole.consume(channelManager);
+        factory.shutdownThreads();
+    }
+
+    private static void drainEventQueue(final Factory factory) throws InterruptedException {
+        final CountDownLatch drained = new CountDownLatch(1);
+        factory.queueOnEventThread(drained::countDown);
+        drained.await();
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    static class DisconnectedConnection implements InternalConnection {
+
+        @Override
+        public void sendMessage(final String message) {
+        }
+
+        @Override
+        public void disconnect() {
+        }
+
+        @Override
+        public void connect() {
+        }
+
+        @Override
+        public void bind(final ConnectionState state, final ConnectionEventListener eventListener) {
+        }
+
+        @Override
+        public boolean unbind(final ConnectionState state, final ConnectionEventListener eventListener) {
+            return false;
+        }
+
+        @Override
+        public ConnectionState getState() {
+            return ConnectionState.DISCONNECTED;
+        }
+
+        @Override
+        public String getSocketId() {
+            return null;
+        }
+    }
+}
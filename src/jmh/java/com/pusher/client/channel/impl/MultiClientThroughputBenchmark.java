@@ -0,0 +1,85 @@
+package com.pusher.client.channel.impl;
+
+import com.pusher.client.PusherOptions;
+import com.pusher.client.channel.PusherEvent;
+import com.pusher.client.channel.SubscriptionEventListener;
+import com.pusher.client.util.Factory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the total event rate of several clients in one JVM. Each benchmark
+ * thread plays the socket of its own client, queueing frames onto that
+ * client's event thread the way the connection does, so the aggregate score
+ * should grow with the thread count for as long as there are cores to spare:
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes="MultiClientThroughputBenchmark -t 1"
+ * ./gradlew jmh -Pjmh.includes="MultiClientThroughputBenchmark -t 4"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiClientThroughputBenchmark {
+
+    private static final int BATCH = 1000;
+    private static final String FRAME =
+            "{\"event\":\"price-update\",\"channel\":\"market-btc-usd\"," +
+                    "\"data\":\"{\\\"bid\\\":\\\"27011.50\\\",\\\"ask\\\":\\\"27012.00\\\",\\\"ts\\\":1697030400123}\"}";
+
+    private Factory factory;
+    private ChannelManager channelManager;
+    private final Semaphore delivered = new Semaphore(0);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        factory = new Factory(new PusherOptions());
+        channelManager = factory.getChannelManager();
+        channelManager.setConnection(new ChannelFootprintBenchmark.DisconnectedConnection());
+        final ChannelImpl channel = factory.newPublicChannel("market-btc-usd");
+        channel.bind("price-update", new SubscriptionEventListener() {
+            @Override
+            public void onEvent(final PusherEvent event) {
+                // a listener which reads the data, as nearly all do
+                if (event.getData().length() > 0) {
+                    delivered.release();
+                }
+            }
+        });
+        channelManager.subscribeTo(channel, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        factory.shutdownThreads();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void deliverEvents() throws InterruptedException {
+        for (int i = 0; i < BATCH; i++) {
+            factory.queueOnEventThread(
+                    () -> channelManager.handleEvent(factory.getEnvelopeCodec().decodeEvent(FRAME, factory.getSymbolTable()))
+            );
+        }
+        delivered.acquire(BATCH);
+    }
+}
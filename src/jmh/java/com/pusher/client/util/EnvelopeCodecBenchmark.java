@@ -0,0 +1,121 @@
+package com.pusher.client.util;
+
+import com.pusher.client.EnvelopeCodec;
+import com.pusher.client.channel.PusherEvent;
+import com.pusher.client.message.AuthResponse;
+import com.pusher.client.message.SubscribeMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the codecs shipped with the library on the hot paths of a
+ * connection. Run with the gc profiler to compare allocation rates:
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes="EnvelopeCodecBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnvelopeCodecBenchmark {
+
+    private static final String STRING_DATA_FRAME =
+            "{\"event\":\"price-update\",\"channel\":\"market-btc-usd\"," +
+                    "\"data\":\"{\\\"bid\\\":\\\"27011.50\\\",\\\"ask\\\":\\\"27012.00\\\",\\\"ts\\\":1697030400123}\"}";
+    private static final String OBJECT_DATA_FRAME =
+            "{\"event\":\"price-update\",\"channel\":\"market-btc-usd\"," +
+                    "\"data\":{\"bid\":\"27011.50\",\"ask\":\"27012.00\",\"ts\":1697030400123}}";
+    private static final String AUTH_RESPONSE =
+            "{\"auth\":\"278d425bdf160c739803:58df8b0c36d6982b82c3ecf6b4662e34fe8c25bba48f5369f135bf843651c3a4\"," +
+                    "\"channel_data\":\"{\\\"user_id\\\":\\\"42\\\",\\\"user_info\\\":{\\\"name\\\":\\\"Ada\\\"}}\"}";
+
+    @Param({"streaming", "gson"})
+    public String codecName;
+
+    private EnvelopeCodec codec;
+    private PusherEvent clientEvent;
+    private SymbolTable symbols;
+    private byte[] stringDataFrameBytes;
+
+    @Setup
+    public void setUp() {
+        codec = codecName.equals("gson") ? new GsonEnvelopeCodec() : new StreamingEnvelopeCodec();
+        symbols = new SymbolTable("price-update", "market-btc-usd");
+        stringDataFrameBytes = STRING_DATA_FRAME.getBytes(StandardCharsets.UTF_8);
+        clientEvent = new PusherEvent("client-typing", "private-room-1", null, "{\"user\":\"42\"}");
+    }
+
+    @Benchmark
+    public void routeStringDataEvent(final Blackhole blackhole) {
+        final PusherEvent event = codec.decodeEvent(STRING_DATA_FRAME);
+        blackhole.consume(event.getEventName());
+        blackhole.consume(event.getChannelName());
+    }
+
+    @Benchmark
+    public void routeStringDataEventWithSymbols(final Blackhole blackhole) {
+        final PusherEvent event = codec.decodeEvent(STRING_DATA_FRAME, symbols);
+        blackhole.consume(event.getEventName());
+        blackhole.consume(event.getChannelName());
+    }
+
+    /**
+     * What a text frame costs when the socket decodes it into a String first.
+     */
+    @Benchmark
+    public String deliverStringDataEventFromText() {
+        final String frame = new String(stringDataFrameBytes, StandardCharsets.UTF_8);
+        return codec.decodeEvent(frame, symbols).getData();
+    }
+
+    /**
+     * The same frame handed over as bytes, see PusherOptions#setByteFrameParsing.
+     */
+    @Benchmark
+    public String deliverStringDataEventFromBytes() {
+        return codec.decodeEvent(ByteBuffer.wrap(stringDataFrameBytes), symbols).getData();
+    }
+
+    @Benchmark
+    public String deliverStringDataEvent() {
+        return codec.decodeEvent(STRING_DATA_FRAME).getData();
+    }
+
+    @Benchmark
+    public String deliverObjectDataEvent() {
+        return codec.decodeEvent(OBJECT_DATA_FRAME).getData();
+    }
+
+    @Benchmark
+    public String encodeClientEvent() {
+        return codec.encodeEvent(clientEvent);
+    }
+
+    @Benchmark
+    public String encodeSubscribeMessage() {
+        return codec.encode(new SubscribeMessage("private-room-1", "key:signature", null));
+    }
+
+    @Benchmark
+    public AuthResponse decodeAuthResponse() {
+        return codec.decode(AUTH_RESPONSE, AuthResponse.class);
+    }
+}
@@ -0,0 +1,90 @@
+package com.pusher.client.util;
+
+import com.pusher.client.PusherOptions;
+import com.pusher.client.WaitStrategy;
+import com.pusher.client.util.internal.EventLoop;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures handing frames from the socket thread to the event thread, through
+ * the queue of the event thread or through a ring buffer with each of the
+ * wait strategies. The handler does no work, so the score is the cost of the
+ * handoff alone. Run with -prof gc to see the task the queue allocates per
+ * frame, which the ring does not. BUSY_SPIN and YIELD need a core to spare
+ * for the event thread, with a single core they only measure contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventLoopHandoffBenchmark {
+
+    private static final int BATCH = 1000;
+    private static final String FRAME = "{\"event\":\"price-update\",\"channel\":\"market-btc-usd\",\"data\":\"{}\"}";
+
+    @Param({"QUEUE", "PARK", "YIELD", "BUSY_SPIN"})
+    public String handoff;
+
+    private Factory factory;
+    private final Semaphore batchHandled = new Semaphore(0);
+    private final EventLoop.FrameHandler handler = new EventLoop.FrameHandler() {
+        // only touched on the event thread
+        private int handled;
+
+        @Override
+        public void handleFrame(final String frame) {
+            if (++handled == BATCH) {
+                handled = 0;
+                batchHandled.release();
+            }
+        }
+
+        @Override
+        public void handleFrame(final ByteBuffer frame) {
+            handleFrame((String) null);
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final PusherOptions options = new PusherOptions();
+        if (!"QUEUE".equals(handoff)) {
+            options.setRingBufferEventLoop(4096, WaitStrategy.valueOf(handoff));
+        }
+        factory = new Factory(options);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        factory.shutdownThreads();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void handOffFrames() throws InterruptedException {
+        for (int i = 0; i < BATCH; i++) {
+            factory.queueFrameOnEventThread(handler, FRAME);
+        }
+        batchHandled.acquire();
+    }
+}
@@ -0,0 +1,71 @@
+package com.pusher.client.util;
+
+import com.pusher.client.EnvelopeCodec;
+import com.pusher.client.message.PresenceSubscriptionData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes the subscription_succeeded data of a presence channel and reads the
+ * info of every member, which is what joining a presence channel costs:
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes="PresenceRosterBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PresenceRosterBenchmark {
+
+    @Param({"streaming", "gson"})
+    public String codecName;
+
+    @Param({"100", "1000"})
+    public int members;
+
+    private EnvelopeCodec codec;
+    private String subscriptionData;
+
+    @Setup
+    public void setUp() {
+        codec = codecName.equals("gson") ? new GsonEnvelopeCodec() : new StreamingEnvelopeCodec();
+
+        final StringBuilder ids = new StringBuilder();
+        final StringBuilder hash = new StringBuilder();
+        for (int i = 0; i < members; i++) {
+            if (i > 0) {
+                ids.append(',');
+                hash.append(',');
+            }
+            ids.append("\"user-").append(i).append('"');
+            hash.append("\"user-").append(i).append("\":{\"name\":\"User ").append(i)
+                    .append("\",\"avatar\":\"https://example.com/avatars/").append(i)
+                    .append(".png\",\"score\":").append(i * 7).append(",\"roles\":[\"member\"]}");
+        }
+        subscriptionData = "{\"presence\":{\"count\":" + members + ",\"ids\":[" + ids + "],\"hash\":{" + hash + "}}}";
+    }
+
+    @Benchmark
+    public void decodeRoster(final Blackhole blackhole) {
+        final PresenceSubscriptionData data = codec.decode(subscriptionData, PresenceSubscriptionData.class);
+        for (final String id : data.getIds()) {
+            blackhole.consume(data.getHash().get(id));
+        }
+    }
+}
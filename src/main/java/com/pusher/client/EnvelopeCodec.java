@@ -0,0 +1,142 @@
+package com.pusher.client;
+
+import com.pusher.client.channel.PusherEvent;
+import com.pusher.client.util.SymbolTable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes and decodes the JSON exchanged with Pusher over the WebSocket
+ * connection: the envelopes of inbound events, outbound client events, and the
+ * protocol messages used to subscribe, unsubscribe and sign in.
+ *
+ * <p>
+ * The library ships with two implementations:
+ * </p>
+ * <ul>
+ * <li>{@link com.pusher.client.util.StreamingEnvelopeCodec}, the default, which
+ * uses hand-written streaming readers and writers and never builds a tree model
+ * or reflects over message classes.</li>
+ * <li>{@link com.pusher.client.util.GsonEnvelopeCodec}, which uses Gson
+ * reflection and tree models.</li>
+ * </ul>
+ *
+ * <p>
+ * Implementations must be thread safe, a single instance may be shared by
+ * several {@link Pusher} instances.
+ * </p>
+ *
+ * @see PusherOptions#setEnvelopeCodec(EnvelopeCodec)
+ */
+public interface EnvelopeCodec {
+    /**
+     * Decodes an inbound frame into an event.
+     *
+     * @param message The text of the frame.
+     * @return The decoded event.
+     * @throws com.google.gson.JsonSyntaxException If the frame is not a valid
+     *                                             event envelope.
+     */
+    PusherEvent decodeEvent(String message);
+
+    /**
+     * Decodes an inbound frame into an event, resolving its event and channel
+     * names against the names known to the client. The default implementation
+     * ignores the symbols.
+     *
+     * @param message The text of the frame.
+     * @param symbols The channel and event names known to the client.
+     * @return The decoded event.
+     * @throws com.google.gson.JsonSyntaxException If the frame is not a valid
+     *                                             event envelope.
+     */
+    default PusherEvent decodeEvent(String message, SymbolTable symbols) {
+        return decodeEvent(message);
+    }
+
+    /**
+     * Decodes an inbound frame received as UTF-8 bytes into an event. The
+     * default implementation decodes the bytes to a String first.
+     *
+     * @param message The UTF-8 bytes of the frame, between the buffer's
+     *                position and limit. Ownership of the buffer passes to the
+     *                codec.
+     * @param symbols The channel and event names known to the client.
+     * @return The decoded event.
+     * @throws com.google.gson.JsonSyntaxException If the frame is not a valid
+     *                                             event envelope.
+     * @see PusherOptions#setByteFrameParsing(boolean)
+     */
+    default PusherEvent decodeEvent(ByteBuffer message, SymbolTable symbols) {
+        return decodeEvent(StandardCharsets.UTF_8.decode(message).toString(), symbols);
+    }
+
+    /**
+     * Decodes an inbound frame into a borrowed event, refilling the given event
+     * rather than creating a new one. The default implementation ignores the
+     * borrowed event and creates a new one.
+     *
+     * @param message The text of the frame.
+     * @param symbols The channel and event names known to the client.
+     * @param reuse   An event from {@link PusherEvent#newBorrowed()}, or null.
+     * @return The decoded event, which is either reuse or a new event.
+     * @throws com.google.gson.JsonSyntaxException If the frame is not a valid
+     *                                             event envelope.
+     * @see PusherOptions#setBorrowedEvents(boolean)
+     */
+    default PusherEvent decodeEvent(String message, SymbolTable symbols, PusherEvent reuse) {
+        return decodeEvent(message, symbols);
+    }
+
+    /**
+     * Decodes an inbound frame received as UTF-8 bytes into a borrowed event,
+     * refilling the given event rather than creating a new one. The default
+     * implementation ignores the borrowed event and creates a new one.
+     *
+     * @param message The UTF-8 bytes of the frame, between the buffer's
+     *                position and limit. Ownership of the buffer passes to the
+     *                codec.
+     * @param symbols The channel and event names known to the client.
+     * @param reuse   An event from {@link PusherEvent#newBorrowed()}, or null.
+     * @return The decoded event, which is either reuse or a new event.
+     * @throws com.google.gson.JsonSyntaxException If the frame is not a valid
+     *                                             event envelope.
+     * @see PusherOptions#setBorrowedEvents(boolean)
+     */
+    default PusherEvent decodeEvent(ByteBuffer message, SymbolTable symbols, PusherEvent reuse) {
+        return decodeEvent(message, symbols);
+    }
+
+    /**
+     * Encodes an event, such as a client event, so that it can be sent to Pusher.
+     *
+     * @param event The event to encode.
+     * @return The JSON text of the event.
+     */
+    String encodeEvent(PusherEvent event);
+
+    /**
+     * Decodes a JSON document, such as the data of a protocol event or the
+     * response of a {@link ChannelAuthorizer}, into an instance of a message class.
+     * The client asks for the inbound classes of {@link com.pusher.client.message},
+     * which can be built with their constructors.
+     *
+     * @param <T>  The message class.
+     * @param json The JSON text.
+     * @param type The message class.
+     * @return The decoded message, or null if json is null.
+     * @throws com.google.gson.JsonSyntaxException If json cannot be decoded as the message class.
+     */
+    <T> T decode(String json, Class<T> type);
+
+    /**
+     * Encodes a protocol message, such as a subscribe message. The client
+     * passes the outbound classes of {@link com.pusher.client.message}, which
+     * expose their event name and data through getters.
+     *
+     * @param message The message to encode.
+     * @return The JSON text of the message.
+     */
+    String encode(Object message);
+}
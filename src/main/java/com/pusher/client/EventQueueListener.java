@@ -0,0 +1,42 @@
+package com.pusher.client;
+
+/**
+ * Client applications can implement this interface to be told when the
+ * bounded event queue of a client is filling up, because the event thread or
+ * the listeners it calls are not keeping up with the inbound events.
+ * <p>
+ * The callbacks are made on whichever thread moved the queue past the mark,
+ * the socket thread or the event thread, and must return quickly.
+ *
+ * @see PusherOptions#setEventQueueListener(EventQueueListener)
+ */
+public interface EventQueueListener {
+
+    /**
+     * Called when the queue fills to three quarters of its capacity. It is
+     * not called again until the queue has drained to a quarter.
+     *
+     * @param stats The queue, as it stands.
+     */
+    void onHighWaterMark(EventQueueStats stats);
+
+    /**
+     * Called when the queue has drained to a quarter of its capacity after
+     * reaching the high water mark.
+     *
+     * @param stats The queue, as it stands.
+     */
+    default void onLowWaterMark(EventQueueStats stats) {
+        // No-op
+    }
+
+    /**
+     * Called each time a frame arrives to find the queue full, before the
+     * {@link OverflowPolicy} is applied.
+     *
+     * @param stats The queue, as it stands.
+     */
+    default void onOverflow(EventQueueStats stats) {
+        // No-op
+    }
+}
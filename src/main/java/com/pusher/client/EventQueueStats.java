@@ -0,0 +1,37 @@
+package com.pusher.client;
+
+/**
+ * Counters of the bounded event queue of a client, which hold inbound frames
+ * until the event thread gets to them. The counters are live, each read
+ * returns the current value.
+ *
+ * @see Pusher#getEventQueueStats()
+ */
+public interface EventQueueStats {
+
+    /**
+     * @return the number of slots in the queue
+     */
+    int getCapacity();
+
+    /**
+     * @return the number of frames in the queue now
+     */
+    int getQueued();
+
+    /**
+     * @return the most frames the queue has held at once
+     */
+    int getHighestQueued();
+
+    /**
+     * @return the number of frames which arrived to find the queue full
+     */
+    long getOverflows();
+
+    /**
+     * @return the number of frames discarded, whether by an overflow policy
+     * which drops frames or along with a connection which was failed
+     */
+    long getDropped();
+}
@@ -0,0 +1,33 @@
+package com.pusher.client;
+
+/**
+ * Client applications can implement this interface to be told when messages
+ * for the server, such as client events, are being sent faster than the
+ * connection can write them, so that they can hold back.
+ * <p>
+ * The callbacks are made on whichever thread moved the queue past the mark,
+ * the thread sending a message or the event thread, and must return quickly.
+ *
+ * @see PusherOptions#setOutboundQueueListener(OutboundQueueListener, int)
+ */
+public interface OutboundQueueListener {
+
+    /**
+     * Called when the messages waiting to be written reach the high water
+     * mark. It is not called again until the queue has drained to a quarter
+     * of the mark.
+     *
+     * @param queued The number of messages waiting.
+     */
+    void onBackpressure(int queued);
+
+    /**
+     * Called when the queue has drained to a quarter of the high water mark
+     * after reaching it.
+     *
+     * @param queued The number of messages waiting.
+     */
+    default void onDrained(int queued) {
+        // No-op
+    }
+}
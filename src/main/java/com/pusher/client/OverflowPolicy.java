@@ -0,0 +1,28 @@
+package com.pusher.client;
+
+/**
+ * What a client does with an inbound frame which arrives while its bounded
+ * event queue is full.
+ *
+ * @see PusherOptions#setBoundedEventQueue(int, OverflowPolicy)
+ */
+public enum OverflowPolicy {
+    /**
+     * Stops reading from the socket until the event thread has made room.
+     * Nothing is lost, the server buffers or drops the connection instead.
+     */
+    BLOCK,
+    /**
+     * Discards the oldest frame in the queue to make room for the new one.
+     */
+    DROP_OLDEST,
+    /**
+     * Discards the new frame.
+     */
+    DROP_NEWEST,
+    /**
+     * Discards the queue and closes the connection, which is then
+     * reconnected as it would be after any other failure.
+     */
+    FAIL_CONNECTION
+}
@@ -43,6 +43,8 @@ public class Pusher implements Client {
 
     private final PusherOptions pusherOptions;
     private final InternalConnection connection;
+    // all connections, the first being the one above, when the channels are sharded
+    private final InternalConnection[] shards;
     private final ChannelManager channelManager;
     private final Factory factory;
     private final InternalUser user;
@@ -82,7 +84,7 @@ public class Pusher implements Client {
      * @param pusherOptions Options for the Pusher client library to use.
      */
     public Pusher(final String apiKey, final PusherOptions pusherOptions) {
-        this(apiKey, pusherOptions, new Factory());
+        this(apiKey, pusherOptions, new Factory(pusherOptions));
     }
 
     /**
@@ -98,16 +100,37 @@ public class Pusher implements Client {
             throw new IllegalArgumentException("PusherOptions cannot be null");
         }
 
+        if (pusherOptions.isSharedConnection() && pusherOptions.getConnectionShards() > 1) {
+            throw new IllegalArgumentException("A shared connection cannot be split into shards");
+        }
+
         this.pusherOptions = pusherOptions;
         this.factory = factory;
         connection = factory.getConnection(apiKey, this.pusherOptions, this::handleEvent);
         channelManager = factory.getChannelManager();
         user = factory.newUser(connection, pusherOptions.getUserAuthenticator());
-        channelManager.setConnection(connection);
+        if (pusherOptions.getConnectionShards() > 1) {
+            shards = new InternalConnection[pusherOptions.getConnectionShards()];
+            shards[0] = connection;
+            for (int i = 1; i < shards.length; i++) {
+                // only the first shard signs in, the others carry channel events
+                shards[i] = factory.newShardConnection(apiKey, this.pusherOptions, channelManager::handleEvent);
+            }
+            channelManager.setConnections(shards);
+        } else {
+            shards = null;
+            channelManager.setConnection(connection);
+        }
+    }
+
+    private InternalConnection channelConnection(final String channelName) {
+        return shards != null ? channelManager.getChannelConnection(channelName) : connection;
     }
 
     private void handleEvent(PusherEvent event) {
-        user.handleEvent(event);
+        if (event.getKind().isProtocol()) {
+            user.handleEvent(event);
+        }
         channelManager.handleEvent(event);
     }
 
@@ -123,6 +146,17 @@ public class Pusher implements Client {
         return connection;
     }
 
+    /**
+     * Gets the counters of the bounded event queue, which holds inbound
+     * frames until the event thread gets to them.
+     *
+     * @return The counters, or null if the event queue is not bounded.
+     * @see PusherOptions#setBoundedEventQueue(int, OverflowPolicy)
+     */
+    public EventQueueStats getEventQueueStats() {
+        return factory.getEventQueueStats();
+    }
+
     /**
      * Connects to Pusher. Any {@link ConnectionEventListener}s that have
      * already been registered using the
@@ -173,7 +207,13 @@ public class Pusher implements Client {
             }
         }
 
-        connection.connect();
+        if (shards != null) {
+            for (final InternalConnection shard : shards) {
+                shard.connect();
+            }
+        } else {
+            connection.connect();
+        }
     }
 
     /**
@@ -185,6 +225,16 @@ public class Pusher implements Client {
      * </p>
      */
     public void disconnect() {
+        if (shards != null) {
+            for (final InternalConnection shard : shards) {
+                disconnect(shard);
+            }
+        } else {
+            disconnect(connection);
+        }
+    }
+
+    private static void disconnect(final InternalConnection connection) {
         if (connection.getState() != ConnectionState.DISCONNECTING && connection.getState() != ConnectionState.DISCONNECTED) {
             connection.disconnect();
         }
@@ -294,7 +344,7 @@ public class Pusher implements Client {
         throwExceptionIfNoChannelAuthorizerHasBeenSet();
 
         final PrivateChannelImpl channel = factory.newPrivateChannel(
-                connection,
+                channelConnection(channelName),
                 channelName,
                 pusherOptions.getChannelAuthorizer()
         );
@@ -327,7 +377,7 @@ public class Pusher implements Client {
         throwExceptionIfNoChannelAuthorizerHasBeenSet();
 
         final PrivateEncryptedChannelImpl channel = factory.newPrivateEncryptedChannel(
-                connection,
+                channelConnection(channelName),
                 channelName,
                 pusherOptions.getChannelAuthorizer()
         );
@@ -369,7 +419,7 @@ public class Pusher implements Client {
         throwExceptionIfNoChannelAuthorizerHasBeenSet();
 
         final PresenceChannelImpl channel = factory.newPresenceChannel(
-                connection,
+                channelConnection(channelName),
                 channelName,
                 pusherOptions.getChannelAuthorizer()
         );
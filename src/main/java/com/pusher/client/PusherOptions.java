@@ -1,9 +1,15 @@
 package com.pusher.client;
 
+import com.pusher.client.util.StreamingEnvelopeCodec;
+import com.pusher.client.util.internal.Backoff;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.Proxy;
 import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.zip.Deflater;
 
 /**
  * Configuration for a {@link com.pusher.client.Pusher} instance.
@@ -28,6 +34,8 @@ public class PusherOptions {
     private static final int MAX_RECONNECTION_ATTEMPTS = 6; //Taken from the Swift lib
     private static final int MAX_RECONNECT_GAP_IN_SECONDS = 30;
 
+    public static final int DEFAULT_DEFLATE_THRESHOLD = 1024;
+
     // Note that the primary cluster lives on a different domain
     // (others are subdomains of pusher.com). This is not an oversight.
     // Legacy reasons.
@@ -43,6 +51,27 @@ public class PusherOptions {
     private Proxy proxy = Proxy.NO_PROXY;
     private int maxReconnectionAttempts = MAX_RECONNECTION_ATTEMPTS;
     private int maxReconnectGapInSeconds = MAX_RECONNECT_GAP_IN_SECONDS;
+    private ReconnectStrategy reconnectStrategy;
+    private EnvelopeCodec envelopeCodec = new StreamingEnvelopeCodec();
+    private boolean byteFrameParsing;
+    private boolean borrowedEvents;
+    private int dispatchLanes;
+    private boolean virtualThreadDispatch;
+    private boolean inlineDispatch;
+    private int connectionShards = 1;
+    private boolean sharedConnection;
+    private boolean perMessageDeflate;
+    private int deflateThreshold = DEFAULT_DEFLATE_THRESHOLD;
+    private int deflateLevel = Deflater.DEFAULT_COMPRESSION;
+    private OutboundQueueListener outboundQueueListener;
+    private int outboundHighWaterMark;
+    private Executor eventExecutor;
+    private ScheduledExecutorService scheduledExecutor;
+    private int ringBufferCapacity;
+    private WaitStrategy waitStrategy = WaitStrategy.PARK;
+    private int eventQueueCapacity;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private EventQueueListener eventQueueListener;
 
     /**
      * @deprecated Please use isUseTLS
@@ -259,6 +288,23 @@ public class PusherOptions {
         return this;
     }
 
+    /**
+     * Sets how long the connection waits before each attempt to reconnect, in
+     * place of the delay set by {@link #setMaxReconnectGapInSeconds(int)}.
+     * <p>
+     * Clients which all lose their connections at once reconnect in lockstep
+     * unless their delays are jittered, as with
+     * {@link ReconnectStrategy#fullJitter(long, long)} or
+     * {@link ReconnectStrategy#decorrelatedJitter(long, long)}.
+     *
+     * @param reconnectStrategy The strategy, or null for the default.
+     * @return this, for chaining
+     */
+    public PusherOptions setReconnectStrategy(final ReconnectStrategy reconnectStrategy) {
+        this.reconnectStrategy = reconnectStrategy;
+        return this;
+    }
+
     public long getPongTimeout() {
         return pongTimeout;
     }
@@ -316,6 +362,516 @@ public class PusherOptions {
         return maxReconnectGapInSeconds;
     }
 
+    /**
+     * @return the strategy set, or else the squared backoff up to the maximum
+     * reconnect gap
+     */
+    public ReconnectStrategy getReconnectStrategy() {
+        return reconnectStrategy != null ? reconnectStrategy : Backoff.quadratic(maxReconnectGapInSeconds);
+    }
+
+    /**
+     * Sets the codec used to encode and decode the messages exchanged with
+     * Pusher. The default is a {@link StreamingEnvelopeCodec}.
+     *
+     * @param envelopeCodec The codec to use.
+     * @return this, for chaining
+     */
+    public PusherOptions setEnvelopeCodec(final EnvelopeCodec envelopeCodec) {
+        if (envelopeCodec == null) {
+            throw new IllegalArgumentException("envelopeCodec must not be null");
+        }
+        this.envelopeCodec = envelopeCodec;
+        return this;
+    }
+
+    /**
+     * @return the codec used to encode and decode the messages exchanged with Pusher
+     */
+    public EnvelopeCodec getEnvelopeCodec() {
+        return envelopeCodec;
+    }
+
+    /**
+     * Sets whether inbound frames are handed to the {@link EnvelopeCodec} as
+     * the raw UTF-8 bytes received from the socket, rather than first being
+     * decoded into a String. This saves a copy and a character decode of every
+     * frame, most of which is never looked at since event data is only decoded
+     * when a listener reads it.
+     * <p>
+     * Frames are not validated as UTF-8 in this mode, malformed sequences are
+     * replaced when the text they are part of is decoded. The default is false.
+     *
+     * @param byteFrameParsing Whether to parse frames from their bytes.
+     * @return this, for chaining
+     */
+    public PusherOptions setByteFrameParsing(final boolean byteFrameParsing) {
+        this.byteFrameParsing = byteFrameParsing;
+        return this;
+    }
+
+    /**
+     * @return whether inbound frames are parsed from their UTF-8 bytes
+     */
+    public boolean isByteFrameParsing() {
+        return byteFrameParsing;
+    }
+
+    /**
+     * Sets whether inbound frames are parsed into a single event which is
+     * reused from one frame to the next, instead of into a new event each.
+     * <p>
+     * Listeners which implement
+     * {@link com.pusher.client.channel.BorrowedEventListener} are handed the
+     * reused event, and are called on the event thread as the event is routed
+     * rather than being queued to it. Together with
+     * {@link #setByteFrameParsing(boolean)} this routes an event to them
+     * without allocating. Every other listener is handed a copy, so it is not
+     * affected. The default is false.
+     *
+     * @param borrowedEvents Whether to reuse events.
+     * @return this, for chaining
+     */
+    public PusherOptions setBorrowedEvents(final boolean borrowedEvents) {
+        this.borrowedEvents = borrowedEvents;
+        return this;
+    }
+
+    /**
+     * @return whether inbound frames are parsed into a reused, borrowed event
+     */
+    public boolean isBorrowedEvents() {
+        return borrowedEvents;
+    }
+
+    /**
+     * Sets the number of threads on which channel listeners are called.
+     * <p>
+     * By default every listener is called on the single event thread which
+     * also handles the connection and routes inbound events, so a slow
+     * listener holds up every channel. With lanes, each channel is assigned to
+     * one of them by the hash of its name. Listeners of one channel are still
+     * called one at a time and in the order the events arrived, while
+     * listeners of channels on different lanes are called in parallel, and so
+     * must be safe to call from several threads. Connection listeners stay on
+     * the event thread.
+     *
+     * @param dispatchLanes The number of lanes, or 0 to call channel listeners
+     *                      on the event thread, which is the default.
+     * @return this, for chaining
+     */
+    public PusherOptions setDispatchLanes(final int dispatchLanes) {
+        if (dispatchLanes < 0) {
+            throw new IllegalArgumentException("dispatchLanes must not be negative");
+        }
+        this.dispatchLanes = dispatchLanes;
+        return this;
+    }
+
+    /**
+     * @return the number of threads channel listeners are called on, or 0 if
+     * they are called on the event thread
+     */
+    public int getDispatchLanes() {
+        return dispatchLanes;
+    }
+
+    /**
+     * Sets whether channel listeners are called on virtual threads, when the
+     * runtime supports them (Java 21 and later).
+     * <p>
+     * Each channel then gets a lane of its own: its listeners are called one
+     * at a time and in order, on a virtual thread which is only held while
+     * events are waiting. A listener which blocks, for example on I/O, only
+     * holds up its own channel and does not tie up a platform thread. On
+     * earlier runtimes this setting is ignored and
+     * {@link #setDispatchLanes(int)} applies. The default is false.
+     *
+     * @param virtualThreadDispatch Whether to call listeners on virtual threads.
+     * @return this, for chaining
+     */
+    public PusherOptions setVirtualThreadDispatch(final boolean virtualThreadDispatch) {
+        this.virtualThreadDispatch = virtualThreadDispatch;
+        return this;
+    }
+
+    /**
+     * @return whether channel listeners are to be called on virtual threads
+     * when the runtime supports them
+     */
+    public boolean isVirtualThreadDispatch() {
+        return virtualThreadDispatch;
+    }
+
+    /**
+     * Sets whether channel listeners are called straight from the event
+     * thread as it routes each event, rather than each call being queued
+     * behind the event for the event thread to make later.
+     * <p>
+     * Listeners are still called on the event thread and in order, and the
+     * event is still in the cache when they read it. A listener which throws
+     * has its onError called with the exception and the event goes on to the
+     * other listeners. This applies only while listeners are called on the
+     * event thread: {@link #setDispatchLanes(int) dispatch lanes} and
+     * {@link #setVirtualThreadDispatch(boolean) virtual thread dispatch} take
+     * precedence. The default is false.
+     *
+     * @param inlineDispatch Whether to call listeners as events are routed.
+     * @return this, for chaining
+     */
+    public PusherOptions setInlineDispatch(final boolean inlineDispatch) {
+        this.inlineDispatch = inlineDispatch;
+        return this;
+    }
+
+    /**
+     * @return whether channel listeners are to be called as events are routed
+     */
+    public boolean isInlineDispatch() {
+        return inlineDispatch;
+    }
+
+    /**
+     * Sets the number of connections to spread the client's channels over.
+     * <p>
+     * Each shard is a connection of its own, with its own socket, reader
+     * thread and event thread, so the inbound traffic of a busy app is parsed
+     * and routed on several cores. A channel is placed on a shard by
+     * consistent hashing of its name. While a shard is down and another is
+     * connected, the channels of the down shard are subscribed on the shards
+     * which are left, and they move back once it reconnects. Channel
+     * listeners are called on the shard's event thread with
+     * {@link #setInlineDispatch(boolean) inline dispatch}, otherwise as
+     * without sharding.
+     * <p>
+     * The first shard is the connection returned by
+     * {@link Pusher#getConnection()}: it carries the user sign in, and the
+     * listener given to {@link Pusher#connect(com.pusher.client.connection.ConnectionEventListener,
+     * com.pusher.client.connection.ConnectionState...)} is bound to it only.
+     * Each shard counts as a connection towards the limits of the app. The
+     * default is 1, a single connection.
+     *
+     * @param connectionShards The number of connections, at least 1.
+     * @return this, for chaining
+     */
+    public PusherOptions setConnectionShards(final int connectionShards) {
+        if (connectionShards < 1) {
+            throw new IllegalArgumentException("connectionShards must be at least 1");
+        }
+        this.connectionShards = connectionShards;
+        return this;
+    }
+
+    /**
+     * @return the number of connections the channels are spread over
+     */
+    public int getConnectionShards() {
+        return connectionShards;
+    }
+
+    /**
+     * Sets whether the client shares its connection with the other clients
+     * in the process which set it too and connect to the same app with the
+     * same connection settings. These are all the options the connection is
+     * made with: host, port, encryption, timeouts, reconnection limits and
+     * strategy, proxy, codec, frame parsing, borrowed events, per-message
+     * deflate, the outbound queue, executors and the event queue or ring
+     * buffer. Clients which differ in any of them get connections of their
+     * own.
+     * <p>
+     * Settings which are objects are compared with equals. The built-in
+     * reconnect strategies and codecs are equal when set up alike. A strategy
+     * or codec of your own, like an executor or a listener, is only equal to
+     * itself unless it overrides equals, so clients which are to share a
+     * connection should be given the same instance.
+     * <p>
+     * Clients which share a connection keep their own connection listeners,
+     * channels and channel listeners, but the server sees one connection.
+     * Each channel is subscribed on it once, however many clients subscribe
+     * to it, and its events are parsed once for all of them. The connection
+     * is unsubscribed from a channel once the last client holding it
+     * unsubscribes, and closed once the last client disconnects. Presence and
+     * encrypted channels can only be held by one client of the connection at
+     * a time. A shared connection cannot be combined with
+     * {@link #setConnectionShards(int) shards}. The default is false.
+     *
+     * @param sharedConnection Whether to share the connection.
+     * @return this, for chaining
+     */
+    public PusherOptions setSharedConnection(final boolean sharedConnection) {
+        this.sharedConnection = sharedConnection;
+        return this;
+    }
+
+    /**
+     * @return whether the client shares its connection with other clients
+     */
+    public boolean isSharedConnection() {
+        return sharedConnection;
+    }
+
+    /**
+     * Sets whether the client offers the server permessage-deflate, which
+     * compresses the JSON of each message in both directions, with outbound
+     * messages of {@value #DEFAULT_DEFLATE_THRESHOLD} bytes or more compressed
+     * at the default level.
+     * <p>
+     * Compression trades CPU for bandwidth, which pays on slow or metered
+     * links. The server decides whether it takes up the offer. The default is
+     * false.
+     *
+     * @param perMessageDeflate Whether to offer compression.
+     * @return this, for chaining
+     */
+    public PusherOptions setPerMessageDeflate(final boolean perMessageDeflate) {
+        this.perMessageDeflate = perMessageDeflate;
+        return this;
+    }
+
+    /**
+     * Offers the server permessage-deflate, as {@link #setPerMessageDeflate(boolean)}
+     * does, with the given settings for outbound messages. Inbound messages
+     * are compressed as the server sees fit.
+     *
+     * @param threshold        Outbound messages smaller than this many bytes
+     *                         are sent uncompressed, as they would hardly
+     *                         shrink.
+     * @param compressionLevel The level to compress outbound messages at,
+     *                         from 1 for speed to 9 for size, or -1 for the
+     *                         default.
+     * @return this, for chaining
+     */
+    public PusherOptions setPerMessageDeflate(final int threshold, final int compressionLevel) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold must not be negative");
+        }
+        if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("compressionLevel must be between -1 and 9");
+        }
+        this.perMessageDeflate = true;
+        this.deflateThreshold = threshold;
+        this.deflateLevel = compressionLevel;
+        return this;
+    }
+
+    /**
+     * @return whether the client offers the server permessage-deflate
+     */
+    public boolean isPerMessageDeflate() {
+        return perMessageDeflate;
+    }
+
+    /**
+     * @return the size in bytes from which outbound messages are compressed
+     */
+    public int getDeflateThreshold() {
+        return deflateThreshold;
+    }
+
+    /**
+     * @return the level outbound messages are compressed at
+     */
+    public int getDeflateLevel() {
+        return deflateLevel;
+    }
+
+    /**
+     * Sets a listener to be told when messages for the server are sent faster
+     * than the connection writes them.
+     * <p>
+     * Messages wait in a queue for the event thread to write them, many to a
+     * socket write. Pings go ahead of the others and subscriptions ahead of
+     * client events. While the socket is behind with its writes the messages
+     * are held in the queue, and once the number waiting reaches the high
+     * water mark the listener is told to hold back, and then told again once
+     * the queue has drained to a quarter of the mark.
+     *
+     * @param listener      The listener, or null for none.
+     * @param highWaterMark The number of waiting messages at which the listener
+     *                      is told of backpressure, at least 1.
+     * @return this, for chaining
+     */
+    public PusherOptions setOutboundQueueListener(final OutboundQueueListener listener, final int highWaterMark) {
+        if (highWaterMark < 1) {
+            throw new IllegalArgumentException("highWaterMark must be at least 1");
+        }
+        this.outboundQueueListener = listener;
+        this.outboundHighWaterMark = highWaterMark;
+        return this;
+    }
+
+    /**
+     * @return the listener told of backpressure on outbound messages, or null
+     */
+    public OutboundQueueListener getOutboundQueueListener() {
+        return outboundQueueListener;
+    }
+
+    /**
+     * @return the number of waiting outbound messages at which the listener
+     * is told of backpressure
+     */
+    public int getOutboundHighWaterMark() {
+        return outboundHighWaterMark;
+    }
+
+    /**
+     * Sets the executor which runs the client's tasks: handling the
+     * connection, routing inbound events and calling listeners, including
+     * those on {@link #setDispatchLanes(int) dispatch lanes}. The tasks are
+     * still run one at a time and in order, so any executor will do, such as
+     * a shared pool.
+     * <p>
+     * The executor belongs to the caller. The client never shuts it down,
+     * whereas by default it starts a thread of its own which it stops on
+     * every disconnection.
+     *
+     * @param eventExecutor The executor, or null for a thread of the client's own.
+     * @return this, for chaining
+     */
+    public PusherOptions setEventExecutor(final Executor eventExecutor) {
+        this.eventExecutor = eventExecutor;
+        return this;
+    }
+
+    /**
+     * @return the executor supplied for the client's tasks, or null
+     */
+    public Executor getEventExecutor() {
+        return eventExecutor;
+    }
+
+    /**
+     * Sets the scheduler for the client's timers: the activity and pong
+     * timeouts and the delays between reconnection attempts.
+     * <p>
+     * The scheduler belongs to the caller. The client never shuts it down,
+     * whereas by default it starts a thread of its own which it stops on
+     * every disconnection.
+     *
+     * @param scheduledExecutor The scheduler, or null for a thread of the client's own.
+     * @return this, for chaining
+     */
+    public PusherOptions setScheduledExecutor(final ScheduledExecutorService scheduledExecutor) {
+        this.scheduledExecutor = scheduledExecutor;
+        return this;
+    }
+
+    /**
+     * @return the scheduler supplied for the client's timers, or null
+     */
+    public ScheduledExecutorService getScheduledExecutor() {
+        return scheduledExecutor;
+    }
+
+    /**
+     * Sets the client to hand inbound frames and its own tasks to the event
+     * thread through a preallocated ring buffer rather than a queue.
+     * <p>
+     * A frame is then published into a slot of the ring as it is, without a
+     * task being allocated to carry it, and the event thread takes whatever
+     * has been published in batches. When the ring is full the socket thread
+     * waits for the event thread to catch up, so the capacity bounds how far
+     * the event thread can fall behind. The event thread always belongs to the
+     * client, even if an {@link #setEventExecutor(Executor) event executor} is
+     * set, which then only runs the dispatch lanes.
+     *
+     * @param capacity     The number of slots, rounded up to a power of two.
+     * @param waitStrategy How the event thread waits for work when the ring is
+     *                     empty. {@link WaitStrategy#PARK} costs nothing while
+     *                     idle, the others keep a core busy for lower latency.
+     * @return this, for chaining
+     */
+    public PusherOptions setRingBufferEventLoop(final int capacity, final WaitStrategy waitStrategy) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        if (waitStrategy == null) {
+            throw new IllegalArgumentException("waitStrategy must not be null");
+        }
+        this.ringBufferCapacity = Integer.highestOneBit(capacity * 2 - 1);
+        this.waitStrategy = waitStrategy;
+        return this;
+    }
+
+    /**
+     * @return the number of slots in the ring buffer of the event thread, or 0
+     * if the event thread is fed through a queue
+     */
+    public int getRingBufferCapacity() {
+        return ringBufferCapacity;
+    }
+
+    /**
+     * @return how the event thread waits for work when it has a ring buffer
+     */
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Bounds the number of inbound frames which may wait for the event thread.
+     * <p>
+     * By default frames queue without limit, so if the event thread or the
+     * listeners it calls fall behind the frames build up until the heap runs
+     * out. With a bound, a frame which arrives to find the queue full is
+     * handled according to the policy, and the queue can be watched through
+     * {@link Pusher#getEventQueueStats()} and an
+     * {@link #setEventQueueListener(EventQueueListener) event queue listener}.
+     * Only frames count towards the bound, the client's own tasks are always
+     * queued.
+     *
+     * @param capacity       The most frames which may wait.
+     * @param overflowPolicy What to do with a frame when the queue is full.
+     * @return this, for chaining
+     */
+    public PusherOptions setBoundedEventQueue(final int capacity, final OverflowPolicy overflowPolicy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("overflowPolicy must not be null");
+        }
+        this.eventQueueCapacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    /**
+     * @return the most inbound frames which may wait for the event thread, or
+     * 0 if there is no bound
+     */
+    public int getEventQueueCapacity() {
+        return eventQueueCapacity;
+    }
+
+    /**
+     * @return what is done with a frame which finds the bounded event queue full
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Sets a listener to be told when the bounded event queue passes its high
+     * and low water marks, and when it overflows. Has no effect unless
+     * {@link #setBoundedEventQueue(int, OverflowPolicy)} is also set.
+     *
+     * @param eventQueueListener The listener, or null for none.
+     * @return this, for chaining
+     */
+    public PusherOptions setEventQueueListener(final EventQueueListener eventQueueListener) {
+        this.eventQueueListener = eventQueueListener;
+        return this;
+    }
+
+    /**
+     * @return the listener to the bounded event queue, or null
+     */
+    public EventQueueListener getEventQueueListener() {
+        return eventQueueListener;
+    }
+
     private static String readVersionFromProperties() {
         InputStream inStream = null;
         try {
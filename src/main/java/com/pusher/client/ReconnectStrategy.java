@@ -0,0 +1,57 @@
+package com.pusher.client;
+
+import com.pusher.client.util.internal.Backoff;
+
+/**
+ * Decides how long a connection waits before each attempt to reconnect.
+ * <p>
+ * A strategy is asked once per attempt, on the event thread of the
+ * connection, and may be shared by several connections, so any state it keeps
+ * must be safe to use from several threads. The built-in strategies keep
+ * none.
+ * <p>
+ * A fleet of clients which lose their connections at the same moment, as
+ * when a cluster restarts, reconnect in lockstep with a backoff without
+ * jitter, and the server sees every one of them again at each attempt. The
+ * jittered strategies spread the attempts out so that most of them land
+ * while the server has room for them.
+ *
+ * @see PusherOptions#setReconnectStrategy(ReconnectStrategy)
+ */
+public interface ReconnectStrategy {
+
+    /**
+     * @param attempt             The attempt about to be made, counting from 1
+     *                            since the connection was last established.
+     * @param previousDelayMillis The delay before the previous attempt, 0 for
+     *                            the first attempt.
+     * @return The number of milliseconds to wait before the attempt.
+     */
+    long getDelayMillis(int attempt, long previousDelayMillis);
+
+    /**
+     * Waits {@code baseMillis}, then twice as long before each attempt up to
+     * {@code capMillis}, the same for every client.
+     */
+    static ReconnectStrategy exponential(final long baseMillis, final long capMillis) {
+        return new Backoff(Backoff.Kind.EXPONENTIAL, baseMillis, capMillis);
+    }
+
+    /**
+     * Waits a random time between 0 and the exponential delay. It spreads the
+     * attempts of a fleet out the most, at the cost of some clients
+     * reconnecting sooner than they would have.
+     */
+    static ReconnectStrategy fullJitter(final long baseMillis, final long capMillis) {
+        return new Backoff(Backoff.Kind.FULL_JITTER, baseMillis, capMillis);
+    }
+
+    /**
+     * Waits a random time between {@code baseMillis} and three times the
+     * previous delay, up to {@code capMillis}. Each client's delays grow from
+     * its own previous one, which keeps a fleet from falling back into step.
+     */
+    static ReconnectStrategy decorrelatedJitter(final long baseMillis, final long capMillis) {
+        return new Backoff(Backoff.Kind.DECORRELATED_JITTER, baseMillis, capMillis);
+    }
+}
@@ -0,0 +1,25 @@
+package com.pusher.client;
+
+/**
+ * How the thread of a ring buffer event loop waits for work when it has
+ * drained everything that was published to it.
+ *
+ * @see PusherOptions#setRingBufferEventLoop(int, WaitStrategy)
+ */
+public enum WaitStrategy {
+    /**
+     * Spins on the ring. The lowest latency, at the cost of a whole core for
+     * as long as the client is connected.
+     */
+    BUSY_SPIN,
+    /**
+     * Yields the core between checks of the ring. Low latency while other
+     * threads need little CPU, but still keeps a core busy.
+     */
+    YIELD,
+    /**
+     * Yields briefly, then parks the thread until something is published.
+     * Costs nothing while idle, a publisher wakes the thread up with an unpark.
+     */
+    PARK
+}
@@ -0,0 +1,57 @@
+package com.pusher.client.channel;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link SubscriptionEventListener} which takes its events in batches, for
+ * consumers such as a database or a message bus which handle many events at
+ * once far more cheaply than one at a time.
+ * <p>
+ * Events for a batch listener are collected while its delivery waits to be
+ * run, and it is then handed every event collected, in the order they
+ * arrived, up to {@link #getMaxBatchSize()} at a time. A listener which keeps
+ * up therefore gets small batches, one which falls behind gets larger ones.
+ * With a {@link #getLingerMillis() linger} the first event of a batch waits
+ * for that long, or until the batch is full, for more events to join it.
+ * <p>
+ * Bind it with {@link Channel#bind(String, SubscriptionEventListener)} to
+ * batch the events of one name, or with
+ * {@link Channel#bindGlobal(SubscriptionEventListener)} to batch every event
+ * of the channel together.
+ */
+public interface BatchSubscriptionEventListener extends SubscriptionEventListener {
+
+    /**
+     * Callback that is fired with the events that this listener has been
+     * bound to which have arrived since the last batch.
+     *
+     * @param events The events, oldest first. The list is the listener's to
+     *               keep and is never empty.
+     */
+    void onEvents(List<PusherEvent> events);
+
+    /**
+     * Delivers a single event as a batch of one.
+     */
+    @Override
+    default void onEvent(final PusherEvent event) {
+        onEvents(Collections.singletonList(event));
+    }
+
+    /**
+     * @return The most events to hand over in one batch, 100 by default.
+     */
+    default int getMaxBatchSize() {
+        return 100;
+    }
+
+    /**
+     * @return How long the first event of a batch may wait for more events to
+     * join it, in milliseconds. By default 0, a batch is delivered as soon as
+     * the listener's turn comes.
+     */
+    default long getLingerMillis() {
+        return 0;
+    }
+}
@@ -0,0 +1,17 @@
+package com.pusher.client.channel;
+
+/**
+ * A {@link SubscriptionEventListener} which only borrows the events it is
+ * handed. When {@link com.pusher.client.PusherOptions#setBorrowedEvents(boolean)}
+ * is enabled, the event passed to {@link #onEvent(PusherEvent)} and the frame
+ * behind it are reused for the next event once the method returns, so an
+ * implementation must not keep a reference to it, or to it only through
+ * {@link PusherEvent#copy()}. The values returned by its getters may be kept.
+ * <p>
+ * A borrowing listener is called on the event thread while the event is
+ * routed, rather than being queued to it, so it should return promptly. It is
+ * called before the listeners which are queued for the same event. An
+ * exception thrown by it is passed to {@link #onError(String, Exception)}.
+ */
+public interface BorrowedEventListener extends SubscriptionEventListener {
+}
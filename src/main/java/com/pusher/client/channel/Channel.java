@@ -38,6 +38,31 @@ public interface Channel {
      */
     void bind(String eventName, SubscriptionEventListener listener);
 
+    /**
+     * Binds a {@link TypedEventListener} to an event. The
+     * {@link TypedEventListener} will be notified whenever the specified event
+     * is received on this channel, with the event data decoded into an
+     * instance of the given type.
+     *
+     * <p>
+     * The event data is decoded once per event for each bound type and the
+     * resulting instance is shared by all listeners bound with that type.
+     * </p>
+     *
+     * @param <T>       The type into which the event data is decoded.
+     * @param eventName The name of the event to listen to.
+     * @param type      The class into which the event data is decoded.
+     * @param listener  A listener to receive notifications when the event is
+     *                  received.
+     * @throws IllegalArgumentException If any of the following are true:
+     *                                  <ul>
+     *                                  <li>The name of the event is null.</li>
+     *                                  <li>The type is null.</li>
+     *                                  <li>The {@link TypedEventListener} is null.</li>
+     *                                  </ul>
+     */
+    <T> void bind(String eventName, Class<T> type, TypedEventListener<T> listener);
+
     /**
      * Binds a {@link SubscriptionEventListener} to all events. The
      * {@link SubscriptionEventListener} will be notified whenever an
@@ -88,6 +113,23 @@ public interface Channel {
      */
     void unbind(String eventName, SubscriptionEventListener listener);
 
+    /**
+     * Unbinds a previously bound {@link TypedEventListener} from an event. The
+     * {@link TypedEventListener} will no longer be notified whenever the
+     * specified event is received on this channel.
+     *
+     * @param <T>       The type the listener was bound with.
+     * @param eventName The name of the event to stop listening to.
+     * @param type      The class the listener was bound with.
+     * @param listener  The listener to unbind from the event.
+     * @throws IllegalArgumentException If either of the following are true:
+     *                                  <ul>
+     *                                  <li>The name of the event is null.</li>
+     *                                  <li>The {@link TypedEventListener} is null.</li>
+     *                                  </ul>
+     */
+    <T> void unbind(String eventName, Class<T> type, TypedEventListener<T> listener);
+
     /**
      * <p>
      * Unbinds a previously bound {@link SubscriptionEventListener} from global
@@ -119,4 +161,11 @@ public interface Channel {
      * @return Whether or not the channel is subscribed.
      */
     boolean isSubscribed();
+
+    /**
+     * @return The number of events which the {@link ConflatingEventListener}s
+     * of this channel never saw, because a newer event with the same key
+     * replaced them while they waited.
+     */
+    long getConflatedCount();
 }
@@ -0,0 +1,34 @@
+package com.pusher.client.channel;
+
+/**
+ * A {@link SubscriptionEventListener} which only wants the latest event for
+ * each key, for example the latest price of each instrument on a ticker
+ * channel.
+ * <p>
+ * Events for a conflating listener are queued like those for any other
+ * listener, but while an event is waiting for the listener, a newer event
+ * with the same key replaces it in place rather than queueing behind it. A
+ * listener which keeps up sees every event, one which falls behind sees the
+ * latest event for each key as soon as it catches up, and the backlog can
+ * never grow beyond one event per key.
+ * <p>
+ * Bind it with {@link Channel#bind(String, SubscriptionEventListener)} to
+ * conflate the events of one name, or with
+ * {@link Channel#bindGlobal(SubscriptionEventListener)} to conflate every
+ * event of the channel. The number of events replaced is counted by
+ * {@link Channel#getConflatedCount()}.
+ */
+public interface ConflatingEventListener extends SubscriptionEventListener {
+
+    /**
+     * Works out the key under which an event is conflated. Called on the
+     * event thread as the event is routed, so it should return promptly.
+     *
+     * @param event The event about to be queued for the listener.
+     * @return The key, by default the name of the event, or null to queue the
+     * event without conflating it.
+     */
+    default String getConflationKey(final PusherEvent event) {
+        return event.getEventName();
+    }
+}
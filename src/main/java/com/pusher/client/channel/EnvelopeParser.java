@@ -0,0 +1,409 @@
+package com.pusher.client.channel;
+
+import com.google.gson.JsonSyntaxException;
+import com.pusher.client.util.SymbolTable;
+import com.pusher.client.util.internal.JsonScanner;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A single pass scanner over an inbound Pusher protocol frame.
+ * <p>
+ * Only the members needed to route an event ("event", "channel" and
+ * "user_id") are decoded. The "data" member is skipped over and recorded as a
+ * slice of the frame so that it is only decoded if a listener asks for it.
+ * No intermediate tree model is built.
+ * <p>
+ * When given a {@link SymbolTable}, event and channel names that are known to
+ * it resolve to their canonical instance without a String being allocated.
+ * <p>
+ * Frames can be scanned as a String or as UTF-8 bytes. Every byte of a
+ * multi-byte UTF-8 sequence is above 0x7F, so it can never be mistaken for one
+ * of the ASCII characters that structure JSON, and the same scanner serves
+ * both. Only the slices which are actually needed are ever decoded to chars.
+ */
+abstract class EnvelopeParser {
+
+    private static final String EVENT_KEY = "event";
+    private static final String CHANNEL_KEY = "channel";
+    private static final String USER_ID_KEY = "user_id";
+    private static final String DATA_KEY = "data";
+
+    // Not final, a borrowed event keeps its parsers and resets them for each
+    // frame so that refilling it allocates nothing at all.
+    private SymbolTable symbols;
+    private int end;
+    private int pos;
+
+    // a borrowed event to refill instead of creating a new one, or null
+    PusherEvent reuse;
+
+    void resetInput(final SymbolTable symbols, final PusherEvent reuse, final int start, final int end) {
+        this.symbols = symbols;
+        this.reuse = reuse;
+        this.pos = start;
+        this.end = end;
+    }
+
+    static PusherEvent parse(final String json, final SymbolTable symbols, final PusherEvent reuse) {
+        if (json == null) {
+            throw new JsonSyntaxException("Cannot parse a null frame");
+        }
+        final StringEnvelopeParser parser = reuse != null ? reuse.stringParser() : new StringEnvelopeParser();
+        parser.reset(json, symbols, reuse);
+        try {
+            return parser.parseEnvelope();
+        } finally {
+            parser.reset(null, null, null);
+        }
+    }
+
+    static PusherEvent parse(
+            final byte[] utf8,
+            final int offset,
+            final int length,
+            final SymbolTable symbols,
+            final PusherEvent reuse
+    ) {
+        if (utf8 == null) {
+            throw new JsonSyntaxException("Cannot parse a null frame");
+        }
+        final Utf8EnvelopeParser parser = reuse != null ? reuse.utf8Parser() : new Utf8EnvelopeParser();
+        parser.reset(utf8, offset, offset + length, symbols, reuse);
+        try {
+            return parser.parseEnvelope();
+        } finally {
+            parser.reset(null, 0, 0, null, null);
+        }
+    }
+
+    /**
+     * @return the character at the given index, or for UTF-8 input the byte,
+     * which is the same character for anything in the ASCII range.
+     */
+    abstract char at(int index);
+
+    /**
+     * @return the decoded text of [start, end) of the input.
+     */
+    abstract String text(int start, int end);
+
+    /**
+     * @return the known symbol spelled by [start, end) of the input, or null.
+     */
+    abstract String lookup(SymbolTable symbols, int start, int end);
+
+    abstract PusherEvent newEvent(String eventName, String channelName, String userId, int dataStart, int dataEnd);
+
+    /**
+     * @return the whole input as text, for error messages.
+     */
+    abstract String describeInput();
+
+    /**
+     * Decodes the JSON string literal spanning [start, end) of the input,
+     * including its surrounding quotes.
+     */
+    String readString(final int start, final int end) {
+        final String literal = text(start, end);
+        return JsonScanner.unescape(literal, 0, literal.length());
+    }
+
+    PusherEvent parseEnvelope() {
+        String eventName = null;
+        String channelName = null;
+        String userId = null;
+        int dataStart = -1;
+        int dataEnd = -1;
+
+        skipWhitespace();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return newEvent(null, null, null, dataStart, dataEnd);
+        }
+
+        while (true) {
+            skipWhitespace();
+            final int keyStart = pos;
+            skipString();
+            final int keyEnd = pos;
+
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+
+            final int valueStart = pos;
+            skipValue();
+            final int valueEnd = pos;
+
+            if (isKey(keyStart, keyEnd, EVENT_KEY)) {
+                eventName = readName(valueStart, valueEnd);
+            } else if (isKey(keyStart, keyEnd, CHANNEL_KEY)) {
+                channelName = readName(valueStart, valueEnd);
+            } else if (isKey(keyStart, keyEnd, USER_ID_KEY)) {
+                userId = readScalar(valueStart, valueEnd);
+            } else if (isKey(keyStart, keyEnd, DATA_KEY)) {
+                dataStart = valueStart;
+                dataEnd = valueEnd;
+            }
+
+            skipWhitespace();
+            final char c = next();
+            if (c == '}') {
+                break;
+            } else if (c != ',') {
+                throw syntaxError("Expected ',' or '}'");
+            }
+        }
+
+        return newEvent(eventName, channelName, userId, dataStart, dataEnd);
+    }
+
+    private String readName(final int start, final int end) {
+        if (symbols != null && at(start) == '"' && !hasEscape(start + 1, end - 1)) {
+            final String symbol = lookup(symbols, start + 1, end - 1);
+            if (symbol != null) {
+                return symbol;
+            }
+        }
+        return readScalar(start, end);
+    }
+
+    private boolean hasEscape(final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if (at(i) == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String readScalar(final int start, final int end) {
+        if (at(start) == '"') {
+            return readString(start, end);
+        }
+        if (matches(start, end, "null")) {
+            return null;
+        }
+        return text(start, end);
+    }
+
+    private boolean isKey(final int start, final int end, final String key) {
+        // start and end include the quotes, escaped keys never match a protocol key
+        return matches(start + 1, end - 1, key);
+    }
+
+    private boolean matches(final int start, final int end, final String expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (at(start + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipValue() {
+        switch (peek()) {
+            case '"':
+                skipString();
+                break;
+            case '{':
+            case '[':
+                skipContainer();
+                break;
+            default:
+                skipLiteral();
+        }
+    }
+
+    private void skipString() {
+        expect('"');
+        while (pos < end) {
+            final char c = at(pos++);
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                pos++;
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    private void skipContainer() {
+        int depth = 0;
+        while (pos < end) {
+            final char c = at(pos);
+            if (c == '"') {
+                skipString();
+                continue;
+            }
+            pos++;
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (--depth == 0) {
+                    return;
+                }
+            }
+        }
+        throw syntaxError("Unterminated object or array");
+    }
+
+    private void skipLiteral() {
+        final int start = pos;
+        while (pos < end) {
+            final char c = at(pos);
+            if (c == ',' || c == '}' || c == ']' || isWhitespace(c)) {
+                break;
+            }
+            pos++;
+        }
+        if (pos == start) {
+            throw syntaxError("Expected a value");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < end && isWhitespace(at(pos))) {
+            pos++;
+        }
+    }
+
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private char peek() {
+        if (pos >= end) {
+            throw syntaxError("Unexpected end of frame");
+        }
+        return at(pos);
+    }
+
+    private char next() {
+        final char c = peek();
+        pos++;
+        return c;
+    }
+
+    private void expect(final char expected) {
+        if (next() != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+    }
+
+    private JsonSyntaxException syntaxError(final String message) {
+        return new JsonSyntaxException(message + " at position " + pos + " in " + describeInput());
+    }
+
+    static final class StringEnvelopeParser extends EnvelopeParser {
+
+        private String json;
+
+        void reset(final String json, final SymbolTable symbols, final PusherEvent reuse) {
+            resetInput(symbols, reuse, 0, json != null ? json.length() : 0);
+            this.json = json;
+        }
+
+        @Override
+        char at(final int index) {
+            return json.charAt(index);
+        }
+
+        @Override
+        String text(final int start, final int end) {
+            return json.substring(start, end);
+        }
+
+        @Override
+        String readString(final int start, final int end) {
+            return JsonScanner.unescape(json, start, end);
+        }
+
+        @Override
+        String lookup(final SymbolTable symbols, final int start, final int end) {
+            return symbols.lookup(json, start, end);
+        }
+
+        @Override
+        PusherEvent newEvent(
+                final String eventName,
+                final String channelName,
+                final String userId,
+                final int dataStart,
+                final int dataEnd
+        ) {
+            if (reuse != null) {
+                reuse.refill(eventName, channelName, userId, json, null, 0, json.length(), dataStart, dataEnd);
+                return reuse;
+            }
+            return new PusherEvent(eventName, channelName, userId, json, dataStart, dataEnd);
+        }
+
+        @Override
+        String describeInput() {
+            return json;
+        }
+    }
+
+    static final class Utf8EnvelopeParser extends EnvelopeParser {
+
+        private byte[] utf8;
+        private int offset;
+        private int limit;
+
+        void reset(
+                final byte[] utf8,
+                final int offset,
+                final int limit,
+                final SymbolTable symbols,
+                final PusherEvent reuse
+        ) {
+            resetInput(symbols, reuse, offset, limit);
+            this.utf8 = utf8;
+            this.offset = offset;
+            this.limit = limit;
+        }
+
+        @Override
+        char at(final int index) {
+            return (char) (utf8[index] & 0xFF);
+        }
+
+        @Override
+        String text(final int start, final int end) {
+            return new String(utf8, start, end - start, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        String lookup(final SymbolTable symbols, final int start, final int end) {
+            return symbols.lookup(utf8, start, end);
+        }
+
+        @Override
+        PusherEvent newEvent(
+                final String eventName,
+                final String channelName,
+                final String userId,
+                final int dataStart,
+                final int dataEnd
+        ) {
+            if (reuse != null) {
+                reuse.refill(eventName, channelName, userId, null, utf8, offset, limit, dataStart, dataEnd);
+                return reuse;
+            }
+            return new PusherEvent(eventName, channelName, userId, utf8, offset, limit, dataStart, dataEnd);
+        }
+
+        @Override
+        String describeInput() {
+            return text(offset, limit);
+        }
+    }
+}
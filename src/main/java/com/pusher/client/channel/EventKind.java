@@ -0,0 +1,64 @@
+package com.pusher.client.channel;
+
+/**
+ * What an event is to the client: an application event, or one of the
+ * protocol events the client acts on itself. Every {@link PusherEvent} is
+ * classified once when it is created, so the layers an event passes through
+ * dispatch on its kind instead of comparing its name again and again.
+ */
+public enum EventKind {
+    /**
+     * An event sent by the application, or a client event.
+     */
+    USER,
+    CONNECTION_ESTABLISHED,
+    ERROR,
+    SIGNIN_SUCCESS,
+    SUBSCRIPTION_SUCCEEDED,
+    SUBSCRIPTION_COUNT,
+    MEMBER_ADDED,
+    MEMBER_REMOVED,
+    /**
+     * Any other event in the reserved pusher: or pusher_internal: namespaces,
+     * such as pusher:pong.
+     */
+    PROTOCOL;
+
+    private static final String PROTOCOL_PREFIX = "pusher";
+
+    /**
+     * @return whether the event belongs to the protocol rather than to the
+     * application.
+     */
+    public boolean isProtocol() {
+        return this != USER;
+    }
+
+    /**
+     * Classifies an event by its name. Names outside the reserved namespaces
+     * are settled by a single prefix check.
+     */
+    public static EventKind of(final String eventName) {
+        if (eventName == null || !eventName.startsWith(PROTOCOL_PREFIX)) {
+            return USER;
+        }
+        switch (eventName) {
+            case "pusher:connection_established":
+                return CONNECTION_ESTABLISHED;
+            case "pusher:error":
+                return ERROR;
+            case "pusher:signin_success":
+                return SIGNIN_SUCCESS;
+            case "pusher_internal:subscription_succeeded":
+                return SUBSCRIPTION_SUCCEEDED;
+            case "pusher_internal:subscription_count":
+                return SUBSCRIPTION_COUNT;
+            case "pusher_internal:member_added":
+                return MEMBER_ADDED;
+            case "pusher_internal:member_removed":
+                return MEMBER_REMOVED;
+            default:
+                return eventName.startsWith("pusher:") || eventName.startsWith("pusher_internal:") ? PROTOCOL : USER;
+        }
+    }
+}
@@ -3,15 +3,52 @@ package com.pusher.client.channel;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
-import com.google.gson.annotations.SerializedName;
+import com.google.gson.JsonSyntaxException;
+import com.pusher.client.util.SymbolTable;
+import com.pusher.client.util.internal.JsonScanner;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Map;
 
 public class PusherEvent {
 
-    private JsonObject jsonObject = new JsonObject();
+    private static final Gson DATA_GSON = new GsonBuilder().serializeNulls().disableHtmlEscaping().create();
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    // Not final so that a borrowed event can be refilled with the next frame,
+    // every other event is effectively immutable once constructed.
+    private String eventName;
+    private String channelName;
+    private String userId;
+    private EventKind kind;
+    private final boolean borrowed;
+    private EnvelopeParser.StringEnvelopeParser stringParser;
+    private EnvelopeParser.Utf8EnvelopeParser utf8Parser;
+
+    // Decoded lazily from the raw slice below and then memoized, an event is
+    // handed to every interested listener so this is typically read many times.
+    // Strings are immutable so a racy first initialisation is harmless.
+    private String data;
+
+    // Events parsed from the wire keep their "data" member as a slice of the
+    // original frame, it is only decoded when somebody asks for it. The frame
+    // is either text or, when parsed straight from the socket, UTF-8 bytes.
+    // It is kept whole, so that toJson can write out every member it had.
+    private String rawJson;
+    private byte[] rawUtf8;
+    private int rawFrameStart;
+    private int rawFrameEnd;
+    private int rawDataStart;
+    private int rawDataEnd;
+
+    // the object an event was made from by a tree model codec, likewise
+    private JsonObject envelope;
 
     /**
      * getProperty returns the value associated with the key, or null.
@@ -34,7 +71,7 @@ public class PusherEvent {
             case "channel":
                 return getChannelName();
             case "data":
-                return jsonObject.get("data");
+                return getDataElement();
             case "event":
                 return getEventName();
             default:
@@ -43,24 +80,77 @@ public class PusherEvent {
     }
 
     public String getUserId() {
-        return jsonObject.has("user_id") ? jsonObject.get("user_id").getAsString() : null;
+        return userId;
     }
 
     public String getChannelName() {
-        return jsonObject.has("channel") ? jsonObject.get("channel").getAsString() : null;
+        return channelName;
     }
 
     public String getEventName() {
-        return jsonObject.has("event") ? jsonObject.get("event").getAsString() : null;
+        return eventName;
+    }
+
+    /**
+     * @return what the event is to the client, classified from its name when
+     * the event was created.
+     */
+    public EventKind getKind() {
+        return kind;
     }
 
     public String getData() {
-        JsonElement data = jsonObject.get("data");
-        if (data.isJsonPrimitive()) {
-            return data.getAsString();
+        String result = data;
+        if (result == null && hasRawData()) {
+            result = decodeRawData();
+            data = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the "data" member exactly as it was received on the wire, or
+     * null if this event was not parsed from a frame or had no data.
+     */
+    public String getRawData() {
+        if (!hasRawData()) {
+            return null;
+        }
+        if (rawUtf8 != null) {
+            return new String(rawUtf8, rawDataStart, rawDataEnd - rawDataStart, StandardCharsets.UTF_8);
         }
-        final Gson gson = new GsonBuilder().serializeNulls().disableHtmlEscaping().create();
-        return gson.toJson(data);
+        return rawJson.substring(rawDataStart, rawDataEnd);
+    }
+
+    /**
+     * @return whether this event is borrowed: it is reused for the next event
+     * once the listener it was handed to returns, so it must be copied to be
+     * kept. Only a {@link BorrowedEventListener} is ever handed a borrowed event.
+     * @see #copy()
+     */
+    public boolean isBorrowed() {
+        return borrowed;
+    }
+
+    /**
+     * @return an event with the same content which may be kept for as long as
+     * needed. An event which is not borrowed is returned as it is.
+     */
+    public PusherEvent copy() {
+        if (!borrowed) {
+            return this;
+        }
+        if (rawUtf8 != null) {
+            // the frame is reused along with the event, keep a copy of it
+            final byte[] frame = Arrays.copyOfRange(rawUtf8, rawFrameStart, rawFrameEnd);
+            final int dataStart = hasRawData() ? rawDataStart - rawFrameStart : -1;
+            final int dataEnd = hasRawData() ? rawDataEnd - rawFrameStart : -1;
+            return new PusherEvent(eventName, channelName, userId, frame, 0, frame.length, dataStart, dataEnd);
+        }
+        if (rawFrameStart >= 0) {
+            return new PusherEvent(eventName, channelName, userId, rawJson, rawDataStart, rawDataEnd);
+        }
+        return new PusherEvent(eventName, channelName, userId, data);
     }
 
     public String toString() {
@@ -68,10 +158,18 @@ public class PusherEvent {
     }
 
     public PusherEvent(String event, String channel, String userId, String data) {
-        jsonObject.addProperty("event", event);
-        jsonObject.addProperty("channel", channel);
-        jsonObject.addProperty("userId", userId);
-        jsonObject.addProperty("data", data);
+        this.eventName = event;
+        this.kind = EventKind.of(event);
+        this.borrowed = false;
+        this.channelName = channel;
+        this.userId = userId;
+        this.data = data;
+        this.rawJson = null;
+        this.rawUtf8 = null;
+        this.rawFrameStart = -1;
+        this.rawFrameEnd = -1;
+        this.rawDataStart = -1;
+        this.rawDataEnd = -1;
     }
 
     public PusherEvent(String event, String channel, String userId, Map<String, Object> data) {
@@ -79,16 +177,247 @@ public class PusherEvent {
     }
 
     public PusherEvent(JsonObject jsonObject) {
-        this.jsonObject = jsonObject;
+        this.eventName = getAsString(jsonObject, "event");
+        this.kind = EventKind.of(eventName);
+        this.borrowed = false;
+        this.channelName = getAsString(jsonObject, "channel");
+        this.userId = getAsString(jsonObject, "user_id");
+        this.data = null;
+
+        final JsonElement dataElement = jsonObject.get("data");
+        this.rawJson = dataElement != null ? dataElement.toString() : null;
+        this.rawUtf8 = null;
+        this.rawFrameStart = -1;
+        this.rawFrameEnd = -1;
+        this.rawDataStart = dataElement != null ? 0 : -1;
+        this.rawDataEnd = dataElement != null ? rawJson.length() : -1;
+        this.envelope = jsonObject;
+    }
+
+    PusherEvent(
+            String event,
+            String channel,
+            String userId,
+            String rawJson,
+            int rawDataStart,
+            int rawDataEnd
+    ) {
+        this.eventName = event;
+        this.kind = EventKind.of(event);
+        this.borrowed = false;
+        this.channelName = channel;
+        this.userId = userId;
+        this.data = null;
+        this.rawJson = rawJson;
+        this.rawUtf8 = null;
+        this.rawFrameStart = 0;
+        this.rawFrameEnd = rawJson.length();
+        this.rawDataStart = rawDataStart;
+        this.rawDataEnd = rawDataEnd;
     }
 
+    PusherEvent(
+            String event,
+            String channel,
+            String userId,
+            byte[] rawUtf8,
+            int rawFrameStart,
+            int rawFrameEnd,
+            int rawDataStart,
+            int rawDataEnd
+    ) {
+        this.eventName = event;
+        this.kind = EventKind.of(event);
+        this.borrowed = false;
+        this.channelName = channel;
+        this.userId = userId;
+        this.data = null;
+        this.rawJson = null;
+        this.rawUtf8 = rawUtf8;
+        this.rawFrameStart = rawFrameStart;
+        this.rawFrameEnd = rawFrameEnd;
+        this.rawDataStart = rawDataStart;
+        this.rawDataEnd = rawDataEnd;
+    }
+
+    private PusherEvent() {
+        this.borrowed = true;
+        this.rawFrameStart = -1;
+        this.rawFrameEnd = -1;
+        this.rawDataStart = -1;
+        this.rawDataEnd = -1;
+    }
+
+    /**
+     * @return an empty borrowed event for a codec to parse frames into.
+     * @see com.pusher.client.EnvelopeCodec#decodeEvent(String, SymbolTable, PusherEvent)
+     */
+    public static PusherEvent newBorrowed() {
+        return new PusherEvent();
+    }
+
+    EnvelopeParser.StringEnvelopeParser stringParser() {
+        if (stringParser == null) {
+            stringParser = new EnvelopeParser.StringEnvelopeParser();
+        }
+        return stringParser;
+    }
+
+    EnvelopeParser.Utf8EnvelopeParser utf8Parser() {
+        if (utf8Parser == null) {
+            utf8Parser = new EnvelopeParser.Utf8EnvelopeParser();
+        }
+        return utf8Parser;
+    }
+
+    /**
+     * Refills a borrowed event with the envelope of the next frame.
+     */
+    void refill(
+            final String event,
+            final String channel,
+            final String userId,
+            final String rawJson,
+            final byte[] rawUtf8,
+            final int rawFrameStart,
+            final int rawFrameEnd,
+            final int rawDataStart,
+            final int rawDataEnd
+    ) {
+        this.eventName = event;
+        this.kind = EventKind.of(event);
+        this.channelName = channel;
+        this.userId = userId;
+        this.data = null;
+        this.rawJson = rawJson;
+        this.rawUtf8 = rawUtf8;
+        this.rawFrameStart = rawFrameStart;
+        this.rawFrameEnd = rawFrameEnd;
+        this.rawDataStart = rawDataStart;
+        this.rawDataEnd = rawDataEnd;
+    }
+
+    /**
+     * @return the event as JSON: an event parsed from a frame or made from a
+     * JsonObject is written out with every member it had, other events with
+     * their event, channel, userId and data members, leaving out those which
+     * are null.
+     */
     public String toJson() {
-        final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
-        return gson.toJson(jsonObject);
+        if (envelope != null) {
+            return GSON.toJson(envelope);
+        }
+        if (rawFrameStart >= 0) {
+            return GSON.toJson(JsonParser.parseString(getRawFrame()));
+        }
+        final JsonObject jsonObject = new JsonObject();
+        jsonObject.addProperty("event", eventName);
+        jsonObject.addProperty("channel", channelName);
+        jsonObject.addProperty("userId", userId);
+        jsonObject.addProperty("data", data);
+
+        return GSON.toJson(jsonObject);
     }
 
     public static PusherEvent fromJson(String json) {
-        final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
-        return new PusherEvent(gson.fromJson(json, JsonObject.class));
+        return EnvelopeParser.parse(json, null, null);
+    }
+
+    /**
+     * Parses an event, resolving its event and channel names against the
+     * given symbols so that known names are not allocated again.
+     */
+    public static PusherEvent fromJson(String json, SymbolTable symbols) {
+        return EnvelopeParser.parse(json, symbols, null);
+    }
+
+    /**
+     * Parses an event from the UTF-8 bytes between the position and the limit
+     * of the buffer, without decoding the frame to a String first. The buffer's
+     * position is left unchanged.
+     * <p>
+     * If the buffer is backed by an array the event keeps a reference to it
+     * until its data has been read, so the caller must hand the buffer over
+     * rather than reuse it.
+     */
+    public static PusherEvent fromJson(ByteBuffer utf8, SymbolTable symbols) {
+        return fromJson(utf8, symbols, null);
+    }
+
+    /**
+     * Parses an event as {@link #fromJson(String, SymbolTable)} does, but into
+     * the given event if it is borrowed rather than into a new one.
+     *
+     * @param reuse An event from {@link #newBorrowed()}, or null.
+     */
+    public static PusherEvent fromJson(String json, SymbolTable symbols, PusherEvent reuse) {
+        return EnvelopeParser.parse(json, symbols, borrowable(reuse));
+    }
+
+    /**
+     * Parses an event as {@link #fromJson(ByteBuffer, SymbolTable)} does, but
+     * into the given event if it is borrowed rather than into a new one.
+     *
+     * @param reuse An event from {@link #newBorrowed()}, or null.
+     */
+    public static PusherEvent fromJson(ByteBuffer utf8, SymbolTable symbols, PusherEvent reuse) {
+        if (utf8 == null) {
+            throw new JsonSyntaxException("Cannot parse a null frame");
+        }
+        if (utf8.hasArray()) {
+            return EnvelopeParser.parse(
+                    utf8.array(),
+                    utf8.arrayOffset() + utf8.position(),
+                    utf8.remaining(),
+                    symbols,
+                    borrowable(reuse)
+            );
+        }
+        final byte[] copy = new byte[utf8.remaining()];
+        utf8.duplicate().get(copy);
+        return EnvelopeParser.parse(copy, 0, copy.length, symbols, borrowable(reuse));
+    }
+
+    private static PusherEvent borrowable(final PusherEvent reuse) {
+        return reuse != null && reuse.borrowed ? reuse : null;
+    }
+
+    private boolean hasRawData() {
+        return rawDataStart >= 0;
+    }
+
+    private String decodeRawData() {
+        if (rawUtf8 != null && rawUtf8[rawDataStart] == '"') {
+            final String literal = getRawData();
+            return JsonScanner.unescape(literal, 0, literal.length());
+        }
+        if (rawJson != null && rawJson.charAt(rawDataStart) == '"') {
+            return JsonScanner.unescape(rawJson, rawDataStart, rawDataEnd);
+        }
+        final JsonElement element = JsonParser.parseString(getRawData());
+        if (element.isJsonPrimitive()) {
+            return element.getAsString();
+        }
+        return DATA_GSON.toJson(element);
+    }
+
+    private JsonElement getDataElement() {
+        if (hasRawData()) {
+            return JsonParser.parseString(getRawData());
+        }
+        return data != null ? new JsonPrimitive(data) : JsonNull.INSTANCE;
+    }
+
+    private String getRawFrame() {
+        if (rawUtf8 != null) {
+            return new String(rawUtf8, rawFrameStart, rawFrameEnd - rawFrameStart, StandardCharsets.UTF_8);
+        }
+        return rawJson.substring(rawFrameStart, rawFrameEnd);
+    }
+
+
+    private static String getAsString(final JsonObject jsonObject, final String key) {
+        final JsonElement element = jsonObject.get(key);
+        return element != null && !element.isJsonNull() ? element.getAsString() : null;
     }
 }
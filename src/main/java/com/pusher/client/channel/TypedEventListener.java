@@ -0,0 +1,44 @@
+package com.pusher.client.channel;
+
+/**
+ * Client applications can implement this interface if they want to be
+ * notified when events are received on a channel with the event data already
+ * decoded into an instance of their own type.
+ *
+ * <p>
+ * To bind your implementation of this interface to a channel, call
+ * {@link Channel#bind(String, Class, TypedEventListener)}.
+ * </p>
+ *
+ * <p>
+ * The data of an event is decoded at most once per type, no matter how many
+ * listeners are bound to it. The same decoded instance is passed to every
+ * listener bound with that type, so it must be treated as immutable.
+ * </p>
+ *
+ * @param <T> The type into which the event data is decoded.
+ */
+public interface TypedEventListener<T> {
+    /**
+     * Callback that is fired whenever an event that this
+     * {@linkplain TypedEventListener} has been bound to is received.
+     *
+     * @param event A PusherEvent object which exposes the whole event.
+     *              See {@linkplain PusherEvent} for more.
+     * @param data  The event data decoded into the bound type. This instance is
+     *              shared with other listeners and must not be modified.
+     */
+    void onEvent(PusherEvent event, T data);
+
+    /**
+     * Callback that is fired whenever an unexpected error occurs processing
+     * for this {@linkplain TypedEventListener}, for example if the event data
+     * could not be decoded into the bound type.
+     *
+     * @param message A description of the problem.
+     * @param e       An associated exception, if available.
+     */
+    default void onError(String message, Exception e) {
+        // No-op
+    }
+}
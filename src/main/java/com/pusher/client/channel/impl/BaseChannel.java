@@ -1,37 +1,60 @@
 package com.pusher.client.channel.impl;
 
-import com.google.gson.Gson;
+import com.pusher.client.EnvelopeCodec;
+import com.pusher.client.channel.BatchSubscriptionEventListener;
+import com.pusher.client.channel.BorrowedEventListener;
 import com.pusher.client.channel.ChannelEventListener;
 import com.pusher.client.channel.ChannelState;
+import com.pusher.client.channel.ConflatingEventListener;
 import com.pusher.client.channel.PusherEvent;
 import com.pusher.client.channel.SubscriptionEventListener;
-import com.pusher.client.channel.impl.message.SubscribeMessage;
-import com.pusher.client.channel.impl.message.SubscriptionCountData;
-import com.pusher.client.channel.impl.message.UnsubscribeMessage;
+import com.pusher.client.channel.TypedEventListener;
+import com.pusher.client.message.SubscribeMessage;
+import com.pusher.client.message.SubscriptionCountData;
+import com.pusher.client.message.UnsubscribeMessage;
 import com.pusher.client.util.Factory;
+import com.pusher.client.util.SymbolTable;
 
+import java.io.IOException;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public abstract class BaseChannel implements InternalChannel {
 
-    protected final Gson GSON = new Gson();
+    private static final Logger log = Logger.getLogger(BaseChannel.class.getName());
     private static final String INTERNAL_EVENT_PREFIX = "pusher_internal:";
-    protected static final String SUBSCRIPTION_SUCCESS_EVENT = "pusher_internal:subscription_succeeded";
-    protected static final String SUBSCRIPTION_COUNT_EVENT = "pusher_internal:subscription_count";
     protected static final String PUBLIC_SUBSCRIPTION_COUNT_EVENT = "pusher:subscription_count";
-    private final Set<SubscriptionEventListener> globalListeners = new HashSet<>();
-    private final Map<String, Set<SubscriptionEventListener>> eventNameToListenerMap = new HashMap<>();
+    private static final int NO_SUBSCRIPTION_COUNT = -1;
+    private static final AtomicReferenceFieldUpdater<BaseChannel, ListenerRegistry> LISTENERS =
+            AtomicReferenceFieldUpdater.newUpdater(BaseChannel.class, ListenerRegistry.class, "listeners");
+
+    // Channels are held by the thousand, so a channel allocates nothing beyond
+    // itself until a listener is bound: the registry starts out as the shared
+    // empty instance and is replaced, never mutated, as listeners come and go.
+    private volatile ListenerRegistry listeners = ListenerRegistry.EMPTY;
     protected volatile ChannelState state = ChannelState.INITIAL;
     private ChannelEventListener eventListener;
     private final Factory factory;
-    private final Object lock = new Object();
-    private Integer subscriptionCount;
+    protected final EnvelopeCodec codec;
+    private final SymbolTable symbols;
+    private final boolean inlineDispatch;
+    private final boolean laneDispatch;
+    private int subscriptionCount = NO_SUBSCRIPTION_COUNT;
+    // only created, on the event thread, once a conflating listener gets an event
+    private volatile Conflation conflation;
+    // likewise for a batch listener
+    private Batching batching;
 
     public BaseChannel(final Factory factory) {
         this.factory = factory;
+        this.codec = factory.getEnvelopeCodec();
+        this.symbols = factory.getSymbolTable();
+        this.inlineDispatch = factory.isInlineDispatch();
+        this.laneDispatch = factory.isLaneDispatch();
     }
 
     /* Channel implementation */
@@ -41,56 +64,53 @@ public abstract class BaseChannel implements InternalChannel {
 
     @Override
     public Integer getCount() {
-        return subscriptionCount;
+        final int count = subscriptionCount;
+        return count != NO_SUBSCRIPTION_COUNT ? count : null;
     }
 
     @Override
     public void bind(final String eventName, final SubscriptionEventListener listener) {
         validateArguments(eventName, listener);
+        addListener(eventName, listener);
+    }
 
-        synchronized (lock) {
-            Set<SubscriptionEventListener> listeners = eventNameToListenerMap.get(eventName);
-            if (listeners == null) {
-                listeners = new HashSet<>();
-                eventNameToListenerMap.put(eventName, listeners);
-            }
-            listeners.add(listener);
+    @Override
+    public <T> void bind(final String eventName, final Class<T> type, final TypedEventListener<T> listener) {
+        if (type == null) {
+            throw new IllegalArgumentException("Cannot bind to channel " + getName() + " with a null type");
         }
+        validateArguments(eventName, listener);
+        addListener(eventName, new TypedSubscriptionEventListener<>(type, listener));
     }
 
     @Override
     public void bindGlobal(SubscriptionEventListener listener) {
         validateArguments("", listener);
-
-        synchronized (lock) {
-            globalListeners.add(listener);
-        }
+        updateListeners(registry -> registry.bindGlobal(listener));
     }
 
     @Override
     public void unbind(String eventName, SubscriptionEventListener listener) {
         validateArguments(eventName, listener);
+        removeListener(eventName, listener);
+    }
 
-        synchronized (lock) {
-            final Set<SubscriptionEventListener> listeners = eventNameToListenerMap.get(eventName);
-            if (listeners != null) {
-                listeners.remove(listener);
-                if (listeners.isEmpty()) {
-                    eventNameToListenerMap.remove(eventName);
-                }
-            }
-        }
+    @Override
+    public <T> void unbind(final String eventName, final Class<T> type, final TypedEventListener<T> listener) {
+        validateArguments(eventName, listener);
+        removeListener(eventName, new TypedSubscriptionEventListener<>(type, listener));
     }
 
     @Override
     public void unbindGlobal(SubscriptionEventListener listener) {
         validateArguments("", listener);
+        updateListeners(registry -> registry.unbindGlobal(listener));
+    }
 
-        synchronized (lock) {
-            if (globalListeners != null) {
-                globalListeners.remove(listener);
-            }
-        }
+    @Override
+    public long getConflatedCount() {
+        final Conflation conflation = this.conflation;
+        return conflation != null ? conflation.getConflatedCount() : 0;
     }
 
     @Override
@@ -102,31 +122,103 @@ public abstract class BaseChannel implements InternalChannel {
 
     @Override
     public String toSubscribeMessage() {
-        return GSON.toJson(new SubscribeMessage(getName()));
+        return codec.encode(new SubscribeMessage(getName()));
     }
 
     @Override
     public String toUnsubscribeMessage() {
-        return GSON.toJson(new UnsubscribeMessage(getName()));
+        return codec.encode(new UnsubscribeMessage(getName()));
     }
 
     public void emit(PusherEvent pusherEvent) {
-        final Set<SubscriptionEventListener> listeners = getInterestedListeners(pusherEvent.getEventName());
+        final SubscriptionEventListener[] listeners = getInterestedListeners(pusherEvent.getEventName());
         if (listeners != null) {
+            // typed listeners share one decoded instance per type
+            Map<Class<?>, Object> decodedByType = null;
+            // other listeners may keep the event, they share one copy of a borrowed one
+            PusherEvent retained = null;
             for (final SubscriptionEventListener listener : listeners) {
-                factory.queueOnEventThread(() -> listener.onEvent(pusherEvent));
+                if (listener instanceof BorrowedEventListener) {
+                    lend(listener, pusherEvent);
+                    continue;
+                }
+                if (retained == null) {
+                    retained = pusherEvent.copy();
+                }
+                final PusherEvent event = retained;
+                if (listener instanceof TypedSubscriptionEventListener) {
+                    final TypedSubscriptionEventListener<?> typedListener = (TypedSubscriptionEventListener<?>) listener;
+                    if (decodedByType == null) {
+                        decodedByType = new HashMap<>();
+                    }
+                    try {
+                        final Object data = decode(decodedByType, typedListener, event);
+                        dispatch(typedListener, () -> typedListener.deliver(event, data));
+                    } catch (final IOException | RuntimeException e) {
+                        final String message = "Unable to decode data of event " + event.getEventName() +
+                                " as " + typedListener.getType().getName();
+                        dispatch(typedListener, () -> typedListener.onError(message, e));
+                    }
+                } else if (listener instanceof ConflatingEventListener) {
+                    final Runnable delivery = conflation().offer((ConflatingEventListener) listener, event);
+                    if (delivery != null) {
+                        dispatch(listener, delivery);
+                    }
+                } else if (listener instanceof BatchSubscriptionEventListener) {
+                    final Runnable delivery = batching().offer((BatchSubscriptionEventListener) listener, event);
+                    if (delivery != null) {
+                        dispatch(listener, delivery);
+                    }
+                } else if (inlineDispatch) {
+                    lend(listener, event);
+                } else {
+                    dispatch(listener, () -> listener.onEvent(event));
+                }
             }
         }
     }
 
+    private Conflation conflation() {
+        if (conflation == null) {
+            conflation = new Conflation();
+        }
+        return conflation;
+    }
+
+    private Batching batching() {
+        if (batching == null) {
+            batching = new Batching(factory::getTimers, call -> factory.queueOnChannelThread(getName(), call));
+        }
+        return batching;
+    }
+
+    private static void lend(final SubscriptionEventListener listener, final PusherEvent event) {
+        try {
+            listener.onEvent(event);
+        } catch (final RuntimeException e) {
+            reportFailure(listener, "Listener failed handling event " + event.getEventName(), e);
+        }
+    }
+
+    private static void reportFailure(final SubscriptionEventListener listener, final String message, final Exception e) {
+        try {
+            listener.onError(message, e);
+        } catch (final RuntimeException onErrorFailure) {
+            log.log(Level.WARNING, "Listener failed handling its own error: " + message, onErrorFailure);
+        }
+    }
+
     @Override
     public void handleEvent(PusherEvent event) {
-        if (event.getEventName().equals(SUBSCRIPTION_SUCCESS_EVENT)) {
-            updateState(ChannelState.SUBSCRIBED);
-        } else if (event.getEventName().equals(SUBSCRIPTION_COUNT_EVENT)) {
-            handleSubscriptionCountEvent(event);
-        } else {
-            emit(event);
+        switch (event.getKind()) {
+            case SUBSCRIPTION_SUCCEEDED:
+                updateState(ChannelState.SUBSCRIBED);
+                break;
+            case SUBSCRIPTION_COUNT:
+                handleSubscriptionCountEvent(event);
+                break;
+            default:
+                emit(event);
         }
     }
 
@@ -135,7 +227,8 @@ public abstract class BaseChannel implements InternalChannel {
         this.state = state;
 
         if (state == ChannelState.SUBSCRIBED && eventListener != null) {
-            factory.queueOnEventThread(() -> eventListener.onSubscriptionSucceeded(getName()));
+            final ChannelEventListener listener = eventListener;
+            dispatch(listener, () -> listener.onSubscriptionSucceeded(getName()));
         }
     }
 
@@ -163,7 +256,7 @@ public abstract class BaseChannel implements InternalChannel {
         return String.format("[Channel: name=%s]", getName());
     }
 
-    private void validateArguments(final String eventName, final SubscriptionEventListener listener) {
+    private void validateArguments(final String eventName, final Object listener) {
         if (eventName == null) {
             throw new IllegalArgumentException("Cannot bind or unbind to channel " + getName() + " with a null event name");
         }
@@ -179,8 +272,40 @@ public abstract class BaseChannel implements InternalChannel {
         }
     }
 
+    private void addListener(final String eventName, final SubscriptionEventListener listener) {
+        final String symbol = symbols.intern(eventName);
+        updateListeners(registry -> registry.bind(symbol, listener));
+    }
+
+    private void removeListener(final String eventName, final SubscriptionEventListener listener) {
+        updateListeners(registry -> registry.unbind(eventName, listener));
+    }
+
+    private void updateListeners(final UnaryOperator<ListenerRegistry> update) {
+        while (true) {
+            final ListenerRegistry current = listeners;
+            final ListenerRegistry next = update.apply(current);
+            if (next == current || LISTENERS.compareAndSet(this, current, next.isEmpty() ? ListenerRegistry.EMPTY : next)) {
+                return;
+            }
+        }
+    }
+
+    private static Object decode(
+            final Map<Class<?>, Object> decodedByType,
+            final TypedSubscriptionEventListener<?> listener,
+            final PusherEvent event
+    ) throws IOException {
+        if (decodedByType.containsKey(listener.getType())) {
+            return decodedByType.get(listener.getType());
+        }
+        final Object data = listener.decode(event);
+        decodedByType.put(listener.getType(), data);
+        return data;
+    }
+
     private void handleSubscriptionCountEvent(final PusherEvent event) {
-        final SubscriptionCountData subscriptionCountMessage = GSON.fromJson(event.getData(), SubscriptionCountData.class);
+        final SubscriptionCountData subscriptionCountMessage = codec.decode(event.getData(), SubscriptionCountData.class);
         subscriptionCount = subscriptionCountMessage.getCount();
         final PusherEvent publicEvent = new PusherEvent(
                 PUBLIC_SUBSCRIPTION_COUNT_EVENT,
@@ -191,24 +316,47 @@ public abstract class BaseChannel implements InternalChannel {
         emit(publicEvent);
     }
 
-    protected Set<SubscriptionEventListener> getInterestedListeners(String event) {
-        synchronized (lock) {
-            Set<SubscriptionEventListener> listeners = new HashSet<>();
-
-            final Set<SubscriptionEventListener> sharedListeners = eventNameToListenerMap.get(event);
-
-            if (sharedListeners != null) {
-                listeners.addAll(sharedListeners);
-            }
-            if (!globalListeners.isEmpty()) {
-                listeners.addAll(globalListeners);
-            }
-
-            if (listeners.isEmpty()) {
-                return null;
-            }
+    /**
+     * Queues a call to a listener of this channel, behind the calls already
+     * queued for it, or with inline dispatch makes the call straight away.
+     * Only to be called on the event thread. A call made inline which throws
+     * is reported to the listener's onError, so that it cannot break off the
+     * routing of the event to the other listeners.
+     *
+     * @see com.pusher.client.PusherOptions#setInlineDispatch(boolean)
+     */
+    protected void dispatch(final SubscriptionEventListener listener, final Runnable call) {
+        if (!inlineDispatch) {
+            factory.queueOnChannelThread(getName(), call);
+            return;
+        }
+        try {
+            call.run();
+        } catch (final RuntimeException e) {
+            reportFailure(listener, "Listener of channel " + getName() + " failed", e);
+        }
+    }
 
-            return listeners;
+    /**
+     * Makes a call which is part of routing an event, such as a presence
+     * member callback, straight away while listeners are called on the event
+     * thread, so that it comes before the calls queued for the event, and
+     * otherwise queues it like any other call to keep the channel's order on
+     * its lane.
+     */
+    protected void dispatchOrCall(final SubscriptionEventListener listener, final Runnable call) {
+        if (laneDispatch) {
+            dispatch(listener, call);
+        } else {
+            call.run();
         }
     }
+
+    /**
+     * @return The listeners bound to the event and the global listeners, or
+     * null if there are none. The array is shared and must not be modified.
+     */
+    protected SubscriptionEventListener[] getInterestedListeners(String event) {
+        return listeners.getInterestedListeners(event);
+    }
 }
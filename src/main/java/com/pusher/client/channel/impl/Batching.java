@@ -0,0 +1,119 @@
+package com.pusher.client.channel.impl;
+
+import com.pusher.client.channel.BatchSubscriptionEventListener;
+import com.pusher.client.channel.PusherEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The events of a channel which are waiting for its batch listeners. Created
+ * on the first event for a batch listener, so that other channels do not pay
+ * for it.
+ */
+final class Batching {
+
+    private final Map<BatchSubscriptionEventListener, Batch> batches = new HashMap<>();
+    private final Supplier<ScheduledExecutorService> timers;
+    private final Consumer<Runnable> queue;
+
+    /**
+     * @param timers To delay batches which linger.
+     * @param queue  Queues a batch on the channel's thread once it has lingered.
+     */
+    Batching(final Supplier<ScheduledExecutorService> timers, final Consumer<Runnable> queue) {
+        this.timers = timers;
+        this.queue = queue;
+    }
+
+    /**
+     * @return A delivery of the listener's batch to queue, or null if the
+     * event joined a batch which is already queued or which is lingering.
+     */
+    Runnable offer(final BatchSubscriptionEventListener listener, final PusherEvent event) {
+        synchronized (this) {
+            final Batch batch = batches.computeIfAbsent(listener, Batch::new);
+            batch.events.add(event);
+            if (batch.queued) {
+                return null;
+            }
+            final long linger = listener.getLingerMillis();
+            if (linger > 0 && batch.events.size() < listener.getMaxBatchSize()) {
+                if (batch.lingering == null) {
+                    batch.lingering = timers.get().schedule(batch::lingered, linger, TimeUnit.MILLISECONDS);
+                }
+                return null;
+            }
+            if (batch.lingering != null) {
+                batch.lingering.cancel(false);
+                batch.lingering = null;
+            }
+            batch.queued = true;
+            return batch;
+        }
+    }
+
+    private final class Batch implements Runnable {
+
+        private final BatchSubscriptionEventListener listener;
+        // all guarded by the batching
+        private List<PusherEvent> events = new ArrayList<>();
+        private boolean queued;
+        private Future<?> lingering;
+
+        Batch(final BatchSubscriptionEventListener listener) {
+            this.listener = listener;
+        }
+
+        void lingered() {
+            synchronized (Batching.this) {
+                lingering = null;
+                if (queued || events.isEmpty()) {
+                    return;
+                }
+                queued = true;
+            }
+            queue.accept(this);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                final List<PusherEvent> batch;
+                synchronized (Batching.this) {
+                    if (events.isEmpty()) {
+                        queued = false;
+                        // forget a listener which has been unbound
+                        batches.remove(listener);
+                        return;
+                    }
+                    final int max = Math.max(1, listener.getMaxBatchSize());
+                    if (events.size() <= max) {
+                        batch = events;
+                        events = new ArrayList<>();
+                    } else {
+                        final List<PusherEvent> head = events.subList(0, max);
+                        batch = new ArrayList<>(head);
+                        head.clear();
+                    }
+                }
+                try {
+                    listener.onEvents(batch);
+                } catch (final RuntimeException e) {
+                    // the events left are delivered along with the next one
+                    synchronized (Batching.this) {
+                        queued = false;
+                    }
+                    throw e;
+                }
+            }
+        }
+    }
+}
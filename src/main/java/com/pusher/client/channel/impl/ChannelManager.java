@@ -13,8 +13,13 @@ import com.pusher.client.connection.ConnectionEventListener;
 import com.pusher.client.connection.ConnectionState;
 import com.pusher.client.connection.ConnectionStateChange;
 import com.pusher.client.connection.impl.InternalConnection;
+import com.pusher.client.connection.impl.SharedInternalConnection;
 import com.pusher.client.util.Factory;
+import com.pusher.client.util.SymbolTable;
+import com.pusher.client.util.internal.ConsistentHashRing;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -23,10 +28,17 @@ public class ChannelManager implements ConnectionEventListener {
     private final Map<String, InternalChannel> channelNameToChannelMap = new ConcurrentHashMap<>();
 
     private final Factory factory;
+    private final SymbolTable symbols;
     private InternalConnection connection;
+    // Only set when the channels are spread over several connections: the
+    // shards which take channels, and the shard each channel is subscribed on.
+    // Both are changed on the event thread alone.
+    private volatile ConsistentHashRing<InternalConnection> shards;
+    private final Map<String, InternalConnection> subscribedShards = new ConcurrentHashMap<>();
 
     public ChannelManager(final Factory factory) {
         this.factory = factory;
+        this.symbols = factory.getSymbolTable();
     }
 
     public Channel getChannel(String channelName) {
@@ -79,9 +91,50 @@ public class ChannelManager implements ConnectionEventListener {
         connection.bind(ConnectionState.CONNECTED, this);
     }
 
+    /**
+     * Spreads the channels over several connections, each channel going to
+     * the shard its name hashes to. When a shard drops, whether it goes on to
+     * reconnect or not, while another is connected its channels are
+     * subscribed on the shards left, and when it connects again they move
+     * back to it.
+     *
+     * @param connections The shards, the first of which is the client's own
+     *                    connection.
+     */
+    public void setConnections(final InternalConnection... connections) {
+        if (connections == null || connections.length == 0) {
+            throw new IllegalArgumentException("Cannot construct ChannelManager without a connection");
+        }
+        if (connections.length == 1) {
+            setConnection(connections[0]);
+            return;
+        }
+        for (final InternalConnection shard : connections) {
+            if (shard == null) {
+                throw new IllegalArgumentException("Cannot construct ChannelManager with a null connection");
+            }
+        }
+
+        connection = connections[0];
+        shards = new ConsistentHashRing<>(Arrays.asList(connections));
+        for (int i = 0; i < connections.length; i++) {
+            connections[i].bind(ConnectionState.ALL, new ShardListener(i));
+        }
+    }
+
+    /**
+     * @return The connection for a private channel to authorize and trigger
+     * client events on. When sharded that is a view which follows the channel
+     * from shard to shard.
+     */
+    public InternalConnection getChannelConnection(final String channelName) {
+        return shards != null ? new ShardedChannelConnection(this, channelName) : connection;
+    }
+
     public void subscribeTo(final InternalChannel channel, final ChannelEventListener listener, final String... eventNames) {
         validateArgumentsAndBindEvents(channel, listener, eventNames);
-        channelNameToChannelMap.put(channel.getName(), channel);
+        // keyed by the interned name, so events parsed against the symbol table hit on identity
+        channelNameToChannelMap.put(symbols.intern(channel.getName()), channel);
         sendOrQueueSubscribeMessage(channel);
     }
 
@@ -94,8 +147,19 @@ public class ChannelManager implements ConnectionEventListener {
         if (channel == null) {
             return;
         }
-        if (connection.getState() == ConnectionState.CONNECTED) {
+        if (shards != null) {
+            factory.queueOnEventThread(() -> {
+                final InternalConnection shard = subscribedShards.remove(channelName);
+                if (shard != null && shard.getState() == ConnectionState.CONNECTED) {
+                    shard.sendMessage(channel.toUnsubscribeMessage());
+                    channel.updateState(ChannelState.UNSUBSCRIBED);
+                }
+                factory.releaseChannelThread(channelName);
+            });
+        } else if (connection.getState() == ConnectionState.CONNECTED) {
             sendUnsubscribeMessage(channel);
+        } else {
+            factory.releaseChannelThread(channelName);
         }
     }
 
@@ -127,33 +191,116 @@ public class ChannelManager implements ConnectionEventListener {
 
     /* implementation detail */
 
+    /**
+     * @return The connection the channel is routed to.
+     */
+    InternalConnection connectionFor(final String channelName) {
+        final ConsistentHashRing<InternalConnection> ring = shards;
+        return ring != null ? ring.get(channelName) : connection;
+    }
+
+    /**
+     * @return All shards, or just the connection when not sharded.
+     */
+    List<InternalConnection> getConnections() {
+        final ConsistentHashRing<InternalConnection> ring = shards;
+        return ring != null ? ring.getNodes() : Arrays.asList(connection);
+    }
+
     private void sendOrQueueSubscribeMessage(final InternalChannel channel) {
-        factory.queueOnEventThread(() -> {
-            if (connection.getState() == ConnectionState.CONNECTED) {
-                try {
-                    final String message = channel.toSubscribeMessage();
-                    connection.sendMessage(message);
-                    channel.updateState(ChannelState.SUBSCRIBE_SENT);
-                } catch (final AuthorizationFailureException e) {
-                    handleAuthenticationFailure(channel, e);
+        factory.queueOnEventThread(() -> subscribe(channel));
+    }
+
+    private void subscribe(final InternalChannel channel) {
+        final InternalConnection shard = connectionFor(channel.getName());
+        if (shard.getState() == ConnectionState.CONNECTED) {
+            try {
+                final String message = channel.toSubscribeMessage();
+                // before sending, a shared connection may answer at once
+                channel.updateState(ChannelState.SUBSCRIBE_SENT);
+                sendSubscribeMessage(shard, channel.getName(), message);
+                if (shards != null) {
+                    subscribedShards.put(channel.getName(), shard);
                 }
+            } catch (final AuthorizationFailureException e) {
+                handleAuthenticationFailure(channel, e);
             }
-        });
+        }
+    }
+
+    private void shardConnected(final int index) {
+        shards = shards.with(index);
+        final InternalConnection shard = shards.getNodes().get(index);
+        for (final InternalChannel channel : channelNameToChannelMap.values()) {
+            if (connectionFor(channel.getName()) != shard) {
+                continue;
+            }
+            // leave the shard which stood in while this one was down
+            final InternalConnection standIn = subscribedShards.get(channel.getName());
+            if (standIn != null && standIn != shard && standIn.getState() == ConnectionState.CONNECTED) {
+                standIn.sendMessage(channel.toUnsubscribeMessage());
+            }
+            subscribe(channel);
+        }
+    }
+
+    private void shardDisconnected(final int index) {
+        final ConsistentHashRing<InternalConnection> ring = shards;
+        final InternalConnection shard = ring.getNodes().get(index);
+        if (!ring.contains(index) || !anyConnected(ring, shard)) {
+            // the channels wait for the shard to connect again
+            return;
+        }
+        shards = ring.without(index);
+        for (final InternalChannel channel : channelNameToChannelMap.values()) {
+            if (ring.get(channel.getName()) == shard) {
+                subscribedShards.remove(channel.getName());
+                subscribe(channel);
+            }
+        }
+    }
+
+    private static boolean anyConnected(final ConsistentHashRing<InternalConnection> ring, final InternalConnection except) {
+        for (final InternalConnection shard : ring.getNodes()) {
+            if (shard != except && shard.getState() == ConnectionState.CONNECTED) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private void sendUnsubscribeMessage(final InternalChannel channel) {
         factory.queueOnEventThread(() -> {
-            connection.sendMessage(channel.toUnsubscribeMessage());
+            sendUnsubscribeMessage(connection, channel.getName(), channel.toUnsubscribeMessage());
             channel.updateState(ChannelState.UNSUBSCRIBED);
+            // after the calls the state change queued for the channel's listeners
+            factory.releaseChannelThread(channel.getName());
         });
     }
 
+    private static void sendSubscribeMessage(final InternalConnection connection, final String channelName, final String message) {
+        if (connection instanceof SharedInternalConnection) {
+            ((SharedInternalConnection) connection).subscribe(channelName, message);
+        } else {
+            connection.sendMessage(message);
+        }
+    }
+
+    private static void sendUnsubscribeMessage(final InternalConnection connection, final String channelName, final String message) {
+        if (connection instanceof SharedInternalConnection) {
+            ((SharedInternalConnection) connection).unsubscribe(channelName, message);
+        } else {
+            connection.sendMessage(message);
+        }
+    }
+
     private void handleAuthenticationFailure(final InternalChannel channel, final Exception e) {
         channelNameToChannelMap.remove(channel.getName());
+        subscribedShards.remove(channel.getName());
         channel.updateState(ChannelState.FAILED);
 
         if (channel.getEventListener() != null) {
-            factory.queueOnEventThread(() -> {
+            factory.queueOnChannelThread(channel.getName(), () -> {
                 // Note: this cast is safe because an
                 // AuthorizationFailureException will never be thrown
                 // when subscribing to a non-private channel
@@ -177,10 +324,47 @@ public class ChannelManager implements ConnectionEventListener {
             throw new IllegalArgumentException("Already subscribed to a channel with name " + channel.getName());
         }
 
+        if (connection instanceof SharedInternalConnection &&
+                !((SharedInternalConnection) connection).canSubscribe(channel.getName())) {
+            throw new IllegalArgumentException(
+                    "Channel " + channel.getName() + " is held by another client sharing the connection"
+            );
+        }
+
         for (final String eventName : eventNames) {
             channel.bind(eventName, listener);
         }
 
         channel.setEventListener(listener);
     }
+
+    /**
+     * Moves channels between shards as they come and go. The state changes
+     * of each shard arrive on its own event thread and are handed over to
+     * the client's, which makes all changes to the routing.
+     */
+    private class ShardListener implements ConnectionEventListener {
+
+        private final int index;
+
+        ShardListener(final int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void onConnectionStateChange(final ConnectionStateChange change) {
+            if (change.getCurrentState() == ConnectionState.CONNECTED) {
+                factory.queueOnEventThread(() -> shardConnected(index));
+            } else if (change.getPreviousState() == ConnectionState.CONNECTED ||
+                    change.getCurrentState() == ConnectionState.DISCONNECTED) {
+                // a shard which is reconnecting delivers nothing meanwhile
+                factory.queueOnEventThread(() -> shardDisconnected(index));
+            }
+        }
+
+        @Override
+        public void onError(final String message, final String code, final Exception e) {
+            // the shard reports its own errors
+        }
+    }
 }
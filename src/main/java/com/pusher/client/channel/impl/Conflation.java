@@ -0,0 +1,74 @@
+package com.pusher.client.channel.impl;
+
+import com.pusher.client.channel.ConflatingEventListener;
+import com.pusher.client.channel.PusherEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The events of a channel which are waiting for its conflating listeners, at
+ * most one per listener and key. Created on the first event for a conflating
+ * listener, so that other channels do not pay for it.
+ */
+final class Conflation {
+
+    private final Map<ConflatingEventListener, Map<String, Delivery>> pending = new HashMap<>();
+    private volatile long conflated;
+
+    /**
+     * @return A delivery of the event to queue for the listener, or null if
+     * the event replaced one which is already queued.
+     */
+    Runnable offer(final ConflatingEventListener listener, final PusherEvent event) {
+        final String key = listener.getConflationKey(event);
+        if (key == null) {
+            return () -> listener.onEvent(event);
+        }
+        synchronized (this) {
+            final Map<String, Delivery> byKey = pending.computeIfAbsent(listener, l -> new HashMap<>());
+            final Delivery queued = byKey.get(key);
+            if (queued != null) {
+                queued.event = event;
+                conflated++;
+                return null;
+            }
+            final Delivery delivery = new Delivery(listener, key, event);
+            byKey.put(key, delivery);
+            return delivery;
+        }
+    }
+
+    long getConflatedCount() {
+        return conflated;
+    }
+
+    private final class Delivery implements Runnable {
+
+        private final ConflatingEventListener listener;
+        private final String key;
+        // guarded by the conflation
+        private PusherEvent event;
+
+        Delivery(final ConflatingEventListener listener, final String key, final PusherEvent event) {
+            this.listener = listener;
+            this.key = key;
+            this.event = event;
+        }
+
+        @Override
+        public void run() {
+            final PusherEvent latest;
+            synchronized (Conflation.this) {
+                // an event routed from here on needs a delivery of its own
+                final Map<String, Delivery> byKey = pending.get(listener);
+                byKey.remove(key);
+                if (byKey.isEmpty()) {
+                    pending.remove(listener);
+                }
+                latest = event;
+            }
+            listener.onEvent(latest);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.pusher.client.channel.impl;
+
+import com.pusher.client.channel.SubscriptionEventListener;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the listeners bound to a channel, kept in flat
+ * arrays so that a channel costs a handful of objects once listeners are
+ * bound and none at all before.
+ * <p>
+ * Event names are found by a linear scan, which is the fastest option for
+ * the few event names a channel usually has. Once a channel has more than
+ * {@link #LINEAR_SCAN_LIMIT} event names an index is built alongside the
+ * arrays. Binding and unbinding return a new snapshot, so the arrays handed
+ * out by {@link #getInterestedListeners(String)} never change and can be
+ * iterated without holding a lock. They must not be modified.
+ * <p>
+ * The listeners of each event name are merged with the global listeners as
+ * the snapshot is built, so looking up the listeners of an event allocates
+ * nothing: binds are rare, events are not.
+ */
+final class ListenerRegistry {
+
+    static final int LINEAR_SCAN_LIMIT = 8;
+
+    private static final String[] NO_EVENT_NAMES = new String[0];
+    private static final SubscriptionEventListener[] NO_LISTENERS = new SubscriptionEventListener[0];
+    private static final SubscriptionEventListener[][] NO_EVENT_LISTENERS = new SubscriptionEventListener[0][];
+
+    static final ListenerRegistry EMPTY = new ListenerRegistry(NO_LISTENERS, NO_EVENT_NAMES, NO_EVENT_LISTENERS);
+
+    private final SubscriptionEventListener[] globalListeners;
+    private final String[] eventNames;
+    private final SubscriptionEventListener[][] eventListeners;
+    // eventListeners merged with globalListeners, the same arrays if there
+    // are no global listeners
+    private final SubscriptionEventListener[][] interestedListeners;
+    private final Map<String, Integer> eventIndex;
+
+    private ListenerRegistry(
+            final SubscriptionEventListener[] globalListeners,
+            final String[] eventNames,
+            final SubscriptionEventListener[][] eventListeners
+    ) {
+        this.globalListeners = globalListeners;
+        this.eventNames = eventNames;
+        this.eventListeners = eventListeners;
+        this.interestedListeners = merge(eventListeners, globalListeners);
+        this.eventIndex = eventNames.length > LINEAR_SCAN_LIMIT ? index(eventNames) : null;
+    }
+
+    boolean isEmpty() {
+        return globalListeners.length == 0 && eventNames.length == 0;
+    }
+
+    /**
+     * @return The listeners bound to the event followed by the global listeners
+     * which are not also bound to it, or null if there are none.
+     */
+    SubscriptionEventListener[] getInterestedListeners(final String eventName) {
+        final int i = indexOf(eventName);
+        if (i >= 0) {
+            return interestedListeners[i];
+        }
+        return globalListeners.length > 0 ? globalListeners : null;
+    }
+
+    ListenerRegistry bindGlobal(final SubscriptionEventListener listener) {
+        if (indexOf(globalListeners, listener) >= 0) {
+            return this;
+        }
+        return new ListenerRegistry(add(globalListeners, listener), eventNames, eventListeners);
+    }
+
+    ListenerRegistry unbindGlobal(final SubscriptionEventListener listener) {
+        final int i = indexOf(globalListeners, listener);
+        if (i < 0) {
+            return this;
+        }
+        return new ListenerRegistry(remove(globalListeners, i), eventNames, eventListeners);
+    }
+
+    ListenerRegistry bind(final String eventName, final SubscriptionEventListener listener) {
+        final int i = indexOf(eventName);
+        if (i < 0) {
+            final String[] names = Arrays.copyOf(eventNames, eventNames.length + 1);
+            names[eventNames.length] = eventName;
+            final SubscriptionEventListener[][] listeners = Arrays.copyOf(eventListeners, eventListeners.length + 1);
+            listeners[eventListeners.length] = new SubscriptionEventListener[]{listener};
+            return new ListenerRegistry(globalListeners, names, listeners);
+        }
+        if (indexOf(eventListeners[i], listener) >= 0) {
+            return this;
+        }
+        final SubscriptionEventListener[][] listeners = eventListeners.clone();
+        listeners[i] = add(eventListeners[i], listener);
+        return new ListenerRegistry(globalListeners, eventNames, listeners);
+    }
+
+    ListenerRegistry unbind(final String eventName, final SubscriptionEventListener listener) {
+        final int i = indexOf(eventName);
+        if (i < 0) {
+            return this;
+        }
+        final int j = indexOf(eventListeners[i], listener);
+        if (j < 0) {
+            return this;
+        }
+        if (eventListeners[i].length > 1) {
+            final SubscriptionEventListener[][] listeners = eventListeners.clone();
+            listeners[i] = remove(eventListeners[i], j);
+            return new ListenerRegistry(globalListeners, eventNames, listeners);
+        }
+        // that was the last listener for the event, forget the event name too
+        return new ListenerRegistry(globalListeners, remove(eventNames, i), remove(eventListeners, i));
+    }
+
+    private int indexOf(final String eventName) {
+        if (eventIndex != null) {
+            final Integer i = eventIndex.get(eventName);
+            return i != null ? i : -1;
+        }
+        for (int i = 0; i < eventNames.length; i++) {
+            // names are interned, so the identity check almost always decides
+            if (eventNames[i] == eventName || eventNames[i].equals(eventName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(final SubscriptionEventListener[] listeners, final SubscriptionEventListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i].equals(listener)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static SubscriptionEventListener[][] merge(
+            final SubscriptionEventListener[][] eventListeners,
+            final SubscriptionEventListener[] globalListeners
+    ) {
+        if (globalListeners.length == 0) {
+            return eventListeners;
+        }
+        final SubscriptionEventListener[][] merged = new SubscriptionEventListener[eventListeners.length][];
+        for (int i = 0; i < eventListeners.length; i++) {
+            final SubscriptionEventListener[] listeners = eventListeners[i];
+            final SubscriptionEventListener[] all = Arrays.copyOf(listeners, listeners.length + globalListeners.length);
+            int size = listeners.length;
+            for (final SubscriptionEventListener listener : globalListeners) {
+                if (indexOf(listeners, listener) < 0) {
+                    all[size++] = listener;
+                }
+            }
+            merged[i] = size == all.length ? all : Arrays.copyOf(all, size);
+        }
+        return merged;
+    }
+
+    private static Map<String, Integer> index(final String[] eventNames) {
+        final Map<String, Integer> index = new HashMap<>(eventNames.length * 2);
+        for (int i = 0; i < eventNames.length; i++) {
+            index.put(eventNames[i], i);
+        }
+        return index;
+    }
+
+    private static SubscriptionEventListener[] add(
+            final SubscriptionEventListener[] listeners,
+            final SubscriptionEventListener listener
+    ) {
+        final SubscriptionEventListener[] result = Arrays.copyOf(listeners, listeners.length + 1);
+        result[listeners.length] = listener;
+        return result;
+    }
+
+    private static <T> T[] remove(final T[] array, final int i) {
+        final T[] result = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, i + 1, result, i, array.length - i - 1);
+        return result;
+    }
+}
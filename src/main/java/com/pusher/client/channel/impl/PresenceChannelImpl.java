@@ -1,6 +1,5 @@
 package com.pusher.client.channel.impl;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.pusher.client.AuthorizationFailureException;
 import com.pusher.client.ChannelAuthorizer;
@@ -10,10 +9,10 @@ import com.pusher.client.channel.PresenceChannelEventListener;
 import com.pusher.client.channel.PusherEvent;
 import com.pusher.client.channel.SubscriptionEventListener;
 import com.pusher.client.channel.User;
-import com.pusher.client.channel.impl.message.ChannelData;
-import com.pusher.client.channel.impl.message.PresenceMemberData;
-import com.pusher.client.channel.impl.message.PresenceSubscriptionData;
 import com.pusher.client.connection.impl.InternalConnection;
+import com.pusher.client.message.ChannelData;
+import com.pusher.client.message.PresenceMemberData;
+import com.pusher.client.message.PresenceSubscriptionData;
 import com.pusher.client.util.Factory;
 
 import java.util.Collections;
@@ -25,10 +24,6 @@ import java.util.Set;
 
 public class PresenceChannelImpl extends PrivateChannelImpl implements PresenceChannel {
 
-    private static final String MEMBER_ADDED_EVENT = "pusher_internal:member_added";
-    private static final String MEMBER_REMOVED_EVENT = "pusher_internal:member_removed";
-    private static final Gson GSON = new Gson();
-
     private final Map<String, User> idToUserMap = Collections.synchronizedMap(new LinkedHashMap<>());
 
     private String myUserID;
@@ -60,14 +55,16 @@ public class PresenceChannelImpl extends PrivateChannelImpl implements PresenceC
     public void handleEvent(final PusherEvent event) {
         super.handleEvent(event);
 
-        switch (event.getEventName()) {
-            case SUBSCRIPTION_SUCCESS_EVENT:
+        switch (event.getKind()) {
+            case USER:
+                break;
+            case SUBSCRIPTION_SUCCEEDED:
                 handleSubscriptionSuccessfulMessage(event);
                 break;
-            case MEMBER_ADDED_EVENT:
+            case MEMBER_ADDED:
                 handleMemberAddedEvent(event);
                 break;
-            case MEMBER_REMOVED_EVENT:
+            case MEMBER_REMOVED:
                 handleMemberRemovedEvent(event);
                 break;
         }
@@ -103,66 +100,64 @@ public class PresenceChannelImpl extends PrivateChannelImpl implements PresenceC
 
     private void handleSubscriptionSuccessfulMessage(final PusherEvent event) {
         final ChannelEventListener listener = getEventListener();
-        final PresenceSubscriptionData presenceSubscriptionData = GSON.fromJson(
+        final PresenceSubscriptionData presenceSubscriptionData = codec.decode(
                 event.getData(),
                 PresenceSubscriptionData.class
         );
 
         if (presenceSubscriptionData.presence == null) {
             if (listener != null) {
-                listener.onError("Subscription failed: Presence data not found", null);
+                dispatchOrCall(listener, () -> listener.onError("Subscription failed: Presence data not found", null));
             }
             return;
         }
         final List<String> ids = presenceSubscriptionData.getIds();
-        final Map<String, Object> hash = presenceSubscriptionData.getHash();
+        final Map<String, String> hash = presenceSubscriptionData.getHash();
 
         if (ids != null && !ids.isEmpty()) {
-            // build the collection of Users
+            // build the collection of Users, the info is already JSON text
             for (final String id : ids) {
-                final String userData = hash.get(id) != null ? GSON.toJson(hash.get(id)) : null;
-                final User user = new User(id, userData);
+                final User user = new User(id, hash != null ? hash.get(id) : null);
                 idToUserMap.put(id, user);
             }
         }
 
         if (listener != null) {
             final PresenceChannelEventListener presenceListener = (PresenceChannelEventListener) listener;
-            presenceListener.onUsersInformationReceived(getName(), getUsers());
+            final Set<User> users = getUsers();
+            dispatchOrCall(presenceListener, () -> presenceListener.onUsersInformationReceived(getName(), users));
         }
     }
 
     private void handleMemberAddedEvent(final PusherEvent event) {
-        PresenceMemberData memberData = GSON.fromJson(event.getData(), PresenceMemberData.class);
+        PresenceMemberData memberData = codec.decode(event.getData(), PresenceMemberData.class);
 
         final String id = memberData.getId();
-        final String userData = memberData.getInfo() != null ? GSON.toJson(memberData.getInfo()) : null;
-
-        final User user = new User(id, userData);
+        final User user = new User(id, memberData.getInfo());
         idToUserMap.put(id, user);
 
         final ChannelEventListener listener = getEventListener();
         if (listener != null) {
             final PresenceChannelEventListener presenceListener = (PresenceChannelEventListener) listener;
-            presenceListener.userSubscribed(getName(), user);
+            dispatchOrCall(presenceListener, () -> presenceListener.userSubscribed(getName(), user));
         }
     }
 
     private void handleMemberRemovedEvent(final PusherEvent event) {
-        final PresenceMemberData memberData = GSON.fromJson(event.getData(), PresenceMemberData.class);
+        final PresenceMemberData memberData = codec.decode(event.getData(), PresenceMemberData.class);
 
         final User user = idToUserMap.remove(memberData.getId());
 
         final ChannelEventListener listener = getEventListener();
         if (listener != null) {
             final PresenceChannelEventListener presenceListener = (PresenceChannelEventListener) listener;
-            presenceListener.userUnsubscribed(getName(), user);
+            dispatchOrCall(presenceListener, () -> presenceListener.userUnsubscribed(getName(), user));
         }
     }
 
     public String extractUserIdFromChannelData(final String channelDataString) {
         try {
-            ChannelData data = GSON.fromJson(channelDataString, ChannelData.class);
+            ChannelData data = codec.decode(channelDataString, ChannelData.class);
 
             if (data.getUserId() == null) {
                 throw new AuthorizationFailureException(
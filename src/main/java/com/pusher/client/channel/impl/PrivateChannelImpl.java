@@ -1,6 +1,5 @@
 package com.pusher.client.channel.impl;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.pusher.client.AuthorizationFailureException;
 import com.pusher.client.ChannelAuthorizer;
@@ -9,15 +8,14 @@ import com.pusher.client.channel.PrivateChannel;
 import com.pusher.client.channel.PrivateChannelEventListener;
 import com.pusher.client.channel.PusherEvent;
 import com.pusher.client.channel.SubscriptionEventListener;
-import com.pusher.client.channel.impl.message.AuthResponse;
-import com.pusher.client.channel.impl.message.SubscribeMessage;
 import com.pusher.client.connection.ConnectionState;
 import com.pusher.client.connection.impl.InternalConnection;
+import com.pusher.client.message.AuthResponse;
+import com.pusher.client.message.SubscribeMessage;
 import com.pusher.client.util.Factory;
 
 public class PrivateChannelImpl extends ChannelImpl implements PrivateChannel {
 
-    private static final Gson GSON = new Gson();
     private static final String CLIENT_EVENT_PREFIX = "client-";
     private final InternalConnection connection;
     private final ChannelAuthorizer channelAuthorizer;
@@ -61,7 +59,7 @@ public class PrivateChannelImpl extends ChannelImpl implements PrivateChannel {
             );
         }
 
-        String json = new PusherEvent(eventName, name, null, data).toJson();
+        String json = codec.encodeEvent(new PusherEvent(eventName, name, null, data));
         connection.sendMessage(json);
     }
 
@@ -80,7 +78,7 @@ public class PrivateChannelImpl extends ChannelImpl implements PrivateChannel {
 
     private String authorize() {
         try {
-            final AuthResponse authResponse = GSON.fromJson(getAuthorizationResponse(), AuthResponse.class);
+            final AuthResponse authResponse = codec.decode(getAuthorizationResponse(), AuthResponse.class);
             channelData = authResponse.getChannelData();
 
             if (authResponse.getAuth() == null) {
@@ -98,7 +96,7 @@ public class PrivateChannelImpl extends ChannelImpl implements PrivateChannel {
 
     @Override
     public String toSubscribeMessage() {
-        return GSON.toJson(new SubscribeMessage(name, authorize(), channelData));
+        return codec.encode(new SubscribeMessage(name, authorize(), channelData));
     }
 
     @Override
@@ -8,9 +8,6 @@ import com.pusher.client.channel.PrivateEncryptedChannel;
 import com.pusher.client.channel.PrivateEncryptedChannelEventListener;
 import com.pusher.client.channel.PusherEvent;
 import com.pusher.client.channel.SubscriptionEventListener;
-import com.pusher.client.channel.impl.message.AuthResponse;
-import com.pusher.client.channel.impl.message.EncryptedReceivedData;
-import com.pusher.client.channel.impl.message.SubscribeMessage;
 import com.pusher.client.connection.ConnectionEventListener;
 import com.pusher.client.connection.ConnectionState;
 import com.pusher.client.connection.ConnectionStateChange;
@@ -18,11 +15,12 @@ import com.pusher.client.connection.impl.InternalConnection;
 import com.pusher.client.crypto.nacl.AuthenticityException;
 import com.pusher.client.crypto.nacl.SecretBoxOpener;
 import com.pusher.client.crypto.nacl.SecretBoxOpenerFactory;
+import com.pusher.client.message.AuthResponse;
+import com.pusher.client.message.EncryptedReceivedData;
+import com.pusher.client.message.SubscribeMessage;
 import com.pusher.client.util.Factory;
 import com.pusher.client.util.internal.Base64;
 
-import java.util.Set;
-
 public class PrivateEncryptedChannelImpl extends ChannelImpl implements PrivateEncryptedChannel {
 
     private final InternalConnection connection;
@@ -71,12 +69,12 @@ public class PrivateEncryptedChannelImpl extends ChannelImpl implements PrivateE
 
     @Override
     public String toSubscribeMessage() {
-        return GSON.toJson(new SubscribeMessage(name, authenticate(), null));
+        return codec.encode(new SubscribeMessage(name, authenticate(), null));
     }
 
     private String authenticate() {
         try {
-            final AuthResponse authResponse = GSON.fromJson(getAuthorizationResponse(), AuthResponse.class);
+            final AuthResponse authResponse = codec.decode(getAuthorizationResponse(), AuthResponse.class);
             if (authResponse.getAuth() == null || authResponse.getSharedSecret() == null) {
                 throw new AuthorizationFailureException(
                         "Didn't receive all the fields expected " +
@@ -129,10 +127,14 @@ public class PrivateEncryptedChannelImpl extends ChannelImpl implements PrivateE
     }
 
     private void notifyListenersOfDecryptFailure(final String event, final String reason) {
-        Set<SubscriptionEventListener> listeners = getInterestedListeners(event);
+        SubscriptionEventListener[] listeners = getInterestedListeners(event);
         if (listeners != null) {
             for (SubscriptionEventListener listener : listeners) {
-                ((PrivateEncryptedChannelEventListener) listener).onDecryptionFailure(event, reason);
+                if (listener instanceof PrivateEncryptedChannelEventListener) {
+                    dispatchOrCall(listener, () -> ((PrivateEncryptedChannelEventListener) listener).onDecryptionFailure(event, reason));
+                } else {
+                    dispatchOrCall(listener, () -> listener.onError(reason, null));
+                }
             }
         }
     }
@@ -140,7 +142,7 @@ public class PrivateEncryptedChannelImpl extends ChannelImpl implements PrivateE
     private PusherEvent decryptMessage(PusherEvent event) {
         String decryptedData = "{}";
         if (!event.getData().equals("{}")) {
-            final EncryptedReceivedData encryptedReceivedData = GSON.fromJson(event.getData(), EncryptedReceivedData.class);
+            final EncryptedReceivedData encryptedReceivedData = codec.decode(event.getData(), EncryptedReceivedData.class);
 
             decryptedData = secretBoxOpener.open(encryptedReceivedData.getCiphertext(), encryptedReceivedData.getNonce());
         }
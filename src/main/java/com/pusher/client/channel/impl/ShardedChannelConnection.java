@@ -0,0 +1,74 @@
+package com.pusher.client.channel.impl;
+
+import com.pusher.client.connection.ConnectionEventListener;
+import com.pusher.client.connection.ConnectionState;
+import com.pusher.client.connection.impl.InternalConnection;
+
+/**
+ * The connection of a private channel of a sharded client. It follows the
+ * channel as it moves between shards, so the channel always authorizes with
+ * the socket id of, and triggers client events on, the shard it is on.
+ */
+final class ShardedChannelConnection implements InternalConnection {
+
+    private final ChannelManager channelManager;
+    private final String channelName;
+
+    ShardedChannelConnection(final ChannelManager channelManager, final String channelName) {
+        this.channelManager = channelManager;
+        this.channelName = channelName;
+    }
+
+    @Override
+    public void sendMessage(final String message) {
+        channelManager.connectionFor(channelName).sendMessage(message);
+    }
+
+    @Override
+    public String getSocketId() {
+        return channelManager.connectionFor(channelName).getSocketId();
+    }
+
+    @Override
+    public ConnectionState getState() {
+        return channelManager.connectionFor(channelName).getState();
+    }
+
+    /**
+     * Binds to every shard, as the channel may have moved by the time the
+     * listener is unbound.
+     */
+    @Override
+    public void bind(final ConnectionState state, final ConnectionEventListener eventListener) {
+        for (final InternalConnection shard : channelManager.getConnections()) {
+            shard.bind(state, eventListener);
+        }
+    }
+
+    @Override
+    public boolean unbind(final ConnectionState state, final ConnectionEventListener eventListener) {
+        boolean unbound = false;
+        for (final InternalConnection shard : channelManager.getConnections()) {
+            unbound |= shard.unbind(state, eventListener);
+        }
+        return unbound;
+    }
+
+    /**
+     * Connects every shard, as the client does, since the channel may move to
+     * any of them.
+     */
+    @Override
+    public void connect() {
+        for (final InternalConnection shard : channelManager.getConnections()) {
+            shard.connect();
+        }
+    }
+
+    @Override
+    public void disconnect() {
+        for (final InternalConnection shard : channelManager.getConnections()) {
+            shard.disconnect();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.pusher.client.channel.impl;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.pusher.client.channel.PusherEvent;
+import com.pusher.client.channel.SubscriptionEventListener;
+import com.pusher.client.channel.TypedEventListener;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Adapts a {@link TypedEventListener} so that it can live alongside the
+ * untyped listeners of a channel. Two adapters are equal when they wrap the
+ * same listener for the same type, which is what allows unbinding by
+ * listener and type.
+ */
+class TypedSubscriptionEventListener<T> implements SubscriptionEventListener {
+
+    private static final Gson GSON = new Gson();
+
+    private final Class<T> type;
+    private final TypeAdapter<T> typeAdapter;
+    private final TypedEventListener<T> listener;
+
+    TypedSubscriptionEventListener(final Class<T> type, final TypedEventListener<T> listener) {
+        this.type = type;
+        this.typeAdapter = type != null ? GSON.getAdapter(type) : null;
+        this.listener = listener;
+    }
+
+    Class<T> getType() {
+        return type;
+    }
+
+    T decode(final PusherEvent event) throws IOException {
+        return typeAdapter.fromJson(event.getData());
+    }
+
+    @SuppressWarnings("unchecked")
+    void deliver(final PusherEvent event, final Object data) {
+        listener.onEvent(event, (T) data);
+    }
+
+    @Override
+    public void onEvent(final PusherEvent event) {
+        final T data;
+        try {
+            data = decode(event);
+        } catch (final IOException | RuntimeException e) {
+            onError("Unable to decode data of event " + event.getEventName() + " as " + type.getName(), e);
+            return;
+        }
+        listener.onEvent(event, data);
+    }
+
+    @Override
+    public void onError(final String message, final Exception e) {
+        listener.onError(message, e);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * listener.hashCode() + Objects.hashCode(type);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (other instanceof TypedSubscriptionEventListener) {
+            final TypedSubscriptionEventListener<?> otherListener = (TypedSubscriptionEventListener<?>) other;
+            return otherListener.listener.equals(listener) && Objects.equals(otherListener.type, type);
+        }
+        return false;
+    }
+}
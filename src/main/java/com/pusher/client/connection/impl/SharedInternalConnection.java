@@ -0,0 +1,30 @@
+package com.pusher.client.connection.impl;
+
+/**
+ * A client's handle on a connection which is shared with other clients in
+ * the process. The server only sees one subscription to each channel on the
+ * connection, so subscribing and unsubscribing go through the handle, which
+ * counts the clients holding each channel.
+ */
+public interface SharedInternalConnection extends InternalConnection {
+
+    /**
+     * @return whether this client may subscribe to the channel. Presence and
+     * encrypted channels carry state of their own for each subscription, so
+     * only one client on the connection can hold them.
+     */
+    boolean canSubscribe(String channelName);
+
+    /**
+     * Sends the subscribe message, unless another client has already
+     * subscribed to the channel, in which case the subscription succeeds
+     * straight away.
+     */
+    void subscribe(String channelName, String message);
+
+    /**
+     * Sends the unsubscribe message if this was the last client holding the
+     * channel.
+     */
+    void unsubscribe(String channelName, String message);
+}
@@ -0,0 +1,116 @@
+package com.pusher.client.connection.websocket;
+
+import com.pusher.client.connection.ConnectionEventListener;
+import com.pusher.client.connection.ConnectionState;
+
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of the listeners bound to a connection, by the state
+ * they were bound to.
+ * <p>
+ * The listeners to notify of a change to each state, which are those bound
+ * to it and those bound to {@link ConnectionState#ALL}, and the listeners to
+ * notify of an error, which are all of them, are worked out as the snapshot
+ * is built. Notifying listeners then neither locks nor allocates. Binding and
+ * unbinding return a new snapshot, so the arrays handed out never change.
+ * They must not be modified.
+ */
+final class ConnectionListeners {
+
+    private static final ConnectionState[] STATES = ConnectionState.values();
+    private static final ConnectionEventListener[] NO_LISTENERS = new ConnectionEventListener[0];
+
+    static final ConnectionListeners EMPTY = new ConnectionListeners(emptyByState());
+
+    // indexed by the ordinal of the state bound to
+    private final ConnectionEventListener[][] boundByState;
+    private final ConnectionEventListener[][] interestedByState;
+    private final ConnectionEventListener[] all;
+
+    private ConnectionListeners(final ConnectionEventListener[][] boundByState) {
+        this.boundByState = boundByState;
+        this.interestedByState = new ConnectionEventListener[STATES.length][];
+        final ConnectionEventListener[] boundToAll = boundByState[ConnectionState.ALL.ordinal()];
+        ConnectionEventListener[] allListeners = boundToAll;
+        for (final ConnectionState state : STATES) {
+            final ConnectionEventListener[] bound = boundByState[state.ordinal()];
+            interestedByState[state.ordinal()] = union(boundToAll, bound);
+            allListeners = union(allListeners, bound);
+        }
+        this.all = allListeners;
+    }
+
+    /**
+     * @return The listeners to notify of a change to the state.
+     */
+    ConnectionEventListener[] getInterestedListeners(final ConnectionState state) {
+        return interestedByState[state.ordinal()];
+    }
+
+    /**
+     * @return Every listener, whatever it was bound to.
+     */
+    ConnectionEventListener[] getAllListeners() {
+        return all;
+    }
+
+    ConnectionListeners bind(final ConnectionState state, final ConnectionEventListener listener) {
+        final ConnectionEventListener[] bound = boundByState[state.ordinal()];
+        if (indexOf(bound, listener) >= 0) {
+            return this;
+        }
+        final ConnectionEventListener[][] byState = boundByState.clone();
+        byState[state.ordinal()] = Arrays.copyOf(bound, bound.length + 1);
+        byState[state.ordinal()][bound.length] = listener;
+        return new ConnectionListeners(byState);
+    }
+
+    ConnectionListeners unbind(final ConnectionState state, final ConnectionEventListener listener) {
+        final ConnectionEventListener[] bound = boundByState[state.ordinal()];
+        final int i = indexOf(bound, listener);
+        if (i < 0) {
+            return this;
+        }
+        final ConnectionEventListener[] remaining = Arrays.copyOf(bound, bound.length - 1);
+        System.arraycopy(bound, i + 1, remaining, i, bound.length - i - 1);
+        final ConnectionEventListener[][] byState = boundByState.clone();
+        byState[state.ordinal()] = remaining;
+        return new ConnectionListeners(byState);
+    }
+
+    private static ConnectionEventListener[][] emptyByState() {
+        final ConnectionEventListener[][] byState = new ConnectionEventListener[STATES.length][];
+        Arrays.fill(byState, NO_LISTENERS);
+        return byState;
+    }
+
+    private static ConnectionEventListener[] union(
+            final ConnectionEventListener[] first,
+            final ConnectionEventListener[] second
+    ) {
+        if (second.length == 0 || first == second) {
+            return first;
+        }
+        if (first.length == 0) {
+            return second;
+        }
+        final ConnectionEventListener[] union = Arrays.copyOf(first, first.length + second.length);
+        int size = first.length;
+        for (final ConnectionEventListener listener : second) {
+            if (indexOf(first, listener) < 0) {
+                union[size++] = listener;
+            }
+        }
+        return size == union.length ? union : Arrays.copyOf(union, size);
+    }
+
+    private static int indexOf(final ConnectionEventListener[] listeners, final ConnectionEventListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i].equals(listener)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
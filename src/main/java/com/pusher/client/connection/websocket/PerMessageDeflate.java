@@ -0,0 +1,40 @@
+package com.pusher.client.connection.websocket;
+
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+
+import java.util.zip.Deflater;
+
+/**
+ * The permessage-deflate extension with the client's compression settings.
+ * <p>
+ * The client works on a copy of its draft, and with it of each extension,
+ * while {@link PerMessageDeflateExtension#copyInstance()} forgets how the
+ * extension was set up. This extension keeps its settings when it is copied.
+ */
+public class PerMessageDeflate extends PerMessageDeflateExtension {
+
+    private final int threshold;
+    private final int compressionLevel;
+
+    /**
+     * @param threshold        Outbound messages smaller than this many bytes
+     *                         are sent uncompressed.
+     * @param compressionLevel The level to deflate outbound messages at, from
+     *                         {@link Deflater#BEST_SPEED} to
+     *                         {@link Deflater#BEST_COMPRESSION}, or
+     *                         {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public PerMessageDeflate(final int threshold, final int compressionLevel) {
+        this.threshold = threshold;
+        this.compressionLevel = compressionLevel;
+        setThreshold(threshold);
+        // raw deflate, the extension writes no zlib header or trailer
+        setDeflater(new Deflater(compressionLevel, true));
+    }
+
+    @Override
+    public IExtension copyInstance() {
+        return new PerMessageDeflate(threshold, compressionLevel);
+    }
+}
@@ -0,0 +1,436 @@
+package com.pusher.client.connection.websocket;
+
+import com.pusher.client.PusherOptions;
+import com.pusher.client.channel.PusherEvent;
+import com.pusher.client.connection.ConnectionEventListener;
+import com.pusher.client.connection.ConnectionState;
+import com.pusher.client.connection.ConnectionStateChange;
+import com.pusher.client.connection.impl.InternalConnection;
+import com.pusher.client.connection.impl.SharedInternalConnection;
+import com.pusher.client.message.UnsubscribeMessage;
+import com.pusher.client.util.Factory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A connection shared by every client in the process which connects to the
+ * same app with the same connection settings, see {@link #keyOf}.
+ * <p>
+ * Each client gets a {@link Handle} of its own, with its own connection
+ * listeners and its own event handler, so its channel manager, channels and
+ * user work as if the connection were theirs. The connection is opened when
+ * the first client connects and closed when the last one disconnects. Each
+ * channel is subscribed on the server once, whichever clients hold it, and
+ * its events are parsed once and handed to each of them. A client which
+ * subscribes to a channel another client holds already gets the stored
+ * subscription_succeeded event instead of a round trip to the server.
+ * <p>
+ * The connection is made by its own factory, with the options of the client
+ * which created it, which are those of every client sharing it. When the last connected client disconnects the
+ * connection is closed, dropped from the registry and its factory shut down,
+ * so that the next client to connect to the app opens a new one.
+ */
+public final class SharedConnection implements ConnectionEventListener {
+
+    private static final Map<List<Object>, SharedConnection> REGISTRY = new HashMap<>();
+    private static final Handle[] NO_HANDLES = new Handle[0];
+
+    private final List<Object> key;
+    private final Factory factory;
+    private final InternalConnection connection;
+    // writes hold the lock on this, the event thread reads without it
+    private final Map<String, ChannelShare> channels = new ConcurrentHashMap<>();
+    private volatile Handle[] attached = NO_HANDLES;
+
+    private SharedConnection(final List<Object> key, final Factory factory, final String apiKey, final PusherOptions options) {
+        this.key = key;
+        this.factory = factory;
+        this.connection = factory.newWebSocketConnection(apiKey, options, this::handleEvent);
+    }
+
+    /**
+     * @param newFactory   Makes the factory for the connection, if there is no
+     *                     shared connection for these settings yet.
+     * @param eventHandler Receives the events for the client.
+     * @return The client's handle on the connection shared by all clients of
+     * the app with these connection settings.
+     */
+    public static InternalConnection acquire(
+            final String apiKey,
+            final PusherOptions options,
+            final Supplier<Factory> newFactory,
+            final Consumer<PusherEvent> eventHandler
+    ) {
+        final List<Object> key = keyOf(apiKey, options);
+        final SharedConnection shared;
+        synchronized (REGISTRY) {
+            SharedConnection existing = REGISTRY.get(key);
+            if (existing == null) {
+                existing = new SharedConnection(key, newFactory.get(), apiKey, options);
+                existing.connection.bind(ConnectionState.ALL, existing);
+                REGISTRY.put(key, existing);
+            }
+            shared = existing;
+        }
+        return shared.new Handle(eventHandler);
+    }
+
+    /**
+     * @return every option the connection is made with, compared with equals,
+     * so that only clients which agree on all of them share it
+     */
+    static List<Object> keyOf(final String apiKey, final PusherOptions options) {
+        return Arrays.asList(
+                options.buildUrl(apiKey),
+                options.getActivityTimeout(),
+                options.getPongTimeout(),
+                options.getMaxReconnectionAttempts(),
+                options.getReconnectStrategy(),
+                options.getProxy(),
+                options.getEnvelopeCodec(),
+                options.isByteFrameParsing(),
+                options.isBorrowedEvents(),
+                options.isPerMessageDeflate(),
+                options.getDeflateThreshold(),
+                options.getDeflateLevel(),
+                options.getOutboundQueueListener(),
+                options.getOutboundHighWaterMark(),
+                options.getEventExecutor(),
+                options.getScheduledExecutor(),
+                options.getRingBufferCapacity(),
+                options.getWaitStrategy(),
+                options.getEventQueueCapacity(),
+                options.getOverflowPolicy(),
+                options.getEventQueueListener()
+        );
+    }
+
+    /* ConnectionEventListener implementation, on the event thread */
+
+    @Override
+    public void onConnectionStateChange(final ConnectionStateChange change) {
+        if (change.getCurrentState() == ConnectionState.CONNECTED) {
+            // a new socket holds no subscriptions, the clients resubscribe
+            synchronized (this) {
+                for (final ChannelShare share : channels.values()) {
+                    share.reset();
+                }
+            }
+        }
+        for (final Handle handle : attached) {
+            handle.notifyListeners(change);
+        }
+        if (change.getCurrentState() == ConnectionState.DISCONNECTED && isReleased()) {
+            factory.shutdownThreads();
+        }
+    }
+
+    @Override
+    public void onError(final String message, final String code, final Exception e) {
+        for (final Handle handle : attached) {
+            for (final ConnectionEventListener listener : handle.listeners.getAllListeners()) {
+                listener.onError(message, code, e);
+            }
+        }
+    }
+
+    /* implementation detail */
+
+    private void handleEvent(final PusherEvent event) {
+        final String channelName = event.getChannelName();
+        if (channelName == null) {
+            for (final Handle handle : attached) {
+                handle.deliver(event);
+            }
+            return;
+        }
+        final ChannelShare share = channels.get(channelName);
+        if (share == null) {
+            return;
+        }
+        final Handle[] handles;
+        switch (event.getKind()) {
+            case SUBSCRIPTION_SUCCEEDED:
+                synchronized (this) {
+                    handles = share.acknowledge(event);
+                }
+                break;
+            default:
+                handles = share.holders;
+        }
+        for (final Handle handle : handles) {
+            handle.deliver(event);
+        }
+    }
+
+    private synchronized void attach(final Handle handle) {
+        if (attached.length == 0) {
+            // back in the registry, if the last client had let go of it
+            synchronized (REGISTRY) {
+                REGISTRY.putIfAbsent(key, this);
+            }
+        }
+        attached = add(attached, handle);
+    }
+
+    /**
+     * Drops the connection from the registry once no client is connected.
+     * Its factory is shut down as it reaches DISCONNECTED.
+     */
+    private void release() {
+        synchronized (REGISTRY) {
+            REGISTRY.remove(key, this);
+        }
+        if (connection.getState() == ConnectionState.DISCONNECTED) {
+            factory.shutdownThreads();
+        } else {
+            connection.disconnect();
+        }
+    }
+
+    private boolean isReleased() {
+        synchronized (REGISTRY) {
+            return attached.length == 0 && REGISTRY.get(key) != this;
+        }
+    }
+
+    /**
+     * Lets go of the channels the client held.
+     *
+     * @return whether it was the last client connected
+     */
+    private synchronized boolean detach(final Handle handle) {
+        attached = remove(attached, handle);
+        final boolean last = attached.length == 0;
+        channels.values().removeIf(share -> {
+            if (!share.release(handle)) {
+                return false;
+            }
+            // closing the connection unsubscribes from everything anyway
+            if (!last && share.sent && connection.getState() == ConnectionState.CONNECTED) {
+                connection.sendMessage(factory.getEnvelopeCodec().encode(new UnsubscribeMessage(share.channelName)));
+            }
+            return true;
+        });
+        return last;
+    }
+
+    private static boolean isExclusive(final String channelName) {
+        return channelName.startsWith("presence-") || channelName.startsWith("private-encrypted-");
+    }
+
+    private static Handle[] add(final Handle[] handles, final Handle handle) {
+        for (final Handle existing : handles) {
+            if (existing == handle) {
+                return handles;
+            }
+        }
+        final Handle[] result = Arrays.copyOf(handles, handles.length + 1);
+        result[handles.length] = handle;
+        return result;
+    }
+
+    private static Handle[] remove(final Handle[] handles, final Handle handle) {
+        for (int i = 0; i < handles.length; i++) {
+            if (handles[i] == handle) {
+                final Handle[] result = Arrays.copyOf(handles, handles.length - 1);
+                System.arraycopy(handles, i + 1, result, i, handles.length - i - 1);
+                return result;
+            }
+        }
+        return handles;
+    }
+
+    /**
+     * The clients holding one channel and how far its subscription on the
+     * current socket has got. Changed with the lock on the shared connection.
+     */
+    private static final class ChannelShare {
+
+        private final String channelName;
+        private volatile Handle[] holders = NO_HANDLES;
+        // clients whose subscription waits for the server's answer
+        private Handle[] awaiting = NO_HANDLES;
+        private boolean sent;
+        private PusherEvent succeeded;
+
+        ChannelShare(final String channelName) {
+            this.channelName = channelName;
+        }
+
+        /**
+         * @return whether the subscribe message is to be sent. If not, the
+         * client either waits for the answer to the one already sent, or is
+         * handed the stored answer.
+         */
+        boolean hold(final Handle handle) {
+            holders = add(holders, handle);
+            if (!sent) {
+                sent = true;
+                awaiting = add(awaiting, handle);
+                return true;
+            }
+            if (succeeded == null) {
+                awaiting = add(awaiting, handle);
+            }
+            return false;
+        }
+
+        /**
+         * @return whether no client holds the channel any more
+         */
+        boolean release(final Handle handle) {
+            holders = remove(holders, handle);
+            awaiting = remove(awaiting, handle);
+            return holders.length == 0;
+        }
+
+        Handle[] acknowledge(final PusherEvent event) {
+            // the answer for presence channels goes stale as members come and go
+            succeeded = isExclusive(channelName) ? null : event.copy();
+            final Handle[] answered = awaiting;
+            awaiting = NO_HANDLES;
+            return answered;
+        }
+
+        void reset() {
+            sent = false;
+            succeeded = null;
+            awaiting = NO_HANDLES;
+        }
+    }
+
+    /**
+     * One client's view of the shared connection. It is connected from the
+     * client's call to connect until its call to disconnect, and only while
+     * it is connected does it pass on events and state changes.
+     */
+    private final class Handle implements SharedInternalConnection {
+
+        private final Consumer<PusherEvent> eventHandler;
+        private volatile ConnectionListeners listeners = ConnectionListeners.EMPTY;
+        private volatile boolean connected;
+
+        Handle(final Consumer<PusherEvent> eventHandler) {
+            this.eventHandler = eventHandler;
+        }
+
+        @Override
+        public void connect() {
+            synchronized (this) {
+                if (connected) {
+                    return;
+                }
+                connected = true;
+            }
+            attach(this);
+            final ConnectionState state = connection.getState();
+            if (state == ConnectionState.CONNECTED) {
+                final ConnectionStateChange change = new ConnectionStateChange(ConnectionState.DISCONNECTED, state);
+                factory.queueOnEventThread(() -> notifyListeners(change));
+            } else {
+                // ignored by the connection unless it is disconnected
+                connection.connect();
+            }
+        }
+
+        @Override
+        public void disconnect() {
+            synchronized (this) {
+                if (!connected) {
+                    return;
+                }
+                connected = false;
+            }
+            final ConnectionStateChange change = new ConnectionStateChange(connection.getState(), ConnectionState.DISCONNECTED);
+            if (detach(this)) {
+                release();
+            }
+            factory.queueOnEventThread(() -> notifyListeners(change));
+        }
+
+        @Override
+        public synchronized void bind(final ConnectionState state, final ConnectionEventListener eventListener) {
+            listeners = listeners.bind(state, eventListener);
+        }
+
+        @Override
+        public synchronized boolean unbind(final ConnectionState state, final ConnectionEventListener eventListener) {
+            final ConnectionListeners current = listeners;
+            listeners = current.unbind(state, eventListener);
+            return listeners != current;
+        }
+
+        @Override
+        public ConnectionState getState() {
+            return connected ? connection.getState() : ConnectionState.DISCONNECTED;
+        }
+
+        @Override
+        public String getSocketId() {
+            return connection.getSocketId();
+        }
+
+        @Override
+        public void sendMessage(final String message) {
+            connection.sendMessage(message);
+        }
+
+        @Override
+        public boolean canSubscribe(final String channelName) {
+            if (!isExclusive(channelName)) {
+                return true;
+            }
+            final ChannelShare share = channels.get(channelName);
+            return share == null || Arrays.asList(share.holders).equals(Arrays.asList(this));
+        }
+
+        @Override
+        public void subscribe(final String channelName, final String message) {
+            final PusherEvent succeeded;
+            synchronized (SharedConnection.this) {
+                final ChannelShare share = channels.computeIfAbsent(channelName, ChannelShare::new);
+                if (share.hold(this)) {
+                    connection.sendMessage(message);
+                    return;
+                }
+                succeeded = share.succeeded;
+            }
+            if (succeeded != null) {
+                factory.queueOnEventThread(() -> deliver(succeeded));
+            }
+        }
+
+        @Override
+        public void unsubscribe(final String channelName, final String message) {
+            synchronized (SharedConnection.this) {
+                final ChannelShare share = channels.get(channelName);
+                if (share != null && share.release(this)) {
+                    channels.remove(channelName);
+                    connection.sendMessage(message);
+                }
+            }
+        }
+
+        void deliver(final PusherEvent event) {
+            if (connected) {
+                eventHandler.accept(event);
+            }
+        }
+
+        void notifyListeners(final ConnectionStateChange change) {
+            if (!connected && change.getCurrentState() != ConnectionState.DISCONNECTED) {
+                return;
+            }
+            for (final ConnectionEventListener listener : listeners.getInterestedListeners(change.getCurrentState())) {
+                listener.onConnectionStateChange(change);
+            }
+        }
+    }
+}
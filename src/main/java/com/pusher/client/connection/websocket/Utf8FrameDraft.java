@@ -0,0 +1,77 @@
+package com.pusher.client.connection.websocket;
+
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.WebSocketListener;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.protocols.IProtocol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An RFC 6455 draft which delivers complete text frames as their raw UTF-8
+ * payload, through {@link WebSocketClientWrapper#onMessage(java.nio.ByteBuffer)},
+ * instead of decoding them into a String first.
+ * <p>
+ * Fragmented text messages, control frames and binary frames are processed
+ * exactly as by {@link Draft_6455}, and so is a text frame which arrives while
+ * a fragmented message is still open, which the draft rejects. The payload of each frame is freshly
+ * allocated by the draft, so it is safe to hand it over to the event thread.
+ */
+public class Utf8FrameDraft extends Draft_6455 {
+
+    // whether a fragmented message has been started and not finished, the
+    // draft keeps its own account of it privately
+    private boolean continuing;
+
+    public Utf8FrameDraft() {
+        this(Collections.<IExtension>emptyList());
+    }
+
+    public Utf8FrameDraft(final List<IExtension> extensions) {
+        super(extensions);
+    }
+
+    private Utf8FrameDraft(final List<IExtension> extensions, final List<IProtocol> protocols, final int maxFrameSize) {
+        super(extensions, protocols, maxFrameSize);
+    }
+
+    @Override
+    public void processFrame(final WebSocketImpl webSocketImpl, final Framedata frame) throws InvalidDataException {
+        final Opcode opcode = frame.getOpcode();
+        if (opcode != Opcode.TEXT || !frame.isFin() || continuing) {
+            if (opcode == Opcode.CONTINUOUS) {
+                continuing = !frame.isFin();
+            } else if (opcode == Opcode.TEXT || opcode == Opcode.BINARY) {
+                continuing |= !frame.isFin();
+            }
+            super.processFrame(webSocketImpl, frame);
+            return;
+        }
+        final WebSocketListener listener = webSocketImpl.getWebSocketListener();
+        try {
+            listener.onWebsocketMessage(webSocketImpl, frame.getPayloadData());
+        } catch (final RuntimeException e) {
+            listener.onWebsocketError(webSocketImpl, e);
+        }
+    }
+
+    @Override
+    public Draft copyInstance() {
+        final List<IExtension> extensions = new ArrayList<>();
+        for (final IExtension extension : getKnownExtensions()) {
+            extensions.add(extension.copyInstance());
+        }
+        final List<IProtocol> protocols = new ArrayList<>();
+        for (final IProtocol protocol : getKnownProtocols()) {
+            protocols.add(protocol.copyInstance());
+        }
+        return new Utf8FrameDraft(extensions, protocols, getMaxFrameSize());
+    }
+}
@@ -1,12 +1,19 @@
 package com.pusher.client.connection.websocket;
 
+import org.java_websocket.WebSocket;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.framing.Framedata;
 import org.java_websocket.handshake.ServerHandshake;
 
 import java.net.Proxy;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLException;
@@ -26,7 +33,16 @@ public class WebSocketClientWrapper extends WebSocketClient {
 
     public WebSocketClientWrapper(final URI uri, final Proxy proxy, final WebSocketListener webSocketListener)
             throws SSLException {
-        super(uri);
+        this(uri, proxy, webSocketListener, new Draft_6455());
+    }
+
+    public WebSocketClientWrapper(
+            final URI uri,
+            final Proxy proxy,
+            final WebSocketListener webSocketListener,
+            final Draft draft
+    ) throws SSLException {
+        super(uri, draft);
         if (uri.getScheme().equals(WSS_SCHEME)) {
             try {
                 SSLContext sslContext = SSLContext.getInstance("TLS");
@@ -64,6 +80,13 @@ public class WebSocketClientWrapper extends WebSocketClient {
         }
     }
 
+    @Override
+    public void onMessage(final ByteBuffer message) {
+        if (webSocketListener != null) {
+            webSocketListener.onMessage(message);
+        }
+    }
+
     @Override
     public void onClose(final int code, final String reason, final boolean remote) {
         if (webSocketListener != null) {
@@ -78,6 +101,20 @@ public class WebSocketClientWrapper extends WebSocketClient {
         }
     }
 
+    /**
+     * Sends the messages as text frames handed to the socket together, under
+     * the library's write lock, rather than one send for each message.
+     */
+    public void sendBatch(final List<String> messages) {
+        final WebSocket connection = getConnection();
+        final Draft draft = connection.getDraft();
+        final List<Framedata> frames = new ArrayList<>(messages.size());
+        for (final String message : messages) {
+            frames.addAll(draft.createFrames(message, true));
+        }
+        connection.sendFrame(frames);
+    }
+
     /**
      * Removes the WebSocketListener so that the underlying WebSocketClient doesn't expose any listener events.
      */
@@ -1,26 +1,29 @@
 package com.pusher.client.connection.websocket;
 
-import com.google.gson.Gson;
+import com.pusher.client.ReconnectStrategy;
 import com.pusher.client.channel.PusherEvent;
 import com.pusher.client.connection.ConnectionEventListener;
 import com.pusher.client.connection.ConnectionState;
 import com.pusher.client.connection.ConnectionStateChange;
 import com.pusher.client.connection.impl.InternalConnection;
 import com.pusher.client.util.Factory;
+import com.pusher.client.util.internal.Backoff;
+import com.pusher.client.util.internal.EventLoop;
+import com.pusher.client.util.internal.OutboundQueue;
 
 import org.java_websocket.handshake.ServerHandshake;
 
 import java.net.Proxy;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.Collections;
-import java.util.HashSet;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 import java.util.logging.Logger;
 
 import javax.net.ssl.SSLException;
@@ -28,23 +31,38 @@ import javax.net.ssl.SSLException;
 public class WebSocketConnection implements InternalConnection, WebSocketListener {
 
     private static final Logger log = Logger.getLogger(WebSocketConnection.class.getName());
-    private static final Gson GSON = new Gson();
 
     private static final String PING_EVENT_SERIALIZED = "{\"event\": \"pusher:ping\"}";
+    // how long a flush waits for the socket to catch up, doubling each time
+    private static final long MIN_FLUSH_RETRY_MILLIS = 1;
+    private static final long MAX_FLUSH_RETRY_MILLIS = 64;
+    private static final AtomicReferenceFieldUpdater<WebSocketConnection, ConnectionListeners> LISTENERS =
+            AtomicReferenceFieldUpdater.newUpdater(WebSocketConnection.class, ConnectionListeners.class, "eventListeners");
 
     private final Factory factory;
+    // replaced, never mutated, as listeners are bound and unbound
+    private volatile ConnectionListeners eventListeners = ConnectionListeners.EMPTY;
     private final ActivityTimer activityTimer;
-    private final Map<ConnectionState, Set<ConnectionEventListener>> eventListeners = new ConcurrentHashMap<>();
     private final URI webSocketUri;
     private final Proxy proxy;
     private final int maxReconnectionAttempts;
-    private final int maxReconnectionGap;
+    private final ReconnectStrategy reconnectStrategy;
 
     private volatile ConnectionState state = ConnectionState.DISCONNECTED;
     private WebSocketClientWrapper underlyingConnection;
     private final Consumer<PusherEvent> eventHandler;
     private String socketId;
     private int reconnectAttempts = 0;
+    private long reconnectDelayMillis;
+
+    // Only touched on the event thread. It is taken while an event is being
+    // handled, so a frame handled meanwhile gets an event of its own.
+    private PusherEvent spareEvent;
+    private final Frames frames = new Frames();
+    private final OutboundQueue outbound;
+    private final Runnable flush = this::flush;
+    // only touched on the event thread
+    private long flushRetryMillis = MIN_FLUSH_RETRY_MILLIS;
 
     public WebSocketConnection(
             final String url,
@@ -55,18 +73,38 @@ public class WebSocketConnection implements InternalConnection, WebSocketListene
             final Proxy proxy,
             final Consumer<PusherEvent> eventHandler,
             final Factory factory
+    ) throws URISyntaxException {
+        this(
+                url,
+                activityTimeout,
+                pongTimeout,
+                maxReconnectionAttempts,
+                Backoff.quadratic(maxReconnectionGap),
+                proxy,
+                eventHandler,
+                factory
+        );
+    }
+
+    public WebSocketConnection(
+            final String url,
+            final long activityTimeout,
+            final long pongTimeout,
+            int maxReconnectionAttempts,
+            final ReconnectStrategy reconnectStrategy,
+            final Proxy proxy,
+            final Consumer<PusherEvent> eventHandler,
+            final Factory factory
     ) throws URISyntaxException {
         webSocketUri = new URI(url);
         activityTimer = new ActivityTimer(activityTimeout, pongTimeout);
         this.maxReconnectionAttempts = maxReconnectionAttempts;
-        this.maxReconnectionGap = maxReconnectionGap;
+        this.reconnectStrategy = reconnectStrategy;
         this.proxy = proxy;
         this.factory = factory;
         this.eventHandler = eventHandler;
-
-        for (final ConnectionState state : ConnectionState.values()) {
-            eventListeners.put(state, Collections.newSetFromMap(new ConcurrentHashMap<>()));
-        }
+        this.spareEvent = factory.newBorrowedEvent();
+        this.outbound = factory.newOutboundQueue();
     }
 
     /* Connection implementation */
@@ -102,12 +140,12 @@ public class WebSocketConnection implements InternalConnection, WebSocketListene
 
     @Override
     public void bind(final ConnectionState state, final ConnectionEventListener eventListener) {
-        eventListeners.get(state).add(eventListener);
+        updateListeners(listeners -> listeners.bind(state, eventListener));
     }
 
     @Override
     public boolean unbind(final ConnectionState state, final ConnectionEventListener eventListener) {
-        return eventListeners.get(state).remove(eventListener);
+        return updateListeners(listeners -> listeners.unbind(state, eventListener));
     }
 
     @Override
@@ -119,17 +157,9 @@ public class WebSocketConnection implements InternalConnection, WebSocketListene
 
     @Override
     public void sendMessage(final String message) {
-        factory.queueOnEventThread(() -> {
-            try {
-                if (state == ConnectionState.CONNECTED) {
-                    underlyingConnection.send(message);
-                } else {
-                    sendErrorToAllListeners("Cannot send a message while in " + state + " state", null, null);
-                }
-            } catch (final Exception e) {
-                sendErrorToAllListeners("An exception occurred while sending message [" + message + "]", null, e);
-            }
-        });
+        if (outbound.offer(message)) {
+            factory.queueOnEventThread(flush);
+        }
     }
 
     @Override
@@ -139,44 +169,101 @@ public class WebSocketConnection implements InternalConnection, WebSocketListene
 
     /* implementation detail */
 
+    /**
+     * @return whether the listeners changed
+     */
+    private boolean updateListeners(final UnaryOperator<ConnectionListeners> update) {
+        while (true) {
+            final ConnectionListeners current = eventListeners;
+            final ConnectionListeners next = update.apply(current);
+            if (next == current) {
+                return false;
+            }
+            if (LISTENERS.compareAndSet(this, current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Writes the waiting messages, as many to a socket write as fit in a
+     * batch. While the socket is behind with its writes the messages stay
+     * queued, where later ones join them, and the flush is tried again after
+     * a wait which doubles for as long as the socket stays behind, as the
+     * library gives no signal when its writes have drained.
+     */
+    private void flush() {
+        if (state != ConnectionState.CONNECTED) {
+            for (int i = outbound.poll(Integer.MAX_VALUE).size(); i > 0; i--) {
+                sendErrorToAllListeners("Cannot send a message while in " + state + " state", null, null);
+            }
+        } else if (underlyingConnection.hasBufferedData()) {
+            factory.getTimers().schedule(
+                    () -> factory.queueOnEventThread(flush),
+                    flushRetryMillis,
+                    TimeUnit.MILLISECONDS
+            );
+            flushRetryMillis = Math.min(MAX_FLUSH_RETRY_MILLIS, flushRetryMillis * 2);
+            return;
+        } else {
+            flushRetryMillis = MIN_FLUSH_RETRY_MILLIS;
+            final List<String> batch = outbound.poll(OutboundQueue.MAX_BATCH_CHARS);
+            try {
+                if (batch.size() == 1) {
+                    underlyingConnection.send(batch.get(0));
+                } else {
+                    underlyingConnection.sendBatch(batch);
+                }
+            } catch (final Exception e) {
+                final String messages = batch.size() == 1 ? "message [" + batch.get(0) + "]" : batch.size() + " messages";
+                sendErrorToAllListeners("An exception occurred while sending " + messages, null, e);
+            }
+        }
+        if (outbound.flushed()) {
+            factory.queueOnEventThread(flush);
+        }
+    }
+
     private void updateState(final ConnectionState newState) {
         log.fine("State transition requested, current [" + state + "], new [" + newState + "]");
 
         final ConnectionStateChange change = new ConnectionStateChange(state, newState);
         state = newState;
 
-        final Set<ConnectionEventListener> interestedListeners = new HashSet<>();
-        interestedListeners.addAll(eventListeners.get(ConnectionState.ALL));
-        interestedListeners.addAll(eventListeners.get(newState));
-
-        for (final ConnectionEventListener listener : interestedListeners) {
+        for (final ConnectionEventListener listener : eventListeners.getInterestedListeners(newState)) {
             factory.queueOnEventThread(() -> listener.onConnectionStateChange(change));
         }
     }
 
     private void handleEvent(final PusherEvent event) {
-        if (event.getEventName().equals("pusher:connection_established")) {
-            handleConnectihandleEvent(event);
-        } else if (event.getEventName().equals("pusher:error")) {
-            handleError(event);
+        switch (event.getKind()) {
+            case USER:
+                break;
+            case CONNECTION_ESTABLISHED:
+                handleConnectihandleEvent(event);
+                break;
+            case ERROR:
+                handleError(event);
+                break;
         }
         eventHandler.accept(event);
     }
 
     @SuppressWarnings("rawtypes")
     private void handleConnectihandleEvent(final PusherEvent event) {
-        final Map dataMap = GSON.fromJson(event.getData(), Map.class);
+        final Map dataMap = factory.getEnvelopeCodec().decode(event.getData(), Map.class);
         socketId = (String) dataMap.get("socket_id");
 
         if (state != ConnectionState.CONNECTED) {
             updateState(ConnectionState.CONNECTED);
         }
         reconnectAttempts = 0;
+        reconnectDelayMillis = 0;
     }
 
     @SuppressWarnings("rawtypes")
     private void handleError(final PusherEvent event) {
-        Map dataMap = GSON.fromJson(event.getData(), Map.class);
+        Map dataMap = factory.getEnvelopeCodec().decode(event.getData(), Map.class);
         final String message = (String) dataMap.get("message");
         final Object codeObject = dataMap.get("code");
         String code = null;
@@ -188,12 +275,7 @@ public class WebSocketConnection implements InternalConnection, WebSocketListene
     }
 
     private void sendErrorToAllListeners(final String message, final String code, final Exception e) {
-        final Set<ConnectionEventListener> allListeners = new HashSet<>();
-        for (final Set<ConnectionEventListener> listenersForState : eventListeners.values()) {
-            allListeners.addAll(listenersForState);
-        }
-
-        for (final ConnectionEventListener listener : allListeners) {
+        for (final ConnectionEventListener listener : eventListeners.getAllListeners()) {
             factory.queueOnEventThread(() -> listener.onError(message, code, e));
         }
     }
@@ -209,7 +291,59 @@ public class WebSocketConnection implements InternalConnection, WebSocketListene
     public void onMessage(final String message) {
         activityTimer.activity();
 
-        factory.queueOnEventThread(() -> handleEvent(PusherEvent.fromJson(message)));
+        factory.queueFrameOnEventThread(frames, message);
+    }
+
+    @Override
+    public void onMessage(final ByteBuffer message) {
+        activityTimer.activity();
+
+        factory.queueFrameOnEventThread(frames, message);
+    }
+
+    private PusherEvent takeSpareEvent() {
+        final PusherEvent spare = spareEvent;
+        spareEvent = null;
+        return spare;
+    }
+
+    /**
+     * Decodes the frames of the socket on the event thread.
+     */
+    private final class Frames implements EventLoop.FrameHandler {
+
+        @Override
+        public void handleFrame(final String frame) {
+            final PusherEvent spare = takeSpareEvent();
+            try {
+                handleEvent(factory.getEnvelopeCodec().decodeEvent(frame, factory.getSymbolTable(), spare));
+            } finally {
+                spareEvent = spare;
+            }
+        }
+
+        @Override
+        public void handleFrame(final ByteBuffer frame) {
+            final PusherEvent spare = takeSpareEvent();
+            try {
+                handleEvent(factory.getEnvelopeCodec().decodeEvent(frame, factory.getSymbolTable(), spare));
+            } finally {
+                spareEvent = spare;
+            }
+        }
+
+        @Override
+        public void handleOverflow() {
+            log.warning("Event queue overflowed - disconnecting");
+            factory.queueOnEventThread(
+                    () -> sendErrorToAllListeners("Inbound events are arriving faster than they are handled", null, null)
+            );
+
+            // fail the connection as a pong timeout would, it is then reconnected
+            underlyingConnection.removeWebSocketListener();
+            underlyingConnection.close();
+            onClose(-1, "Event queue overflow", false);
+        }
     }
 
     @Override
@@ -251,7 +385,7 @@ public class WebSocketConnection implements InternalConnection, WebSocketListene
     private void tryReconnecting() {
         reconnectAttempts++;
         updateState(ConnectionState.RECONNECTING);
-        long reconnectInterval = Math.min(maxReconnectionGap, reconnectAttempts * reconnectAttempts);
+        reconnectDelayMillis = Math.max(0, reconnectStrategy.getDelayMillis(reconnectAttempts, reconnectDelayMillis));
 
         factory
                 .getTimers()
@@ -262,8 +396,8 @@ public class WebSocketConnection implements InternalConnection, WebSocketListene
                                 tryConnecting();
                             }
                         },
-                        reconnectInterval,
-                        TimeUnit.SECONDS
+                        reconnectDelayMillis,
+                        TimeUnit.MILLISECONDS
                 );
     }
 
@@ -283,6 +417,7 @@ public class WebSocketConnection implements InternalConnection, WebSocketListene
             }
         });
         reconnectAttempts = 0;
+        reconnectDelayMillis = 0;
     }
 
     @Override
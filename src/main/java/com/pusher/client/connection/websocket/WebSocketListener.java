@@ -2,11 +2,19 @@ package com.pusher.client.connection.websocket;
 
 import org.java_websocket.handshake.ServerHandshake;
 
+import java.nio.ByteBuffer;
+
 public interface WebSocketListener {
     void onOpen(ServerHandshake handshakeData);
 
     void onMessage(String message);
 
+    /**
+     * Called with the UTF-8 payload of a binary frame, or of a text frame when
+     * frames are parsed from their bytes. Ownership of the buffer is passed on.
+     */
+    void onMessage(ByteBuffer message);
+
     void onClose(int code, String reason, boolean remote);
 
     void onError(Exception ex);
@@ -0,0 +1,172 @@
+package com.pusher.client.example;
+
+import com.pusher.client.ReconnectStrategy;
+import com.pusher.client.util.internal.Backoff;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/*
+This app simulates a fleet of clients which all lose their connections at the
+same moment, as when a cluster restarts, and prints how their attempts to
+reconnect spread out over time with each of the built-in reconnect strategies.
+
+The server is down for the outage, then accepts a limited number of
+connections a second and rejects the rest, which try again after their next
+delay. No network is involved, the clock is simulated.
+
+Run it with optional arguments: clients, outage in ms, connections accepted a
+second, base delay in ms and cap in ms.
+*/
+
+public class ReconnectSimulation {
+
+    private static final long BUCKET_MILLIS = 1000;
+    private static final long HORIZON_MILLIS = 10 * 60 * 1000;
+
+    private final int clients;
+    private final long outageMillis;
+    private final int acceptedPerSecond;
+
+    public static void main(final String[] args) {
+        final int clients = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        final long outageMillis = args.length > 1 ? Long.parseLong(args[1]) : 5000;
+        final int acceptedPerSecond = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        final long baseMillis = args.length > 3 ? Long.parseLong(args[3]) : 1000;
+        final long capMillis = args.length > 4 ? Long.parseLong(args[4]) : 30000;
+
+        final ReconnectSimulation simulation = new ReconnectSimulation(clients, outageMillis, acceptedPerSecond);
+        final Random random = new Random(42);
+        final Backoff.Kind[] kinds = {
+                Backoff.Kind.EXPONENTIAL,
+                Backoff.Kind.FULL_JITTER,
+                Backoff.Kind.DECORRELATED_JITTER
+        };
+        for (final Backoff.Kind kind : kinds) {
+            final Result result = simulation.run(new Backoff(kind, baseMillis, capMillis, random));
+            System.out.printf(
+                    "%n%s: %d attempts, %d rejected, peak %d attempts/s, all connected after %.1fs%n",
+                    kind,
+                    result.getAttempts(),
+                    result.getRejected(),
+                    result.peakAttemptsPerSecond(),
+                    result.getAllConnectedMillis() / 1000.0
+            );
+            result.print(60);
+        }
+    }
+
+    /**
+     * @param clients           The clients which lose their connections at time 0.
+     * @param outageMillis      How long the server rejects every attempt.
+     * @param acceptedPerSecond How many attempts a second the server accepts
+     *                          once it is back.
+     */
+    public ReconnectSimulation(final int clients, final long outageMillis, final int acceptedPerSecond) {
+        this.clients = clients;
+        this.outageMillis = outageMillis;
+        this.acceptedPerSecond = acceptedPerSecond;
+    }
+
+    public Result run(final ReconnectStrategy strategy) {
+        final int[] attemptsPerSecond = new int[(int) (HORIZON_MILLIS / BUCKET_MILLIS)];
+        final int[] acceptedInSecond = new int[attemptsPerSecond.length];
+        final PriorityQueue<Attempt> pending = new PriorityQueue<>(clients, (a, b) -> Long.compare(a.atMillis, b.atMillis));
+        for (int i = 0; i < clients; i++) {
+            final long delay = strategy.getDelayMillis(1, 0);
+            pending.add(new Attempt(delay, 1, delay));
+        }
+
+        final Result result = new Result(attemptsPerSecond);
+        while (!pending.isEmpty()) {
+            final Attempt attempt = pending.poll();
+            final int second = (int) (attempt.atMillis / BUCKET_MILLIS);
+            if (second >= attemptsPerSecond.length) {
+                result.gaveUp = pending.size() + 1;
+                break;
+            }
+            attemptsPerSecond[second]++;
+            result.attempts++;
+            if (attempt.atMillis >= outageMillis && acceptedInSecond[second] < acceptedPerSecond) {
+                acceptedInSecond[second]++;
+                result.allConnectedMillis = attempt.atMillis;
+                continue;
+            }
+            result.rejected++;
+            final long delay = strategy.getDelayMillis(attempt.number + 1, attempt.delayMillis);
+            pending.add(new Attempt(attempt.atMillis + delay, attempt.number + 1, delay));
+        }
+        return result;
+    }
+
+    private static final class Attempt {
+
+        final long atMillis;
+        final int number;
+        final long delayMillis;
+
+        Attempt(final long atMillis, final int number, final long delayMillis) {
+            this.atMillis = atMillis;
+            this.number = number;
+            this.delayMillis = delayMillis;
+        }
+    }
+
+    public static final class Result {
+
+        private final int[] attemptsPerSecond;
+        private int attempts;
+        private int rejected;
+        private int gaveUp;
+        private long allConnectedMillis;
+
+        Result(final int[] attemptsPerSecond) {
+            this.attemptsPerSecond = attemptsPerSecond;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public int getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @return the clients still not connected at the end of the simulation
+         */
+        public int getGaveUp() {
+            return gaveUp;
+        }
+
+        public long getAllConnectedMillis() {
+            return allConnectedMillis;
+        }
+
+        public int peakAttemptsPerSecond() {
+            int peak = 0;
+            for (final int count : attemptsPerSecond) {
+                peak = Math.max(peak, count);
+            }
+            return peak;
+        }
+
+        /**
+         * Prints a bar of attempts for each second up to the last client
+         * connecting.
+         */
+        void print(final int width) {
+            final int peak = Math.max(1, peakAttemptsPerSecond());
+            final int seconds = (int) Math.min(attemptsPerSecond.length - 1, allConnectedMillis / BUCKET_MILLIS);
+            final StringBuilder bar = new StringBuilder();
+            for (int second = 0; second <= seconds; second++) {
+                bar.setLength(0);
+                final int length = (int) ((long) attemptsPerSecond[second] * width / peak);
+                for (int i = 0; i < length; i++) {
+                    bar.append('#');
+                }
+                System.out.printf("%4ds %6d %s%n", second, attemptsPerSecond[second], bar);
+            }
+        }
+    }
+}
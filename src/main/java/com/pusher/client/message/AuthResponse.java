@@ -1,7 +1,11 @@
-package com.pusher.client.channel.impl.message;
+package com.pusher.client.message;
 
 import com.google.gson.annotations.SerializedName;
 
+/**
+ * The response of a {@link com.pusher.client.ChannelAuthorizer} to a
+ * subscription to a private or presence channel.
+ */
 public class AuthResponse {
 
     private String auth;
@@ -13,6 +17,16 @@ public class AuthResponse {
     @SerializedName("shared_secret")
     private String sharedSecret;
 
+    public AuthResponse() {
+        // for Gson
+    }
+
+    public AuthResponse(final String auth, final String channelData, final String sharedSecret) {
+        this.auth = auth;
+        this.channelData = channelData;
+        this.sharedSecret = sharedSecret;
+    }
+
     public String getAuth() {
         return auth;
     }
@@ -0,0 +1,32 @@
+package com.pusher.client.message;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * The response of a {@link com.pusher.client.UserAuthenticator} to a sign
+ * in.
+ */
+public class AuthenticationResponse {
+
+    private String auth;
+
+    @SerializedName("user_data")
+    private String userData;
+
+    public AuthenticationResponse() {
+        // for Gson
+    }
+
+    public AuthenticationResponse(final String auth, final String userData) {
+        this.auth = auth;
+        this.userData = userData;
+    }
+
+    public String getAuth() {
+        return auth;
+    }
+
+    public String getUserData() {
+        return userData;
+    }
+}
@@ -0,0 +1,25 @@
+package com.pusher.client.message;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * The channel data of a presence channel subscription, as much of it as
+ * the client reads.
+ */
+public class ChannelData {
+
+    @SerializedName("user_id")
+    private String userId;
+
+    public ChannelData() {
+        // for Gson
+    }
+
+    public ChannelData(final String userId) {
+        this.userId = userId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+}
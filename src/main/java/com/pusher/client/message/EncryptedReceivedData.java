@@ -0,0 +1,30 @@
+package com.pusher.client.message;
+
+import com.pusher.client.util.internal.Base64;
+
+/**
+ * The data of an event on a private encrypted channel, before it is
+ * decrypted.
+ */
+public class EncryptedReceivedData {
+
+    private String nonce;
+    private String ciphertext;
+
+    public EncryptedReceivedData() {
+        // for Gson
+    }
+
+    public EncryptedReceivedData(final String nonce, final String ciphertext) {
+        this.nonce = nonce;
+        this.ciphertext = ciphertext;
+    }
+
+    public byte[] getNonce() {
+        return Base64.decode(nonce);
+    }
+
+    public byte[] getCiphertext() {
+        return Base64.decode(ciphertext);
+    }
+}
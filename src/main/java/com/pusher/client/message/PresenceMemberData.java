@@ -0,0 +1,38 @@
+package com.pusher.client.message;
+
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * The data of a member_added or member_removed event of a presence channel.
+ */
+public class PresenceMemberData {
+
+    @SerializedName("user_id")
+    private String id;
+
+    // kept as the JSON text it was received as, it is handed to User as is
+    @SerializedName("user_info")
+    @JsonAdapter(RawJsonAdapter.class)
+    private String info;
+
+    public PresenceMemberData() {
+        // for Gson
+    }
+
+    public PresenceMemberData(final String id, final String info) {
+        this.id = id;
+        this.info = info;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the member's info as JSON text, or null if it has none
+     */
+    public String getInfo() {
+        return info;
+    }
+}
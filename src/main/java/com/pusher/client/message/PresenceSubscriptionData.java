@@ -0,0 +1,52 @@
+package com.pusher.client.message;
+
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The data of the subscription_succeeded event of a presence channel, the
+ * members already subscribed.
+ */
+public class PresenceSubscriptionData {
+
+    @SerializedName("presence")
+    public PresenceData presence;
+
+    public PresenceSubscriptionData() {
+        // no presence data
+    }
+
+    public PresenceSubscriptionData(final Integer count, final List<String> ids, final Map<String, String> hash) {
+        this.presence = new PresenceData();
+        this.presence.count = count;
+        this.presence.ids = ids;
+        this.presence.hash = hash;
+    }
+
+    public List<String> getIds() {
+        return presence.ids;
+    }
+
+    /**
+     * @return the info of each member as JSON text, keyed by member id
+     */
+    public Map<String, String> getHash() {
+        return presence.hash;
+    }
+
+    static class PresenceData {
+
+        @SerializedName("count")
+        public Integer count;
+
+        @SerializedName("ids")
+        public List<String> ids;
+
+        @SerializedName("hash")
+        @JsonAdapter(RawJsonAdapter.MapAdapter.class)
+        public Map<String, String> hash;
+    }
+}
@@ -0,0 +1,75 @@
+package com.pusher.client.message;
+
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps a JSON value as JSON text rather than mapping it onto a type, for
+ * messages decoded by Gson reflection. A JsonReader cannot hand out the text
+ * it read, so the value is read as a tree and written out again, which keeps
+ * numbers as they were sent. The streaming codec captures the text directly.
+ */
+class RawJsonAdapter extends TypeAdapter<String> {
+
+    @Override
+    public String read(final JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return JsonParser.parseReader(in).toString();
+    }
+
+    @Override
+    public void write(final JsonWriter out, final String json) throws IOException {
+        if (json == null) {
+            out.nullValue();
+        } else {
+            out.jsonValue(json);
+        }
+    }
+
+    /**
+     * The same for each value of an object.
+     */
+    static class MapAdapter extends TypeAdapter<Map<String, String>> {
+
+        private final RawJsonAdapter valueAdapter = new RawJsonAdapter();
+
+        @Override
+        public Map<String, String> read(final JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            final Map<String, String> map = new LinkedHashMap<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                map.put(in.nextName(), valueAdapter.read(in));
+            }
+            in.endObject();
+            return map;
+        }
+
+        @Override
+        public void write(final JsonWriter out, final Map<String, String> map) throws IOException {
+            if (map == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            for (final Map.Entry<String, String> entry : map.entrySet()) {
+                out.name(entry.getKey());
+                valueAdapter.write(out, entry.getValue());
+            }
+            out.endObject();
+        }
+    }
+}
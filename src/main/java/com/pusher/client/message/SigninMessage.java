@@ -1,8 +1,11 @@
-package com.pusher.client.user.impl.message;
+package com.pusher.client.message;
 
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * The pusher:signin message sent to sign a user in.
+ */
 public class SigninMessage {
 
     private final String event = "pusher:signin";
@@ -12,4 +15,12 @@ public class SigninMessage {
         data.put("auth", auth);
         data.put("user_data", userData);
     }
+
+    public String getEvent() {
+        return event;
+    }
+
+    public Map<String, String> getData() {
+        return data;
+    }
 }
@@ -1,8 +1,11 @@
-package com.pusher.client.channel.impl.message;
+package com.pusher.client.message;
 
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * The pusher:subscribe message sent to subscribe to a channel.
+ */
 public class SubscribeMessage {
 
     private final String event = "pusher:subscribe";
@@ -23,4 +26,12 @@ public class SubscribeMessage {
             data.put("channel_data", channelData);
         }
     }
+
+    public String getEvent() {
+        return event;
+    }
+
+    public Map<String, String> getData() {
+        return data;
+    }
 }
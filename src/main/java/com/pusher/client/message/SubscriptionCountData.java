@@ -1,7 +1,10 @@
-package com.pusher.client.channel.impl.message;
+package com.pusher.client.message;
 
 import com.google.gson.annotations.SerializedName;
 
+/**
+ * The data of a pusher_internal:subscription_count event.
+ */
 public class SubscriptionCountData {
 
     @SerializedName("subscription_count")
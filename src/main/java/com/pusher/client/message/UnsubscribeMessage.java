@@ -1,8 +1,11 @@
-package com.pusher.client.channel.impl.message;
+package com.pusher.client.message;
 
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * The pusher:unsubscribe message sent to unsubscribe from a channel.
+ */
 public class UnsubscribeMessage {
 
     private final String event = "pusher:unsubscribe";
@@ -11,4 +14,12 @@ public class UnsubscribeMessage {
     public UnsubscribeMessage(String channelName) {
         data.put("channel", channelName);
     }
+
+    public String getEvent() {
+        return event;
+    }
+
+    public Map<String, String> getData() {
+        return data;
+    }
 }
@@ -0,0 +1,4 @@
+/**
+ * The protocol messages exchanged with Pusher, which an {@link com.pusher.client.EnvelopeCodec EnvelopeCodec} decodes and encodes.
+ */
+package com.pusher.client.message;
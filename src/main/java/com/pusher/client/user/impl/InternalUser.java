@@ -1,9 +1,10 @@
 package com.pusher.client.user.impl;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.pusher.client.AuthenticationFailureException;
+import com.pusher.client.EnvelopeCodec;
 import com.pusher.client.UserAuthenticator;
+import com.pusher.client.channel.EventKind;
 import com.pusher.client.channel.PusherEvent;
 import com.pusher.client.channel.SubscriptionEventListener;
 import com.pusher.client.channel.impl.ChannelManager;
@@ -11,9 +12,9 @@ import com.pusher.client.connection.ConnectionEventListener;
 import com.pusher.client.connection.ConnectionState;
 import com.pusher.client.connection.ConnectionStateChange;
 import com.pusher.client.connection.impl.InternalConnection;
+import com.pusher.client.message.AuthenticationResponse;
+import com.pusher.client.message.SigninMessage;
 import com.pusher.client.user.User;
-import com.pusher.client.user.impl.message.AuthenticationResponse;
-import com.pusher.client.user.impl.message.SigninMessage;
 import com.pusher.client.util.Factory;
 
 import java.util.Map;
@@ -21,7 +22,6 @@ import java.util.logging.Logger;
 
 public class InternalUser implements User {
 
-    private static final Gson GSON = new Gson();
     private static final Logger log = Logger.getLogger(User.class.getName());
 
     private static class ConnectionStateChangeHandler implements ConnectionEventListener {
@@ -56,6 +56,7 @@ public class InternalUser implements User {
     private final InternalConnection connection;
     private final UserAuthenticator userAuthenticator;
     private final ChannelManager channelManager;
+    private final EnvelopeCodec codec;
     private boolean signinRequested;
     private final ServerToUserChannel serverToUserChannel;
     private String userId;
@@ -64,6 +65,7 @@ public class InternalUser implements User {
         this.connection = connection;
         this.userAuthenticator = userAuthenticator;
         this.channelManager = factory.getChannelManager();
+        this.codec = factory.getEnvelopeCodec();
         this.signinRequested = false;
         this.serverToUserChannel = new ServerToUserChannel(this, factory);
 
@@ -80,7 +82,7 @@ public class InternalUser implements User {
     }
 
     public void handleEvent(PusherEvent event) {
-        if (event.getEventName().equals("pusher:signin_success")) {
+        if (event.getKind() == EventKind.SIGNIN_SUCCESS) {
             onSigninSuccess(event);
         }
     }
@@ -99,14 +101,14 @@ public class InternalUser implements User {
         connection.sendMessage(authenticationResponseToSigninMessage(authenticationResponse));
     }
 
-    private static String authenticationResponseToSigninMessage(AuthenticationResponse authenticationResponse) {
-        return GSON.toJson(new SigninMessage(authenticationResponse.getAuth(), authenticationResponse.getUserData()));
+    private String authenticationResponseToSigninMessage(AuthenticationResponse authenticationResponse) {
+        return codec.encode(new SigninMessage(authenticationResponse.getAuth(), authenticationResponse.getUserData()));
     }
 
     private AuthenticationResponse getAuthenticationResponse() throws AuthenticationFailureException {
         String response = userAuthenticator.authenticate(connection.getSocketId());
         try {
-            AuthenticationResponse authenticationResponse = GSON.fromJson(response, AuthenticationResponse.class);
+            AuthenticationResponse authenticationResponse = codec.decode(response, AuthenticationResponse.class);
             if (authenticationResponse.getAuth() == null || authenticationResponse.getUserData() == null) {
                 throw new AuthenticationFailureException(
                         "Didn't receive all the fields expected from the UserAuthenticator. Expected auth and user_data"
@@ -120,8 +122,8 @@ public class InternalUser implements User {
 
     private void onSigninSuccess(PusherEvent event) {
         try {
-            String userData = (String) GSON.fromJson(event.getData(), Map.class).get("user_data");
-            userId = (String) GSON.fromJson(userData, Map.class).get("id");
+            String userData = (String) codec.decode(event.getData(), Map.class).get("user_data");
+            userId = (String) codec.decode(userData, Map.class).get("id");
         } catch (Exception e) {
             log.severe("Failed parsing user data after signin");
             return;
@@ -1,6 +1,8 @@
 package com.pusher.client.util;
 
 import com.pusher.client.ChannelAuthorizer;
+import com.pusher.client.EnvelopeCodec;
+import com.pusher.client.EventQueueStats;
 import com.pusher.client.PusherOptions;
 import com.pusher.client.UserAuthenticator;
 import com.pusher.client.channel.PusherEvent;
@@ -10,17 +12,36 @@ import com.pusher.client.channel.impl.PresenceChannelImpl;
 import com.pusher.client.channel.impl.PrivateChannelImpl;
 import com.pusher.client.channel.impl.PrivateEncryptedChannelImpl;
 import com.pusher.client.connection.impl.InternalConnection;
+import com.pusher.client.connection.websocket.PerMessageDeflate;
+import com.pusher.client.connection.websocket.SharedConnection;
+import com.pusher.client.connection.websocket.Utf8FrameDraft;
 import com.pusher.client.connection.websocket.WebSocketClientWrapper;
 import com.pusher.client.connection.websocket.WebSocketConnection;
 import com.pusher.client.connection.websocket.WebSocketListener;
 import com.pusher.client.crypto.nacl.SecretBoxOpenerFactory;
 import com.pusher.client.user.impl.InternalUser;
+import com.pusher.client.util.internal.BoundedInbox;
+import com.pusher.client.util.internal.EventLoop;
+import com.pusher.client.util.internal.OutboundQueue;
+import com.pusher.client.util.internal.SerialExecutor;
+import com.pusher.client.util.internal.VirtualThreads;
+
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.IExtension;
 
 import java.net.Proxy;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.function.Consumer;
@@ -46,11 +67,59 @@ import javax.net.ssl.SSLException;
  */
 public class Factory {
 
+    private final PusherOptions options;
+    private final SymbolTable symbols;
     private InternalConnection connection;
     private ChannelManager channelManager;
-    private ExecutorService eventQueue;
+    // The event queue serializes this client's tasks. It runs them on the
+    // event thread, which the factory owns, unless the options supply an
+    // executor, which the caller owns and which is never shut down here.
+    private Executor eventQueue;
+    private ExecutorService eventThread;
+    // Takes the place of the event queue when a ring buffer is configured.
+    private EventLoop eventLoop;
+    // Holds inbound frames ahead of the event queue when it is bounded.
+    private final BoundedInbox inbox;
+    private Executor[] lanes;
+    private ExecutorService virtualThreads;
+    private final ConcurrentMap<String, Executor> channelLanes = new ConcurrentHashMap<>();
     private ScheduledExecutorService timers;
-    private static final Object eventLock = new Object();
+    // Serializes the tasks of this client only, other clients in the same JVM
+    // have event threads of their own which run alongside this one. The event
+    // thread alone serializes its tasks, the lock covers the handover when the
+    // threads are shut down and a new event thread is started.
+    private final Object eventLock = new Object();
+
+    public Factory() {
+        this(new PusherOptions());
+    }
+
+    public Factory(final PusherOptions options) {
+        this(options, new SymbolTable(
+                "pusher:connection_established",
+                "pusher:error",
+                "pusher:pong",
+                "pusher:signin_success",
+                "pusher_internal:subscription_succeeded",
+                "pusher_internal:subscription_count",
+                "pusher_internal:member_added",
+                "pusher_internal:member_removed"
+        ));
+    }
+
+    private Factory(final PusherOptions options, final SymbolTable symbols) {
+        this.options = options;
+        this.symbols = symbols;
+        // options are null when Pusher is about to reject them
+        this.inbox = options != null && options.getEventQueueCapacity() > 0
+                ? new BoundedInbox(
+                        options.getEventQueueCapacity(),
+                        options.getOverflowPolicy(),
+                        options.getEventQueueListener(),
+                        this::queueOnEventThread
+                )
+                : null;
+    }
 
     public synchronized InternalConnection getConnection(
             final String apiKey,
@@ -58,34 +127,83 @@ public class Factory {
             final Consumer<PusherEvent> eventHandler
     ) {
         if (connection == null) {
-            try {
-                connection =
-                        new WebSocketConnection(
-                                options.buildUrl(apiKey),
-                                options.getActivityTimeout(),
-                                options.getPongTimeout(),
-                                options.getMaxReconnectionAttempts(),
-                                options.getMaxReconnectGapInSeconds(),
-                                options.getProxy(),
-                                eventHandler,
-                                this
-                        );
-            } catch (final URISyntaxException e) {
-                throw new IllegalArgumentException("Failed to initialise connection", e);
-            }
+            connection = options.isSharedConnection()
+                    ? SharedConnection.acquire(apiKey, options, () -> new Factory(options), eventHandler)
+                    : newWebSocketConnection(apiKey, options, eventHandler);
         }
         return connection;
     }
 
+    public InternalConnection newWebSocketConnection(
+            final String apiKey,
+            final PusherOptions options,
+            final Consumer<PusherEvent> eventHandler
+    ) {
+        try {
+            return new WebSocketConnection(
+                    options.buildUrl(apiKey),
+                    options.getActivityTimeout(),
+                    options.getPongTimeout(),
+                    options.getMaxReconnectionAttempts(),
+                    options.getReconnectStrategy(),
+                    options.getProxy(),
+                    eventHandler,
+                    this
+            );
+        } catch (final URISyntaxException e) {
+            throw new IllegalArgumentException("Failed to initialise connection", e);
+        }
+    }
+
+    /**
+     * Creates the connection of one more shard of a sharded client. Each shard
+     * gets a factory of its own, and so a socket, reader thread and event
+     * thread of its own, but the shards share this factory's symbol table so
+     * that names are interned once for all of them.
+     *
+     * @see PusherOptions#setConnectionShards(int)
+     */
+    public InternalConnection newShardConnection(
+            final String apiKey,
+            final PusherOptions options,
+            final Consumer<PusherEvent> eventHandler
+    ) {
+        return new Factory(options, symbols).newWebSocketConnection(apiKey, options, eventHandler);
+    }
+
+    public EnvelopeCodec getEnvelopeCodec() {
+        return options.getEnvelopeCodec();
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+    /**
+     * @return a borrowed event for the connection to parse frames into, or
+     * null if events are not to be reused.
+     */
+    public PusherEvent newBorrowedEvent() {
+        return options.isBorrowedEvents() ? PusherEvent.newBorrowed() : null;
+    }
+
     public WebSocketClientWrapper newWebSocketClientWrapper(
             final URI uri,
             final Proxy proxy,
             final WebSocketListener webSocketListener
     ) throws SSLException {
-        return new WebSocketClientWrapper(uri, proxy, webSocketListener);
+        final List<IExtension> extensions = options.isPerMessageDeflate()
+                ? Collections.<IExtension>singletonList(
+                        new PerMessageDeflate(options.getDeflateThreshold(), options.getDeflateLevel()))
+                : Collections.<IExtension>emptyList();
+        final Draft draft = options.isByteFrameParsing() ? new Utf8FrameDraft(extensions) : new Draft_6455(extensions);
+        return new WebSocketClientWrapper(uri, proxy, webSocketListener, draft);
     }
 
     public synchronized ScheduledExecutorService getTimers() {
+        if (options.getScheduledExecutor() != null) {
+            return options.getScheduledExecutor();
+        }
         if (timers == null) {
             timers = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("timers"));
         }
@@ -131,9 +249,77 @@ public class Factory {
         return channelManager;
     }
 
-    public synchronized void queueOnEventThread(final Runnable r) {
+    public void queueOnEventThread(final Runnable r) {
+        if (options.getRingBufferCapacity() > 0) {
+            // a loop which has just been shut down turns the task away
+            while (!getEventLoop().execute(r)) {
+                Thread.yield();
+            }
+        } else {
+            queueOnEventQueue(r);
+        }
+    }
+
+    /**
+     * Queues a frame received on the socket for the handler to decode on the
+     * event thread. With a ring buffer the frame is published into it in place,
+     * otherwise this is the same as queueing a task which handles the frame.
+     * If the event queue is bounded the frame waits in the bounded queue first.
+     *
+     * @see PusherOptions#setRingBufferEventLoop(int, com.pusher.client.WaitStrategy)
+     * @see PusherOptions#setBoundedEventQueue(int, com.pusher.client.OverflowPolicy)
+     */
+    public void queueFrameOnEventThread(final EventLoop.FrameHandler handler, final String frame) {
+        if (inbox != null) {
+            inbox.offer(handler, frame);
+        } else if (options.getRingBufferCapacity() > 0) {
+            while (!getEventLoop().publish(handler, frame)) {
+                Thread.yield();
+            }
+        } else {
+            queueOnEventQueue(() -> handler.handleFrame(frame));
+        }
+    }
+
+    /**
+     * @see #queueFrameOnEventThread(EventLoop.FrameHandler, String)
+     */
+    public void queueFrameOnEventThread(final EventLoop.FrameHandler handler, final ByteBuffer frame) {
+        if (inbox != null) {
+            inbox.offer(handler, frame);
+        } else if (options.getRingBufferCapacity() > 0) {
+            while (!getEventLoop().publish(handler, frame)) {
+                Thread.yield();
+            }
+        } else {
+            queueOnEventQueue(() -> handler.handleFrame(frame));
+        }
+    }
+
+    /**
+     * @return a queue for the messages a connection sends, which tells the
+     * outbound queue listener of the options of backpressure
+     */
+    public OutboundQueue newOutboundQueue() {
+        return new OutboundQueue(options.getOutboundQueueListener(), options.getOutboundHighWaterMark());
+    }
+
+    /**
+     * @return the counters of the bounded event queue, or null if the event
+     * queue is not bounded
+     */
+    public EventQueueStats getEventQueueStats() {
+        return inbox;
+    }
+
+    private synchronized void queueOnEventQueue(final Runnable r) {
         if (eventQueue == null) {
-            eventQueue = Executors.newSingleThreadExecutor(new DaemonThreadFactory("eventQueue"));
+            if (options.getEventExecutor() != null) {
+                eventQueue = new SerialExecutor(options.getEventExecutor());
+            } else {
+                eventThread = Executors.newSingleThreadExecutor(new DaemonThreadFactory("eventQueue"));
+                eventQueue = eventThread;
+            }
         }
         eventQueue.execute(() -> {
             synchronized (eventLock) {
@@ -142,11 +328,143 @@ public class Factory {
         });
     }
 
+    // The loop is fetched under the monitor but published to outside it, so
+    // that a publisher waiting on a full ring does not hold up the others.
+    private synchronized EventLoop getEventLoop() {
+        if (eventLoop == null) {
+            eventLoop = new EventLoop(
+                    options.getRingBufferCapacity(),
+                    options.getWaitStrategy(),
+                    eventLock,
+                    new DaemonThreadFactory("eventLoop")
+            );
+        }
+        return eventLoop;
+    }
+
+    /**
+     * Queues a call to a listener of a channel. Unless dispatch lanes are
+     * configured this is the same as {@link #queueOnEventThread(Runnable)},
+     * otherwise the call runs on the lane of the channel, after any calls
+     * queued for the channel before it.
+     *
+     * @see PusherOptions#setDispatchLanes(int)
+     */
+    public void queueOnChannelThread(final String channelName, final Runnable r) {
+        if (options.isVirtualThreadDispatch() && VirtualThreads.isSupported()) {
+            getChannelLane(channelName).execute(r);
+        } else if (options.getDispatchLanes() == 0) {
+            queueOnEventThread(r);
+        } else {
+            getLane(laneOf(channelName)).execute(r);
+        }
+    }
+
+    /**
+     * @return whether channels call their listeners as they route events,
+     * which is only the case while listeners are called on the event thread
+     *
+     * @see PusherOptions#setInlineDispatch(boolean)
+     */
+    public boolean isInlineDispatch() {
+        return options.isInlineDispatch() && !isLaneDispatch();
+    }
+
+    /**
+     * @return whether channel listeners are called on lanes of their own
+     * rather than on the event thread
+     *
+     * @see PusherOptions#setDispatchLanes(int)
+     * @see PusherOptions#setVirtualThreadDispatch(boolean)
+     */
+    public boolean isLaneDispatch() {
+        return options.getDispatchLanes() > 0 ||
+                (options.isVirtualThreadDispatch() && VirtualThreads.isSupported());
+    }
+
+    private Executor getChannelLane(final String channelName) {
+        final Executor lane = channelLanes.get(channelName);
+        if (lane != null) {
+            return lane;
+        }
+        return channelLanes.computeIfAbsent(channelName, name -> new SerialExecutor(getVirtualThreads()));
+    }
+
+    /**
+     * Lets go of the lane of a channel which has been unsubscribed from, once
+     * the calls already queued on it have run.
+     */
+    public void releaseChannelThread(final String channelName) {
+        final Executor lane = channelLanes.get(channelName);
+        if (lane == null) {
+            return;
+        }
+        try {
+            lane.execute(() -> channelLanes.remove(channelName, lane));
+        } catch (final RejectedExecutionException e) {
+            // shut down, nothing is left to run on it
+            channelLanes.remove(channelName, lane);
+        }
+    }
+
+    boolean hasChannelLane(final String channelName) {
+        return channelLanes.containsKey(channelName);
+    }
+
+    private synchronized ExecutorService getVirtualThreads() {
+        if (virtualThreads == null) {
+            virtualThreads = VirtualThreads.newThreadPerTaskExecutor("pusher-java-client channel-");
+        }
+        return virtualThreads;
+    }
+
+    int laneOf(final String channelName) {
+        final int hash = channelName != null ? channelName.hashCode() : 0;
+        return Math.floorMod(hash ^ (hash >>> 16), options.getDispatchLanes());
+    }
+
+    private synchronized Executor getLane(final int lane) {
+        if (lanes == null) {
+            lanes = new Executor[options.getDispatchLanes()];
+        }
+        if (lanes[lane] == null) {
+            if (options.getEventExecutor() != null) {
+                lanes[lane] = new SerialExecutor(options.getEventExecutor());
+            } else {
+                lanes[lane] = Executors.newSingleThreadExecutor(new DaemonThreadFactory("lane-" + lane));
+            }
+        }
+        return lanes[lane];
+    }
+
+    /**
+     * Shuts down the threads the factory started. Executors supplied through
+     * the options belong to the caller and are left running, and the queues
+     * over them are kept so that tasks stay in order across reconnections.
+     */
     public synchronized void shutdownThreads() {
-        if (eventQueue != null) {
-            eventQueue.shutdown();
+        if (eventLoop != null) {
+            eventLoop.shutdown();
+            eventLoop = null;
+        }
+        if (eventThread != null) {
+            eventThread.shutdown();
+            eventThread = null;
             eventQueue = null;
         }
+        if (lanes != null && options.getEventExecutor() == null) {
+            for (final Executor lane : lanes) {
+                if (lane != null) {
+                    ((ExecutorService) lane).shutdown();
+                }
+            }
+            lanes = null;
+        }
+        if (virtualThreads != null) {
+            virtualThreads.shutdown();
+            virtualThreads = null;
+            channelLanes.clear();
+        }
         if (timers != null) {
             timers.shutdown();
             timers = null;
@@ -0,0 +1,54 @@
+package com.pusher.client.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.pusher.client.EnvelopeCodec;
+import com.pusher.client.channel.PusherEvent;
+
+/**
+ * An {@link EnvelopeCodec} which uses Gson reflection and tree models.
+ * <p>
+ * Inbound events are decoded into a full {@link JsonObject} tree and messages
+ * are mapped to and from their classes reflectively. It is the most permissive
+ * codec, but also the one which allocates the most per message.
+ */
+public class GsonEnvelopeCodec implements EnvelopeCodec {
+
+    private final Gson gson = new Gson();
+    private final Gson eventGson = new GsonBuilder().disableHtmlEscaping().create();
+
+    @Override
+    public PusherEvent decodeEvent(final String message) {
+        return new PusherEvent(eventGson.fromJson(message, JsonObject.class));
+    }
+
+    @Override
+    public String encodeEvent(final PusherEvent event) {
+        return event.toJson();
+    }
+
+    @Override
+    public <T> T decode(final String json, final Class<T> type) {
+        return gson.fromJson(json, type);
+    }
+
+    @Override
+    public String encode(final Object message) {
+        return gson.toJson(message);
+    }
+
+    /**
+     * Codecs of this class keep no state, so any two of them are equal, which
+     * lets clients with the same options share a connection.
+     */
+    @Override
+    public boolean equals(final Object o) {
+        return o != null && o.getClass() == getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
@@ -0,0 +1,439 @@
+package com.pusher.client.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.pusher.client.EnvelopeCodec;
+import com.pusher.client.channel.PusherEvent;
+import com.pusher.client.message.AuthResponse;
+import com.pusher.client.message.AuthenticationResponse;
+import com.pusher.client.message.ChannelData;
+import com.pusher.client.message.EncryptedReceivedData;
+import com.pusher.client.message.PresenceMemberData;
+import com.pusher.client.message.PresenceSubscriptionData;
+import com.pusher.client.message.SigninMessage;
+import com.pusher.client.message.SubscribeMessage;
+import com.pusher.client.message.SubscriptionCountData;
+import com.pusher.client.message.UnsubscribeMessage;
+import com.pusher.client.util.internal.JsonScanner;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An {@link EnvelopeCodec} built from hand-written streaming readers and
+ * writers, this is the default codec.
+ * <p>
+ * Inbound envelopes are scanned in a single pass which leaves the event data
+ * undecoded until it is asked for, see {@link PusherEvent#fromJson(String)}.
+ * Protocol messages are read with a {@link JsonReader} and written with a
+ * {@link JsonWriter} directly, without building tree models or reflecting
+ * over the message classes. Presence member info is captured as the JSON text
+ * it was received as, with a {@link JsonScanner}, rather than being decoded and
+ * serialized again. Classes the codec does not know about are handled by Gson
+ * reflection.
+ */
+public class StreamingEnvelopeCodec implements EnvelopeCodec {
+
+    // the directions the client never takes itself, done as GsonEnvelopeCodec does
+    private static final Gson REFLECTIVE = new Gson();
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(AuthResponse.class, new AuthResponseAdapter())
+            .registerTypeAdapter(ChannelData.class, new ChannelDataAdapter())
+            .registerTypeAdapter(EncryptedReceivedData.class, new EncryptedReceivedDataAdapter())
+            .registerTypeAdapter(SubscriptionCountData.class, new SubscriptionCountDataAdapter())
+            .registerTypeAdapter(AuthenticationResponse.class, new AuthenticationResponseAdapter())
+            .registerTypeAdapter(SubscribeMessage.class, new OutboundMessageAdapter<SubscribeMessage>(SubscribeMessage.class) {
+                @Override
+                public void write(final JsonWriter out, final SubscribeMessage message) throws IOException {
+                    writeMessage(out, message.getEvent(), message.getData());
+                }
+            })
+            .registerTypeAdapter(UnsubscribeMessage.class, new OutboundMessageAdapter<UnsubscribeMessage>(UnsubscribeMessage.class) {
+                @Override
+                public void write(final JsonWriter out, final UnsubscribeMessage message) throws IOException {
+                    writeMessage(out, message.getEvent(), message.getData());
+                }
+            })
+            .registerTypeAdapter(SigninMessage.class, new OutboundMessageAdapter<SigninMessage>(SigninMessage.class) {
+                @Override
+                public void write(final JsonWriter out, final SigninMessage message) throws IOException {
+                    writeMessage(out, message.getEvent(), message.getData());
+                }
+            })
+            .create();
+
+    @Override
+    public PusherEvent decodeEvent(final String message) {
+        return PusherEvent.fromJson(message);
+    }
+
+    @Override
+    public PusherEvent decodeEvent(final String message, final SymbolTable symbols) {
+        return PusherEvent.fromJson(message, symbols);
+    }
+
+    @Override
+    public PusherEvent decodeEvent(final ByteBuffer message, final SymbolTable symbols) {
+        return PusherEvent.fromJson(message, symbols);
+    }
+
+    @Override
+    public PusherEvent decodeEvent(final String message, final SymbolTable symbols, final PusherEvent reuse) {
+        return PusherEvent.fromJson(message, symbols, reuse);
+    }
+
+    @Override
+    public PusherEvent decodeEvent(final ByteBuffer message, final SymbolTable symbols, final PusherEvent reuse) {
+        return PusherEvent.fromJson(message, symbols, reuse);
+    }
+
+    @Override
+    public String encodeEvent(final PusherEvent event) {
+        final StringWriter stringWriter = new StringWriter();
+        final JsonWriter out = new JsonWriter(stringWriter);
+        out.setSerializeNulls(false);
+        try {
+            out.beginObject();
+            out.name("event").value(event.getEventName());
+            out.name("channel").value(event.getChannelName());
+            out.name("user_id").value(event.getUserId());
+            final String rawData = event.getRawData();
+            if (rawData != null) {
+                out.name("data").jsonValue(rawData);
+            } else {
+                out.name("data").value(event.getData());
+            }
+            out.endObject();
+        } catch (final IOException e) {
+            throw new JsonIOException(e);
+        }
+        return stringWriter.toString();
+    }
+
+    @Override
+    public <T> T decode(final String json, final Class<T> type) {
+        if (json != null && type == PresenceSubscriptionData.class) {
+            return type.cast(decodePresenceSubscription(json));
+        }
+        if (json != null && type == PresenceMemberData.class) {
+            return type.cast(decodePresenceMember(json));
+        }
+        return gson.fromJson(json, type);
+    }
+
+    @Override
+    public String encode(final Object message) {
+        return gson.toJson(message);
+    }
+
+    // {"presence":{"count":2,"ids":["a","b"],"hash":{"a":{...},"b":{...}}}}
+    /**
+     * Codecs of this class keep no state, so any two of them are equal, which
+     * lets clients with the same options share a connection.
+     */
+    @Override
+    public boolean equals(final Object o) {
+        return o != null && o.getClass() == getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    private static PresenceSubscriptionData decodePresenceSubscription(final String json) {
+        final JsonScanner scanner = new JsonScanner(json);
+        PresenceSubscriptionData data = new PresenceSubscriptionData();
+        scanner.beginObject();
+        while (scanner.hasNext()) {
+            if (scanner.nextName().equals("presence") && !scanner.nextNull()) {
+                data = decodePresence(scanner);
+            } else {
+                scanner.skipValue();
+            }
+        }
+        scanner.endObject();
+        return data;
+    }
+
+    private static PresenceSubscriptionData decodePresence(final JsonScanner scanner) {
+        Integer count = null;
+        List<String> ids = null;
+        Map<String, String> hash = null;
+        scanner.beginObject();
+        while (scanner.hasNext()) {
+            switch (scanner.nextName()) {
+                case "count":
+                    final String text = scanner.nextString();
+                    count = text != null ? Integer.valueOf(text) : null;
+                    break;
+                case "ids":
+                    if (!scanner.nextNull()) {
+                        ids = new ArrayList<>();
+                        scanner.beginArray();
+                        while (scanner.hasNext()) {
+                            ids.add(scanner.nextString());
+                        }
+                        scanner.endArray();
+                    }
+                    break;
+                case "hash":
+                    if (!scanner.nextNull()) {
+                        hash = new LinkedHashMap<>();
+                        scanner.beginObject();
+                        while (scanner.hasNext()) {
+                            hash.put(scanner.nextName(), scanner.nextRawValue());
+                        }
+                        scanner.endObject();
+                    }
+                    break;
+                default:
+                    scanner.skipValue();
+            }
+        }
+        scanner.endObject();
+        return new PresenceSubscriptionData(count, ids, hash);
+    }
+
+    // {"user_id":"a","user_info":{...}}
+    private static PresenceMemberData decodePresenceMember(final String json) {
+        final JsonScanner scanner = new JsonScanner(json);
+        String id = null;
+        String info = null;
+        scanner.beginObject();
+        while (scanner.hasNext()) {
+            switch (scanner.nextName()) {
+                case "user_id":
+                    id = scanner.nextString();
+                    break;
+                case "user_info":
+                    info = scanner.nextRawValue();
+                    break;
+                default:
+                    scanner.skipValue();
+            }
+        }
+        scanner.endObject();
+        return new PresenceMemberData(id, info);
+    }
+
+    private static String readString(final JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case NULL:
+                in.nextNull();
+                return null;
+            case BOOLEAN:
+                return Boolean.toString(in.nextBoolean());
+            default:
+                return in.nextString();
+        }
+    }
+
+    private static boolean skipNull(final JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return true;
+        }
+        return false;
+    }
+
+    private static void writeMessage(final JsonWriter out, final String event, final Map<String, String> data)
+            throws IOException {
+        out.beginObject();
+        out.name("event").value(event);
+        out.name("data").beginObject();
+        for (final Map.Entry<String, String> entry : data.entrySet()) {
+            out.name(entry.getKey()).value(entry.getValue());
+        }
+        out.endObject();
+        out.endObject();
+    }
+
+    private abstract static class OutboundMessageAdapter<T> extends TypeAdapter<T> {
+
+        private final Class<T> type;
+
+        OutboundMessageAdapter(final Class<T> type) {
+            this.type = type;
+        }
+
+        @Override
+        public T read(final JsonReader in) throws IOException {
+            return REFLECTIVE.getAdapter(type).read(in);
+        }
+    }
+
+    private static class AuthResponseAdapter extends TypeAdapter<AuthResponse> {
+
+        @Override
+        public AuthResponse read(final JsonReader in) throws IOException {
+            if (skipNull(in)) {
+                return null;
+            }
+            String auth = null;
+            String channelData = null;
+            String sharedSecret = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "auth":
+                        auth = readString(in);
+                        break;
+                    case "channel_data":
+                        channelData = readString(in);
+                        break;
+                    case "shared_secret":
+                        sharedSecret = readString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new AuthResponse(auth, channelData, sharedSecret);
+        }
+
+        @Override
+        public void write(final JsonWriter out, final AuthResponse value) throws IOException {
+            out.beginObject();
+            out.name("auth").value(value.getAuth());
+            out.name("channel_data").value(value.getChannelData());
+            out.name("shared_secret").value(value.getSharedSecret());
+            out.endObject();
+        }
+    }
+
+    private static class ChannelDataAdapter extends TypeAdapter<ChannelData> {
+
+        @Override
+        public ChannelData read(final JsonReader in) throws IOException {
+            if (skipNull(in)) {
+                return null;
+            }
+            String userId = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                if (in.nextName().equals("user_id")) {
+                    userId = readString(in);
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ChannelData(userId);
+        }
+
+        @Override
+        public void write(final JsonWriter out, final ChannelData value) throws IOException {
+            out.beginObject();
+            out.name("user_id").value(value.getUserId());
+            out.endObject();
+        }
+    }
+
+    private static class EncryptedReceivedDataAdapter extends TypeAdapter<EncryptedReceivedData> {
+
+        @Override
+        public EncryptedReceivedData read(final JsonReader in) throws IOException {
+            if (skipNull(in)) {
+                return null;
+            }
+            String nonce = null;
+            String ciphertext = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "nonce":
+                        nonce = readString(in);
+                        break;
+                    case "ciphertext":
+                        ciphertext = readString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new EncryptedReceivedData(nonce, ciphertext);
+        }
+
+        @Override
+        public void write(final JsonWriter out, final EncryptedReceivedData value) throws IOException {
+            REFLECTIVE.getAdapter(EncryptedReceivedData.class).write(out, value);
+        }
+    }
+
+    private static class SubscriptionCountDataAdapter extends TypeAdapter<SubscriptionCountData> {
+
+        @Override
+        public SubscriptionCountData read(final JsonReader in) throws IOException {
+            if (skipNull(in)) {
+                return null;
+            }
+            final SubscriptionCountData data = new SubscriptionCountData();
+            in.beginObject();
+            while (in.hasNext()) {
+                if (in.nextName().equals("subscription_count")) {
+                    data.count = skipNull(in) ? null : in.nextInt();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return data;
+        }
+
+        @Override
+        public void write(final JsonWriter out, final SubscriptionCountData value) throws IOException {
+            out.beginObject();
+            out.name("subscription_count").value(value.count);
+            out.endObject();
+        }
+    }
+
+    private static class AuthenticationResponseAdapter extends TypeAdapter<AuthenticationResponse> {
+
+        @Override
+        public AuthenticationResponse read(final JsonReader in) throws IOException {
+            if (skipNull(in)) {
+                return null;
+            }
+            String auth = null;
+            String userData = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "auth":
+                        auth = readString(in);
+                        break;
+                    case "user_data":
+                        userData = readString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new AuthenticationResponse(auth, userData);
+        }
+
+        @Override
+        public void write(final JsonWriter out, final AuthenticationResponse value) throws IOException {
+            out.beginObject();
+            out.name("auth").value(value.getAuth());
+            out.name("user_data").value(value.getUserData());
+            out.endObject();
+        }
+    }
+}
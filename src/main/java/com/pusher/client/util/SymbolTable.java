@@ -0,0 +1,143 @@
+package com.pusher.client.util;
+
+/**
+ * Canonical instances of the channel and event names known to a client.
+ * <p>
+ * Names are interned when a channel is subscribed to or a listener is bound,
+ * and the envelope parser resolves the names of inbound events against the
+ * table straight from the characters of the frame. An inbound name which is
+ * known therefore costs no allocation and is the very instance used as the
+ * routing key, so its hash code is already cached and the map lookups which
+ * route it succeed on the identity check in {@link String#equals(Object)}.
+ * <p>
+ * Lookups are lock free. Interning takes a lock and writes the name into the
+ * table in place, only growing the table copies it. A lookup racing with an
+ * intern may miss the new name, which just means that one event allocates its
+ * name as it would without the table. Strings are immutable, so a name seen
+ * through the race is always seen whole. Names are never removed, the table
+ * only ever holds names that the application used.
+ */
+public final class SymbolTable {
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    private final Object lock = new Object();
+    private volatile String[] table = new String[INITIAL_CAPACITY];
+    private int size;
+
+    public SymbolTable(final String... names) {
+        for (final String name : names) {
+            intern(name);
+        }
+    }
+
+    /**
+     * @param name A channel or event name.
+     * @return The canonical instance of the name, which is the name itself if
+     * it was not already known.
+     */
+    public String intern(final String name) {
+        if (name == null) {
+            return null;
+        }
+        synchronized (lock) {
+            final String existing = find(table, name, 0, name.length(), name.hashCode());
+            if (existing != null) {
+                return existing;
+            }
+            final String[] current = table;
+            if ((size + 1) * 2 > current.length) {
+                final String[] grown = new String[current.length * 2];
+                for (final String symbol : current) {
+                    if (symbol != null) {
+                        insert(grown, symbol);
+                    }
+                }
+                insert(grown, name);
+                table = grown;
+            } else {
+                insert(current, name);
+            }
+            size++;
+            return name;
+        }
+    }
+
+    /**
+     * Resolves the characters [start, end) of text without allocating.
+     *
+     * @return The canonical instance of the name, or null if it is not known.
+     */
+    public String lookup(final String text, final int start, final int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return find(table, text, start, end, hash);
+    }
+
+    /**
+     * Resolves the UTF-8 bytes [start, end) without allocating. Only ASCII
+     * names are resolved, which covers every valid channel name.
+     *
+     * @return The canonical instance of the name, or null if it is not known.
+     */
+    public String lookup(final byte[] utf8, final int start, final int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            final byte b = utf8[i];
+            if (b < 0) {
+                return null;
+            }
+            hash = 31 * hash + b;
+        }
+        final String[] table = this.table;
+        final int length = end - start;
+        final int mask = table.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            final String symbol = table[i];
+            if (symbol == null) {
+                return null;
+            }
+            if (symbol.length() == length && symbol.hashCode() == hash && matches(symbol, utf8, start)) {
+                return symbol;
+            }
+        }
+    }
+
+    private static boolean matches(final String symbol, final byte[] ascii, final int start) {
+        for (int i = 0; i < symbol.length(); i++) {
+            if (symbol.charAt(i) != ascii[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String find(final String[] table, final String text, final int start, final int end, final int hash) {
+        final int length = end - start;
+        final int mask = table.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            final String symbol = table[i];
+            if (symbol == null) {
+                return null;
+            }
+            if (symbol.length() == length && symbol.hashCode() == hash && symbol.regionMatches(0, text, start, length)) {
+                return symbol;
+            }
+        }
+    }
+
+    private static void insert(final String[] table, final String symbol) {
+        final int mask = table.length - 1;
+        int i = spread(symbol.hashCode()) & mask;
+        while (table[i] != null) {
+            i = (i + 1) & mask;
+        }
+        table[i] = symbol;
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,128 @@
+package com.pusher.client.util.internal;
+
+import com.pusher.client.ReconnectStrategy;
+
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The built-in reconnect strategies. They keep no state, so strategies set up
+ * alike are equal, which lets clients with the same options share a
+ * connection.
+ */
+public final class Backoff implements ReconnectStrategy {
+
+    public enum Kind {
+        /**
+         * The delay of earlier versions, the square of the attempt in seconds.
+         */
+        QUADRATIC,
+        EXPONENTIAL,
+        FULL_JITTER,
+        DECORRELATED_JITTER
+    }
+
+    private final Kind kind;
+    private final long baseMillis;
+    private final long capMillis;
+    // null for the random of the calling thread
+    private final Random random;
+
+    public Backoff(final Kind kind, final long baseMillis, final long capMillis) {
+        this(kind, baseMillis, capMillis, null);
+    }
+
+    /**
+     * @param random The source of jitter, so that a simulation can be
+     *               repeated, or null for the random of the calling thread.
+     */
+    public Backoff(final Kind kind, final long baseMillis, final long capMillis, final Random random) {
+        if (baseMillis < 1) {
+            throw new IllegalArgumentException("baseMillis must be at least 1");
+        }
+        if (capMillis < baseMillis) {
+            throw new IllegalArgumentException("capMillis must be at least baseMillis");
+        }
+        this.kind = kind;
+        this.baseMillis = baseMillis;
+        this.capMillis = capMillis;
+        this.random = random;
+    }
+
+    // the cap of the default strategy is the max reconnect gap as set, even 0
+    private Backoff(final long capMillis) {
+        this.kind = Kind.QUADRATIC;
+        this.baseMillis = 1000;
+        this.capMillis = capMillis;
+        this.random = null;
+    }
+
+    /**
+     * @return the strategy set by {@code setMaxReconnectGapInSeconds}, the one
+     * used unless another is set
+     */
+    public static Backoff quadratic(final int maxGapInSeconds) {
+        return new Backoff(maxGapInSeconds * 1000L);
+    }
+
+    @Override
+    public long getDelayMillis(final int attempt, final long previousDelayMillis) {
+        switch (kind) {
+            case QUADRATIC:
+                return Math.min(capMillis, (long) attempt * attempt * baseMillis);
+            case EXPONENTIAL:
+                return exponential(attempt);
+            case FULL_JITTER:
+                return between(0, exponential(attempt));
+            default:
+                final long previous = Math.max(baseMillis, previousDelayMillis);
+                return Math.min(capMillis, between(baseMillis, previous > capMillis / 3 ? capMillis : previous * 3));
+        }
+    }
+
+    private long exponential(final int attempt) {
+        // base << (attempt - 1) without overflowing
+        final int shift = Math.max(0, attempt - 1);
+        if (shift >= Long.numberOfLeadingZeros(baseMillis) - 1) {
+            return capMillis;
+        }
+        return Math.min(capMillis, baseMillis << shift);
+    }
+
+    private long between(final long low, final long high) {
+        if (high <= low) {
+            return low;
+        }
+        final long bound = high - low + 1;
+        if (random == null) {
+            return low + ThreadLocalRandom.current().nextLong(bound);
+        }
+        return low + (long) (random.nextDouble() * bound);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Backoff)) {
+            return false;
+        }
+        final Backoff other = (Backoff) o;
+        return kind == other.kind &&
+                baseMillis == other.baseMillis &&
+                capMillis == other.capMillis &&
+                random == other.random;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, baseMillis, capMillis);
+    }
+
+    @Override
+    public String toString() {
+        return kind + "(" + baseMillis + ", " + capMillis + ")";
+    }
+}
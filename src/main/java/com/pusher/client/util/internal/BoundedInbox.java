@@ -0,0 +1,210 @@
+package com.pusher.client.util.internal;
+
+import com.pusher.client.EventQueueListener;
+import com.pusher.client.EventQueueStats;
+import com.pusher.client.OverflowPolicy;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+
+/**
+ * A bounded queue of inbound frames in front of the event thread.
+ * <p>
+ * Frames are held in preallocated arrays. The first frame to arrive in an
+ * empty inbox queues a task on the event thread which handles the frames
+ * waiting, a batch of at most the capacity at a time so that the other tasks
+ * of the event thread are not held up behind a steady stream, and queues
+ * itself again while frames remain. What happens to a frame which finds the
+ * inbox full is up to the {@link OverflowPolicy}.
+ */
+public final class BoundedInbox implements EventQueueStats {
+
+    private final OverflowPolicy policy;
+    private final EventQueueListener listener;
+    private final Executor eventThread;
+    private final Runnable drain = this::drain;
+
+    private final EventLoop.FrameHandler[] handlers;
+    private final Object[] frames;
+    private final int highWaterMark;
+    private final int lowWaterMark;
+
+    // guarded by this
+    private int head;
+    private int size;
+    private boolean draining;
+    private boolean aboveHighWaterMark;
+
+    private volatile int highestQueued;
+    private volatile long overflows;
+    private volatile long dropped;
+
+    public BoundedInbox(
+            final int capacity,
+            final OverflowPolicy policy,
+            final EventQueueListener listener,
+            final Executor eventThread
+    ) {
+        this.policy = policy;
+        this.listener = listener;
+        this.eventThread = eventThread;
+        this.handlers = new EventLoop.FrameHandler[capacity];
+        this.frames = new Object[capacity];
+        this.highWaterMark = Math.max(1, capacity * 3 / 4);
+        this.lowWaterMark = capacity / 4;
+    }
+
+    public void offer(final EventLoop.FrameHandler handler, final String frame) {
+        offerFrame(handler, frame);
+    }
+
+    public void offer(final EventLoop.FrameHandler handler, final ByteBuffer frame) {
+        offerFrame(handler, frame);
+    }
+
+    private void offerFrame(final EventLoop.FrameHandler handler, final Object frame) {
+        final boolean scheduleDrain;
+        boolean overflowed = false;
+        boolean failed = false;
+        final boolean reachedHighWaterMark;
+        synchronized (this) {
+            while (size == frames.length && !failed) {
+                if (!overflowed) {
+                    overflowed = true;
+                    overflows++;
+                    notifyOverflow();
+                }
+                switch (policy) {
+                    case BLOCK:
+                        try {
+                            wait();
+                        } catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            dropped++;
+                            return;
+                        }
+                        break;
+                    case DROP_OLDEST:
+                        removeHead();
+                        dropped++;
+                        break;
+                    case DROP_NEWEST:
+                        dropped++;
+                        return;
+                    default:
+                        // the frames waiting belong to the connection being failed
+                        dropped += size + 1;
+                        while (size > 0) {
+                            removeHead();
+                        }
+                        failed = true;
+                }
+            }
+            if (failed) {
+                scheduleDrain = false;
+                reachedHighWaterMark = false;
+            } else {
+                final int tail = (head + size) % frames.length;
+                handlers[tail] = handler;
+                frames[tail] = frame;
+                size++;
+                if (size > highestQueued) {
+                    highestQueued = size;
+                }
+                reachedHighWaterMark = !aboveHighWaterMark && size >= highWaterMark;
+                if (reachedHighWaterMark) {
+                    aboveHighWaterMark = true;
+                }
+                scheduleDrain = !draining;
+                draining = true;
+            }
+        }
+        if (failed) {
+            handler.handleOverflow();
+            return;
+        }
+        if (reachedHighWaterMark && listener != null) {
+            listener.onHighWaterMark(this);
+        }
+        if (scheduleDrain) {
+            eventThread.execute(drain);
+        }
+    }
+
+    // called holding the lock, so that it comes before the policy is applied
+    private void notifyOverflow() {
+        if (listener != null) {
+            listener.onOverflow(this);
+        }
+    }
+
+    private void drain() {
+        for (int i = 0; i < frames.length; i++) {
+            final EventLoop.FrameHandler handler;
+            final Object frame;
+            final boolean reachedLowWaterMark;
+            synchronized (this) {
+                if (size == 0) {
+                    draining = false;
+                    return;
+                }
+                handler = handlers[head];
+                frame = frames[head];
+                removeHead();
+                reachedLowWaterMark = aboveHighWaterMark && size <= lowWaterMark;
+                if (reachedLowWaterMark) {
+                    aboveHighWaterMark = false;
+                }
+                notifyAll();
+            }
+            if (reachedLowWaterMark && listener != null) {
+                listener.onLowWaterMark(this);
+            }
+            try {
+                if (frame instanceof String) {
+                    handler.handleFrame((String) frame);
+                } else {
+                    handler.handleFrame((ByteBuffer) frame);
+                }
+            } catch (final RuntimeException e) {
+                // still draining, the rest of the frames need a task of their own
+                eventThread.execute(drain);
+                throw e;
+            }
+        }
+        // a full batch, let the other tasks of the event thread run
+        eventThread.execute(drain);
+    }
+
+    private void removeHead() {
+        handlers[head] = null;
+        frames[head] = null;
+        head = (head + 1) % frames.length;
+        size--;
+    }
+
+    @Override
+    public int getCapacity() {
+        return frames.length;
+    }
+
+    @Override
+    public synchronized int getQueued() {
+        return size;
+    }
+
+    @Override
+    public int getHighestQueued() {
+        return highestQueued;
+    }
+
+    @Override
+    public long getOverflows() {
+        return overflows;
+    }
+
+    @Override
+    public long getDropped() {
+        return dropped;
+    }
+}
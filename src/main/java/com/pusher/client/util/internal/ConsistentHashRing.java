@@ -0,0 +1,155 @@
+package com.pusher.client.util.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable consistent hash ring which maps keys, such as channel names,
+ * onto a set of nodes.
+ * <p>
+ * Each node is placed on the ring at a number of points derived from its
+ * index, so the points a node takes do not depend on which other nodes are on
+ * the ring. Removing a node therefore only moves the keys which mapped to it,
+ * spread over the remaining nodes, and adding it back moves those same keys
+ * home again. Keys of the other nodes never move.
+ * <p>
+ * {@link #without(int)} and {@link #with(int)} return a new ring, so a ring
+ * can be shared between threads and read without a lock.
+ *
+ * @param <T> The type of the nodes.
+ */
+public final class ConsistentHashRing<T> {
+
+    static final int POINTS_PER_NODE = 64;
+
+    private final List<T> nodes;
+    private final boolean[] live;
+    private final int[] points;
+    private final int[] owners;
+
+    /**
+     * @param nodes The nodes, all of which start out on the ring.
+     */
+    public ConsistentHashRing(final List<T> nodes) {
+        this(Collections.unmodifiableList(new ArrayList<>(nodes)), filled(nodes.size()));
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        }
+    }
+
+    private ConsistentHashRing(final List<T> nodes, final boolean[] live) {
+        this.nodes = nodes;
+        this.live = live;
+
+        int liveCount = 0;
+        for (final boolean isLive : live) {
+            if (isLive) {
+                liveCount++;
+            }
+        }
+        // point and owner packed into a long so that one sort orders both
+        final long[] packed = new long[liveCount * POINTS_PER_NODE];
+        int n = 0;
+        for (int node = 0; node < live.length; node++) {
+            if (live[node]) {
+                for (int replica = 0; replica < POINTS_PER_NODE; replica++) {
+                    final int point = mix(node * 0x10000 + replica);
+                    packed[n++] = ((long) point << 32) | node;
+                }
+            }
+        }
+        Arrays.sort(packed);
+        this.points = new int[packed.length];
+        this.owners = new int[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            points[i] = (int) (packed[i] >> 32);
+            owners[i] = (int) packed[i];
+        }
+    }
+
+    /**
+     * @return The node the key maps to, or null if no node is on the ring.
+     */
+    public T get(final String key) {
+        if (points.length == 0) {
+            return null;
+        }
+        final int hash = hash(key);
+        int i = Arrays.binarySearch(points, hash);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return nodes.get(owners[i == points.length ? 0 : i]);
+    }
+
+    /**
+     * @return All nodes in the order they were given, on the ring or not.
+     */
+    public List<T> getNodes() {
+        return nodes;
+    }
+
+    public boolean contains(final int node) {
+        return live[node];
+    }
+
+    /**
+     * @return The number of nodes on the ring.
+     */
+    public int size() {
+        return points.length / POINTS_PER_NODE;
+    }
+
+    /**
+     * @return A ring with the node at the given index taken off, or this ring
+     * if it is not on it.
+     */
+    public ConsistentHashRing<T> without(final int node) {
+        return live[node] ? withLive(node, false) : this;
+    }
+
+    /**
+     * @return A ring with the node at the given index put back, or this ring
+     * if it is on it already.
+     */
+    public ConsistentHashRing<T> with(final int node) {
+        return live[node] ? this : withLive(node, true);
+    }
+
+    private ConsistentHashRing<T> withLive(final int node, final boolean isLive) {
+        final boolean[] next = live.clone();
+        next[node] = isLive;
+        return new ConsistentHashRing<>(nodes, next);
+    }
+
+    private static boolean[] filled(final int size) {
+        final boolean[] live = new boolean[size];
+        Arrays.fill(live, true);
+        return live;
+    }
+
+    /**
+     * FNV-1a over the characters of the key, finished with the murmur3 mix so
+     * that keys which differ only in their last characters, like numbered
+     * channel names, still land far apart.
+     */
+    static int hash(final String key) {
+        int hash = 0x811c9dc5;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x01000193;
+        }
+        return mix(hash);
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
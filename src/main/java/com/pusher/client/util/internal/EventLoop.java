@@ -0,0 +1,312 @@
+package com.pusher.client.util.internal;
+
+import com.pusher.client.WaitStrategy;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An event loop over a preallocated ring of slots, as an alternative to a
+ * single thread executor for the event thread of a client.
+ * <p>
+ * A frame is published in place: the slot records the frame and the handler
+ * which is to decode it, so handing a frame from the socket to the event
+ * thread allocates nothing. Tasks take a slot too, so frames and tasks are
+ * run in the order they were published. The loop drains the ring in batches
+ * and takes the lock it is given once per batch rather than once per item. A
+ * batch is at most a ring's worth of items, and the lock is let go between
+ * batches, so that a publisher which keeps the ring full holds up neither the
+ * loop's own tasks nor other holders of the lock for long.
+ * <p>
+ * Publishers claim slots with a compare-and-set. In practice only the socket
+ * thread publishes at any rate, so the claim is uncontended. A publisher
+ * which finds the ring full waits for the loop to catch up, except for the
+ * loop itself: what it publishes while the ring is full goes to a queue of
+ * its own, run at the end of the batch, so that it never waits on itself.
+ * <p>
+ * {@link #shutdown()} lets the loop run what has been published and then
+ * stop. Publishing to a loop which has stopped fails, so that the caller can
+ * start a new loop in its place.
+ */
+public final class EventLoop {
+
+    /**
+     * Decodes and handles the inbound frames of a connection on the event thread.
+     */
+    public interface FrameHandler {
+
+        void handleFrame(String frame);
+
+        void handleFrame(ByteBuffer frame);
+
+        /**
+         * Called on the publishing thread in place of handling a frame, when
+         * the bounded event queue was full and its policy is to fail the
+         * connection.
+         */
+        default void handleOverflow() {
+            // No-op
+        }
+    }
+
+    private static final long CLOSED = -1;
+    private static final long FULL = -2;
+    private static final long PARK_BACKOFF_NANOS = 1_000;
+    private static final int SPINS_BEFORE_PARK = 100;
+
+    private final Slot[] ring;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final Object lock;
+    private final Thread thread;
+
+    // next sequence to be claimed, or CLOSED once the loop has stopped
+    private final AtomicLong claimed = new AtomicLong();
+    // next sequence to be run, only written by the loop
+    private volatile long consumed;
+    private volatile boolean shutdown;
+    private volatile boolean parked;
+
+    // publications of the loop's own thread made while the ring was full
+    private final ArrayDeque<Runnable> overflow = new ArrayDeque<>();
+
+    public EventLoop(
+            final int capacity,
+            final WaitStrategy waitStrategy,
+            final Object lock,
+            final ThreadFactory threadFactory
+    ) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.ring = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Slot(i - size);
+        }
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+        this.lock = lock;
+        this.thread = threadFactory.newThread(this::run);
+        this.thread.start();
+    }
+
+    /**
+     * @return false if the loop has stopped, in which case the task will not run
+     */
+    public boolean execute(final Runnable task) {
+        final boolean own = Thread.currentThread() == thread;
+        final long sequence = own && !overflow.isEmpty() ? FULL : claim(!own);
+        if (sequence == FULL) {
+            overflow.add(task);
+            return true;
+        }
+        if (sequence == CLOSED) {
+            return false;
+        }
+        final Slot slot = ring[(int) sequence & mask];
+        slot.task = task;
+        publish(slot, sequence);
+        return true;
+    }
+
+    /**
+     * @return false if the loop has stopped, in which case the frame will not be handled
+     */
+    public boolean publish(final FrameHandler handler, final String frame) {
+        if (Thread.currentThread() == thread) {
+            return execute(() -> handler.handleFrame(frame));
+        }
+        final long sequence = claim(true);
+        if (sequence == CLOSED) {
+            return false;
+        }
+        final Slot slot = ring[(int) sequence & mask];
+        slot.handler = handler;
+        slot.text = frame;
+        publish(slot, sequence);
+        return true;
+    }
+
+    /**
+     * @return false if the loop has stopped, in which case the frame will not be handled
+     */
+    public boolean publish(final FrameHandler handler, final ByteBuffer frame) {
+        if (Thread.currentThread() == thread) {
+            return execute(() -> handler.handleFrame(frame));
+        }
+        final long sequence = claim(true);
+        if (sequence == CLOSED) {
+            return false;
+        }
+        final Slot slot = ring[(int) sequence & mask];
+        slot.handler = handler;
+        slot.bytes = frame;
+        publish(slot, sequence);
+        return true;
+    }
+
+    /**
+     * Stops the loop once it has run everything published to it so far.
+     */
+    public void shutdown() {
+        shutdown = true;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * @return the claimed sequence, CLOSED if the loop has stopped or FULL if
+     * the ring is full and the caller is not to wait
+     */
+    private long claim(final boolean wait) {
+        while (true) {
+            final long next = claimed.get();
+            if (next == CLOSED) {
+                return CLOSED;
+            }
+            if (next - consumed >= ring.length) {
+                if (!wait) {
+                    return FULL;
+                }
+                // the ring is full, wait for the loop to catch up
+                if (waitStrategy == WaitStrategy.BUSY_SPIN) {
+                    continue;
+                } else if (waitStrategy == WaitStrategy.YIELD) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(PARK_BACKOFF_NANOS);
+                }
+                continue;
+            }
+            if (claimed.compareAndSet(next, next + 1)) {
+                return next;
+            }
+        }
+    }
+
+    private void publish(final Slot slot, final long sequence) {
+        slot.published = sequence;
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void run() {
+        while (true) {
+            if (drain() > 0) {
+                continue;
+            }
+            if (shutdown && claimed.compareAndSet(consumed, CLOSED)) {
+                return;
+            }
+            await();
+        }
+    }
+
+    /**
+     * Runs one batch under the lock: what has been published to the ring, up
+     * to its size, then what the loop queued for itself before the batch.
+     *
+     * @return the number of items run
+     */
+    private int drain() {
+        long sequence = consumed;
+        if (ring[(int) sequence & mask].published != sequence && overflow.isEmpty()) {
+            return 0;
+        }
+        int count = 0;
+        synchronized (lock) {
+            final long end = sequence + ring.length;
+            while (sequence != end) {
+                final Slot slot = ring[(int) sequence & mask];
+                if (slot.published != sequence) {
+                    break;
+                }
+                runSafely(slot);
+                slot.clear();
+                count++;
+                consumed = ++sequence;
+            }
+            // what these tasks queue in turn waits for the next batch
+            for (int i = overflow.size(); i > 0; i--) {
+                runSafely(overflow.poll());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void await() {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            default:
+                // a burst usually has more on the way, check a few times
+                // before paying for a park and the publisher for an unpark
+                for (int i = 0; i < SPINS_BEFORE_PARK; i++) {
+                    if (ring[(int) consumed & mask].published == consumed || shutdown) {
+                        return;
+                    }
+                    Thread.yield();
+                }
+                parked = true;
+                // re-check, a publisher which saw parked as false did not unpark
+                if (ring[(int) consumed & mask].published != consumed && !shutdown) {
+                    LockSupport.park(this);
+                }
+                parked = false;
+        }
+    }
+
+    private void runSafely(final Slot slot) {
+        try {
+            if (slot.task != null) {
+                slot.task.run();
+            } else if (slot.text != null) {
+                slot.handler.handleFrame(slot.text);
+            } else {
+                slot.handler.handleFrame(slot.bytes);
+            }
+        } catch (final RuntimeException e) {
+            uncaught(e);
+        }
+    }
+
+    private void runSafely(final Runnable task) {
+        try {
+            task.run();
+        } catch (final RuntimeException e) {
+            uncaught(e);
+        }
+    }
+
+    private void uncaught(final RuntimeException e) {
+        // as an executor would, report it and carry on with the next item
+        final Thread current = Thread.currentThread();
+        current.getUncaughtExceptionHandler().uncaughtException(current, e);
+    }
+
+    private static final class Slot {
+
+        // the sequence of the item in the slot, once it is safe to read
+        volatile long published;
+        Runnable task;
+        FrameHandler handler;
+        String text;
+        ByteBuffer bytes;
+
+        Slot(final long published) {
+            this.published = published;
+        }
+
+        void clear() {
+            task = null;
+            handler = null;
+            text = null;
+            bytes = null;
+        }
+    }
+}
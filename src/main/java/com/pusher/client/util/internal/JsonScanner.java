@@ -0,0 +1,262 @@
+package com.pusher.client.util.internal;
+
+import com.google.gson.JsonSyntaxException;
+
+/**
+ * A minimal pull scanner over JSON text which, unlike a
+ * {@link com.google.gson.stream.JsonReader}, can hand out the raw text of a
+ * value without decoding it. That lets a value which is only ever passed on
+ * as JSON, such as the info of a presence channel member, be captured with a
+ * single substring instead of being built into a tree and serialized again.
+ * <p>
+ * The scanner is lenient about separators: commas are skipped wherever they
+ * appear between members or elements.
+ */
+public final class JsonScanner {
+
+    private final String json;
+    private int pos;
+
+    public JsonScanner(final String json) {
+        if (json == null) {
+            throw new JsonSyntaxException("Cannot scan null");
+        }
+        this.json = json;
+    }
+
+    public void beginObject() {
+        expect('{');
+    }
+
+    public void endObject() {
+        expect('}');
+    }
+
+    public void beginArray() {
+        expect('[');
+    }
+
+    public void endArray() {
+        expect(']');
+    }
+
+    /**
+     * @return whether the current object or array has another member or element
+     */
+    public boolean hasNext() {
+        skipWhitespace();
+        if (pos < json.length() && json.charAt(pos) == ',') {
+            pos++;
+            skipWhitespace();
+        }
+        final char c = peek();
+        return c != '}' && c != ']';
+    }
+
+    /**
+     * Reads the name of the next member of an object, and the colon after it.
+     */
+    public String nextName() {
+        skipWhitespace();
+        final int start = pos;
+        skipString();
+        final String name = unescape(json, start, pos);
+        expect(':');
+        return name;
+    }
+
+    /**
+     * @return the next value if it is null
+     */
+    public boolean nextNull() {
+        skipWhitespace();
+        if (json.startsWith("null", pos)) {
+            pos += 4;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the next value decoded if it is a string, as written if it is a
+     * number or boolean, or null if it is null
+     */
+    public String nextString() {
+        skipWhitespace();
+        final int start = pos;
+        skipValue();
+        if (json.charAt(start) == '"') {
+            return unescape(json, start, pos);
+        }
+        if (pos - start == 4 && json.startsWith("null", start)) {
+            return null;
+        }
+        return json.substring(start, pos);
+    }
+
+    /**
+     * @return the next value exactly as written, or null if it is null
+     */
+    public String nextRawValue() {
+        skipWhitespace();
+        final int start = pos;
+        skipValue();
+        if (pos - start == 4 && json.startsWith("null", start)) {
+            return null;
+        }
+        return json.substring(start, pos);
+    }
+
+    public void skipValue() {
+        skipWhitespace();
+        switch (peek()) {
+            case '"':
+                skipString();
+                break;
+            case '{':
+            case '[':
+                skipContainer();
+                break;
+            default:
+                skipLiteral();
+        }
+    }
+
+    /**
+     * Decodes a JSON string literal spanning [start, end) of the given text,
+     * including its surrounding quotes.
+     */
+    public static String unescape(final String text, final int start, final int end) {
+        final int contentStart = start + 1;
+        final int contentEnd = end - 1;
+        final int firstEscape = text.indexOf('\\', contentStart);
+        if (firstEscape < 0 || firstEscape >= contentEnd) {
+            return text.substring(contentStart, contentEnd);
+        }
+
+        final StringBuilder sb = new StringBuilder(contentEnd - contentStart);
+        sb.append(text, contentStart, firstEscape);
+        int i = firstEscape;
+        while (i < contentEnd) {
+            final char c = text.charAt(i++);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            final char escaped = text.charAt(i++);
+            switch (escaped) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    if (i + 4 > contentEnd) {
+                        throw new JsonSyntaxException("Unterminated unicode escape in " + text);
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(i, i + 4), 16));
+                    } catch (final NumberFormatException e) {
+                        throw new JsonSyntaxException("Invalid unicode escape in " + text, e);
+                    }
+                    i += 4;
+                    break;
+                default:
+                    // \" \\ \/ and any leniently escaped character
+                    sb.append(escaped);
+            }
+        }
+        return sb.toString();
+    }
+
+    private void skipString() {
+        expect('"');
+        final int length = json.length();
+        while (pos < length) {
+            final char c = json.charAt(pos++);
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                pos++;
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    private void skipContainer() {
+        int depth = 0;
+        final int length = json.length();
+        while (pos < length) {
+            final char c = json.charAt(pos);
+            if (c == '"') {
+                skipString();
+                continue;
+            }
+            pos++;
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (--depth == 0) {
+                    return;
+                }
+            }
+        }
+        throw syntaxError("Unterminated object or array");
+    }
+
+    private void skipLiteral() {
+        final int start = pos;
+        final int length = json.length();
+        while (pos < length) {
+            final char c = json.charAt(pos);
+            if (c == ',' || c == '}' || c == ']' || isWhitespace(c)) {
+                break;
+            }
+            pos++;
+        }
+        if (pos == start) {
+            throw syntaxError("Expected a value");
+        }
+    }
+
+    private void skipWhitespace() {
+        final int length = json.length();
+        while (pos < length && isWhitespace(json.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private char peek() {
+        if (pos >= json.length()) {
+            throw syntaxError("Unexpected end of input");
+        }
+        return json.charAt(pos);
+    }
+
+    private void expect(final char expected) {
+        skipWhitespace();
+        if (peek() != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+        pos++;
+    }
+
+    private JsonSyntaxException syntaxError(final String message) {
+        return new JsonSyntaxException(message + " at position " + pos + " in " + json);
+    }
+}
@@ -0,0 +1,201 @@
+package com.pusher.client.util.internal;
+
+import com.google.gson.JsonSyntaxException;
+import com.pusher.client.OutboundQueueListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The messages waiting to be written to the connection.
+ * <p>
+ * The first message into an empty queue has the caller schedule a flush on
+ * the event thread, and the messages which arrive before the flush runs go
+ * out with it, coalesced into as few socket writes as fit in a batch. On a
+ * reconnection that turns the subscribe message of every channel into a
+ * single write instead of one write, and one hop to the event thread, for
+ * each channel.
+ * <p>
+ * Messages are taken in three classes. Pings and pongs go first, so that a
+ * backlog cannot make the connection look dead, then subscriptions, then
+ * everything else, such as client events, in the order sent. An unsubscribe
+ * waits for the messages sent before it, so that a client event is not
+ * overtaken by the unsubscribe from its channel.
+ */
+public final class OutboundQueue {
+
+    /**
+     * The most characters of messages to coalesce into one write, beyond the
+     * first message.
+     */
+    public static final int MAX_BATCH_CHARS = 64 * 1024;
+
+    private final OutboundQueueListener listener;
+    private final int highWaterMark;
+    private final int lowWaterMark;
+
+    // guarded by this
+    private final ArrayDeque<String> control = new ArrayDeque<>();
+    private final ArrayDeque<Entry> subscriptions = new ArrayDeque<>();
+    private final ArrayDeque<Entry> others = new ArrayDeque<>();
+    private long sequence;
+    private int size;
+    private boolean flushing;
+    private boolean aboveHighWaterMark;
+
+    /**
+     * @param listener      Told of backpressure, or null.
+     * @param highWaterMark The number of waiting messages at which the listener
+     *                      is told of backpressure.
+     */
+    public OutboundQueue(final OutboundQueueListener listener, final int highWaterMark) {
+        this.listener = listener;
+        this.highWaterMark = listener != null ? highWaterMark : Integer.MAX_VALUE;
+        this.lowWaterMark = highWaterMark / 4;
+    }
+
+    /**
+     * @return whether the caller is to schedule a flush
+     */
+    public boolean offer(final String message) {
+        final Kind kind = kindOf(message);
+        final boolean schedule;
+        final int queued;
+        boolean backpressure = false;
+        synchronized (this) {
+            switch (kind) {
+                case CONTROL:
+                    control.add(message);
+                    break;
+                case SUBSCRIBE:
+                    subscriptions.add(new Entry(message, sequence++, false));
+                    break;
+                case UNSUBSCRIBE:
+                    subscriptions.add(new Entry(message, sequence++, true));
+                    break;
+                default:
+                    others.add(new Entry(message, sequence++, false));
+            }
+            queued = ++size;
+            if (queued >= highWaterMark && !aboveHighWaterMark) {
+                aboveHighWaterMark = true;
+                backpressure = true;
+            }
+            schedule = !flushing;
+            flushing = true;
+        }
+        if (backpressure) {
+            listener.onBackpressure(queued);
+        }
+        return schedule;
+    }
+
+    /**
+     * Takes the next messages to write, the first one whatever its length and
+     * then as many as fit in the given number of characters.
+     */
+    public List<String> poll(final int maxChars) {
+        final List<String> batch = new ArrayList<>();
+        final int queued;
+        boolean drained = false;
+        synchronized (this) {
+            int chars = 0;
+            while (size > 0 && (batch.isEmpty() || chars < maxChars)) {
+                final String message = take();
+                batch.add(message);
+                chars += message.length();
+                size--;
+            }
+            queued = size;
+            if (aboveHighWaterMark && queued <= lowWaterMark) {
+                aboveHighWaterMark = false;
+                drained = true;
+            }
+        }
+        if (drained) {
+            listener.onDrained(queued);
+        }
+        return batch;
+    }
+
+    /**
+     * Ends a flush.
+     *
+     * @return whether messages are still waiting, in which case the caller is
+     * to schedule another flush
+     */
+    public synchronized boolean flushed() {
+        flushing = size > 0;
+        return flushing;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private String take() {
+        if (!control.isEmpty()) {
+            return control.poll();
+        }
+        final Entry subscription = subscriptions.peek();
+        final Entry other = others.peek();
+        if (subscription != null && (other == null || !subscription.barrier || subscription.sequence < other.sequence)) {
+            return subscriptions.poll().message;
+        }
+        return others.poll().message;
+    }
+
+    enum Kind {
+        CONTROL,
+        SUBSCRIBE,
+        UNSUBSCRIBE,
+        OTHER
+    }
+
+    static Kind kindOf(final String message) {
+        try {
+            final JsonScanner scanner = new JsonScanner(message);
+            scanner.beginObject();
+            while (scanner.hasNext()) {
+                if (!"event".equals(scanner.nextName())) {
+                    scanner.skipValue();
+                    continue;
+                }
+                final String event = scanner.nextString();
+                if (event == null) {
+                    return Kind.OTHER;
+                }
+                switch (event) {
+                    case "pusher:ping":
+                    case "pusher:pong":
+                        return Kind.CONTROL;
+                    case "pusher:subscribe":
+                    case "pusher:signin":
+                        return Kind.SUBSCRIBE;
+                    case "pusher:unsubscribe":
+                        return Kind.UNSUBSCRIBE;
+                    default:
+                        return Kind.OTHER;
+                }
+            }
+        } catch (final JsonSyntaxException | IndexOutOfBoundsException e) {
+            // not for this queue to judge, it is sent in order with the others
+        }
+        return Kind.OTHER;
+    }
+
+    private static final class Entry {
+
+        final String message;
+        final long sequence;
+        // an unsubscribe, which must not overtake the messages sent before it
+        final boolean barrier;
+
+        Entry(final String message, final long sequence, final boolean barrier) {
+            this.message = message;
+            this.sequence = sequence;
+            this.barrier = barrier;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.pusher.client.util.internal;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the tasks given to it one at a time and in order, on the threads of
+ * another executor. It holds no thread of its own while idle, so there can
+ * be one per channel.
+ */
+public final class SerialExecutor implements Executor {
+
+    private final Executor executor;
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private boolean draining;
+
+    public SerialExecutor(final Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        synchronized (tasks) {
+            tasks.add(task);
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (final RuntimeException e) {
+            // rejected, as by a caller's executor which has been shut down.
+            // Drop the task as the executor would have, and let the next one
+            // try again rather than queue behind a drain which never runs.
+            synchronized (tasks) {
+                tasks.remove(task);
+                draining = false;
+            }
+            throw e;
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            final Runnable task;
+            synchronized (tasks) {
+                task = tasks.poll();
+                if (task == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            try {
+                task.run();
+            } catch (final RuntimeException | Error e) {
+                // the exception goes to the thread's handler, carry on with
+                // the remaining tasks on a fresh thread as a pool would
+                try {
+                    executor.execute(this::drain);
+                } catch (final RuntimeException rejected) {
+                    // the remaining tasks wait for the next one to be queued
+                    synchronized (tasks) {
+                        draining = false;
+                    }
+                    e.addSuppressed(rejected);
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.pusher.client.util.internal;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Access to virtual threads, which this runtime does not have. The library is
+ * a multi-release jar, on Java 21 and later this class is replaced by one which
+ * creates virtual threads.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return whether the runtime supports virtual threads
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * @param name The prefix of the names of the threads.
+     * @return an executor which starts a virtual thread for each task, or null
+     * if the runtime does not support virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor(final String name) {
+        return null;
+    }
+}
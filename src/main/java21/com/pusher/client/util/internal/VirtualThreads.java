@@ -0,0 +1,29 @@
+package com.pusher.client.util.internal;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads. This is the Java 21 version of the class, the
+ * Java 8 version in the root of the jar reports them as unsupported.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return whether the runtime supports virtual threads
+     */
+    public static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * @param name The prefix of the names of the threads.
+     * @return an executor which starts a virtual thread for each task
+     */
+    public static ExecutorService newThreadPerTaskExecutor(final String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name, 0).factory());
+    }
+}
@@ -1,2 +1 @@
--keep class com.pusher.client.channel.impl.message.** { *; }
--keep class com.pusher.client.user.impl.message.** { *; }
\ No newline at end of file
+-keep class com.pusher.client.message.** { *; }
\ No newline at end of file
@@ -20,6 +20,10 @@ import com.pusher.client.connection.websocket.WebSocketConnection;
 import com.pusher.client.connection.websocket.WebSocketListener;
 import com.pusher.client.util.DoNothingExecutor;
 import com.pusher.client.util.Factory;
+import com.pusher.client.util.StreamingEnvelopeCodec;
+import com.pusher.client.util.SymbolTable;
+import com.pusher.client.util.internal.EventLoop;
+import com.pusher.client.util.internal.OutboundQueue;
 
 import org.java_websocket.handshake.ServerHandshake;
 import org.junit.After;
@@ -33,6 +37,7 @@ import org.mockito.stubbing.Answer;
 
 import java.net.Proxy;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.util.function.Consumer;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -76,6 +81,9 @@ public class EndToEndTest {
     @Before
     public void setUp() throws Exception {
         pusherOptions = new PusherOptions().setChannelAuthorizer(mockChannelAuthorizer).setUseTLS(false);
+        when(factory.getEnvelopeCodec()).thenReturn(new StreamingEnvelopeCodec());
+        when(factory.getSymbolTable()).thenReturn(new SymbolTable());
+        when(factory.newOutboundQueue()).thenReturn(new OutboundQueue(null, 0));
 
         connection =
                 new WebSocketConnection(
@@ -101,6 +109,33 @@ public class EndToEndTest {
         )
                 .when(factory)
                 .queueOnEventThread(any(Runnable.class));
+        final Answer handleFrame = new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                final EventLoop.FrameHandler handler = (EventLoop.FrameHandler) invocation.getArguments()[0];
+                final Object frame = invocation.getArguments()[1];
+                if (frame instanceof String) {
+                    handler.handleFrame((String) frame);
+                } else {
+                    handler.handleFrame((ByteBuffer) frame);
+                }
+                return null;
+            }
+        };
+        doAnswer(handleFrame).when(factory).queueFrameOnEventThread(any(EventLoop.FrameHandler.class), any(String.class));
+        doAnswer(handleFrame).when(factory).queueFrameOnEventThread(any(EventLoop.FrameHandler.class), any(ByteBuffer.class));
+        doAnswer(
+                new Answer() {
+                    @Override
+                    public Object answer(InvocationOnMock invocation) {
+                        final Runnable r = (Runnable) invocation.getArguments()[1];
+                        r.run();
+                        return null;
+                    }
+                }
+        )
+                .when(factory)
+                .queueOnChannelThread(any(String.class), any(Runnable.class));
 
         when(factory.getTimers()).thenReturn(new DoNothingExecutor());
         when(factory.newWebSocketClientWrapper(any(URI.class), any(Proxy.class), any(WebSocketListener.class)))
@@ -5,6 +5,9 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import com.pusher.client.util.GsonEnvelopeCodec;
+import com.pusher.client.util.StreamingEnvelopeCodec;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -186,4 +189,99 @@ public class PusherOptionsTest {
     public void testGetProxyReturnDefaultProxy() {
         assertEquals(pusherOptions.getProxy(), Proxy.NO_PROXY);
     }
+
+    @Test
+    public void testDefaultEnvelopeCodecIsStreaming() {
+        assertTrue(pusherOptions.getEnvelopeCodec() instanceof StreamingEnvelopeCodec);
+    }
+
+    @Test
+    public void testSetEnvelopeCodec() {
+        final GsonEnvelopeCodec codec = new GsonEnvelopeCodec();
+        pusherOptions.setEnvelopeCodec(codec);
+        assertSame(codec, pusherOptions.getEnvelopeCodec());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetNullEnvelopeCodecThrows() {
+        pusherOptions.setEnvelopeCodec(null);
+    }
+
+    @Test
+    public void testDispatchLanesDefaultToTheEventThread() {
+        assertEquals(0, pusherOptions.getDispatchLanes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetNegativeDispatchLanesThrows() {
+        pusherOptions.setDispatchLanes(-1);
+    }
+
+    @Test
+    public void testRingBufferCapacityIsRoundedUpToAPowerOfTwo() {
+        pusherOptions.setRingBufferEventLoop(1000, WaitStrategy.YIELD);
+        assertEquals(1024, pusherOptions.getRingBufferCapacity());
+        assertEquals(WaitStrategy.YIELD, pusherOptions.getWaitStrategy());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetZeroRingBufferCapacityThrows() {
+        pusherOptions.setRingBufferEventLoop(0, WaitStrategy.PARK);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetZeroEventQueueCapacityThrows() {
+        pusherOptions.setBoundedEventQueue(0, OverflowPolicy.BLOCK);
+    }
+
+    @Test
+    public void testConnectionShardsDefaultToOne() {
+        assertEquals(1, pusherOptions.getConnectionShards());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetZeroConnectionShardsThrows() {
+        pusherOptions.setConnectionShards(0);
+    }
+
+    @Test
+    public void testPerMessageDeflateIsOffByDefault() {
+        assertEquals(false, pusherOptions.isPerMessageDeflate());
+        assertEquals(PusherOptions.DEFAULT_DEFLATE_THRESHOLD, pusherOptions.getDeflateThreshold());
+    }
+
+    @Test
+    public void testSetPerMessageDeflateSettingsTurnsItOn() {
+        pusherOptions.setPerMessageDeflate(256, 6);
+
+        assertTrue(pusherOptions.isPerMessageDeflate());
+        assertEquals(256, pusherOptions.getDeflateThreshold());
+        assertEquals(6, pusherOptions.getDeflateLevel());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetPerMessageDeflateLevelAboveNineThrows() {
+        pusherOptions.setPerMessageDeflate(256, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetOutboundQueueListenerWithHighWaterMarkBelowOneThrows() {
+        pusherOptions.setOutboundQueueListener(queued -> { }, 0);
+    }
+
+    @Test
+    public void testDefaultReconnectStrategyFollowsTheMaxReconnectGap() {
+        pusherOptions.setMaxReconnectGapInSeconds(10);
+
+        assertEquals(4000, pusherOptions.getReconnectStrategy().getDelayMillis(2, 1000));
+        assertEquals(10000, pusherOptions.getReconnectStrategy().getDelayMillis(4, 9000));
+    }
+
+    @Test
+    public void testSetReconnectStrategyReplacesTheDefault() {
+        final ReconnectStrategy strategy = ReconnectStrategy.fullJitter(100, 5000);
+        pusherOptions.setReconnectStrategy(strategy);
+
+        assertSame(strategy, pusherOptions.getReconnectStrategy());
+    }
 }
@@ -6,6 +6,7 @@ import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -133,6 +134,31 @@ public class PusherTest {
         assertSame(mockConnection, pusher.getConnection());
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testSharedConnectionCannotBeSharded() {
+        new Pusher(API_KEY, options.setSharedConnection(true).setConnectionShards(2), factory);
+    }
+
+    @Test
+    public void testShardedClientConnectsAndDisconnectsEveryShard() {
+        final InternalConnection secondShard = mock(InternalConnection.class);
+        when(factory.newShardConnection(eq(API_KEY), any(PusherOptions.class), any(Consumer.class)))
+                .thenReturn(secondShard);
+        when(mockConnection.getState()).thenReturn(ConnectionState.CONNECTED);
+        when(secondShard.getState()).thenReturn(ConnectionState.CONNECTED);
+
+        final Pusher sharded = new Pusher(API_KEY, options.setConnectionShards(2), factory);
+        verify(mockChannelManager).setConnections(mockConnection, secondShard);
+
+        sharded.connect();
+        verify(mockConnection).connect();
+        verify(secondShard).connect();
+
+        sharded.disconnect();
+        verify(mockConnection).disconnect();
+        verify(secondShard).disconnect();
+    }
+
     @Test
     public void testConnectCallWithNoListenerIsDelegatedToUnderlyingConnection() {
         pusher.connect();
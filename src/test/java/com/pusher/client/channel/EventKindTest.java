@@ -0,0 +1,47 @@
+package com.pusher.client.channel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class EventKindTest {
+
+    @Test
+    public void testProtocolEventsAreClassified() {
+        assertEquals(EventKind.CONNECTION_ESTABLISHED, EventKind.of("pusher:connection_established"));
+        assertEquals(EventKind.ERROR, EventKind.of("pusher:error"));
+        assertEquals(EventKind.SIGNIN_SUCCESS, EventKind.of("pusher:signin_success"));
+        assertEquals(EventKind.SUBSCRIPTION_SUCCEEDED, EventKind.of("pusher_internal:subscription_succeeded"));
+        assertEquals(EventKind.SUBSCRIPTION_COUNT, EventKind.of("pusher_internal:subscription_count"));
+        assertEquals(EventKind.MEMBER_ADDED, EventKind.of("pusher_internal:member_added"));
+        assertEquals(EventKind.MEMBER_REMOVED, EventKind.of("pusher_internal:member_removed"));
+    }
+
+    @Test
+    public void testOtherReservedEventsAreProtocolEvents() {
+        assertEquals(EventKind.PROTOCOL, EventKind.of("pusher:pong"));
+        assertEquals(EventKind.PROTOCOL, EventKind.of("pusher:subscription_count"));
+        assertEquals(EventKind.PROTOCOL, EventKind.of("pusher_internal:something_new"));
+        assertTrue(EventKind.PROTOCOL.isProtocol());
+    }
+
+    @Test
+    public void testApplicationEventsAreUserEvents() {
+        assertEquals(EventKind.USER, EventKind.of("my-event"));
+        assertEquals(EventKind.USER, EventKind.of("client-typing"));
+        assertEquals(EventKind.USER, EventKind.of("pusherish"));
+        assertEquals(EventKind.USER, EventKind.of(null));
+        assertFalse(EventKind.USER.isProtocol());
+    }
+
+    @Test
+    public void testParsedEventsCarryTheirKind() {
+        assertEquals(
+                EventKind.MEMBER_ADDED,
+                PusherEvent.fromJson("{\"event\":\"pusher_internal:member_added\",\"channel\":\"presence-a\",\"data\":\"{}\"}").getKind()
+        );
+        assertEquals(EventKind.USER, PusherEvent.fromJson("{\"event\":\"my-event\",\"data\":\"{}\"}").getKind());
+    }
+}
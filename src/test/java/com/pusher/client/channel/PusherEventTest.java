@@ -1,12 +1,24 @@
 package com.pusher.client.channel;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.google.gson.JsonSyntaxException;
+import com.pusher.client.util.GsonEnvelopeCodec;
+import com.pusher.client.util.SymbolTable;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 @RunWith(MockitoJUnitRunner.class)
 public class PusherEventTest {
 
@@ -22,6 +34,74 @@ public class PusherEventTest {
         assertEquals("my-channel", e.getChannelName());
     }
 
+    @Test
+    public void testKnownNamesResolveToTheirSymbols() {
+        final String channelName = new String("my-channel");
+        final String eventName = new String("my-event");
+        final SymbolTable symbols = new SymbolTable(channelName, eventName);
+
+        final PusherEvent e = PusherEvent.fromJson(
+                "{\"channel\": \"my-channel\", \"event\":\"my-event\",\"data\":\"{}\"}",
+                symbols
+        );
+        assertSame(channelName, e.getChannelName());
+        assertSame(eventName, e.getEventName());
+    }
+
+    @Test
+    public void testEscapedNamesAreNotResolvedByTheirRawCharacters() {
+        final SymbolTable symbols = new SymbolTable("my\\u002devent", "other-channel");
+
+        final PusherEvent e = PusherEvent.fromJson(
+                "{\"channel\": \"my-channel\", \"event\":\"my\\u002devent\"}",
+                symbols
+        );
+        assertEquals("my-channel", e.getChannelName());
+        assertEquals("my-event", e.getEventName());
+    }
+
+    @Test
+    public void testEventIsParsedFromUtf8Bytes() {
+        final String channelName = new String("my-channel");
+        final SymbolTable symbols = new SymbolTable(channelName);
+
+        final PusherEvent e = PusherEvent.fromJson(
+                utf8("{\"channel\":\"my-channel\",\"event\":\"caf\u00e9\",\"user_id\":5,\"data\":\"\u00fcber \\\"\u20ac\\\"\"}"),
+                symbols
+        );
+        assertSame(channelName, e.getChannelName());
+        assertEquals("caf\u00e9", e.getEventName());
+        assertEquals("5", e.getUserId());
+        assertEquals("\u00fcber \"\u20ac\"", e.getData());
+    }
+
+    @Test
+    public void testObjectDataIsParsedFromUtf8Bytes() {
+        final PusherEvent e = PusherEvent.fromJson(
+                utf8("{\"event\":\"my-event\",\"data\":{\"name\":\"\u00e9\"}}"),
+                null
+        );
+        assertEquals("{\"name\":\"\u00e9\"}", e.getRawData());
+        assertEquals("{\"name\":\"\u00e9\"}", e.getData());
+    }
+
+    @Test
+    public void testEventIsParsedFromADirectBufferWithoutMovingIt() {
+        final byte[] frame = "{\"event\":\"my-event\",\"data\":\"hello\"}".getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(frame.length);
+        buffer.put(frame).flip();
+
+        final PusherEvent e = PusherEvent.fromJson(buffer, null);
+        assertEquals("my-event", e.getEventName());
+        assertEquals("hello", e.getData());
+        assertEquals(0, buffer.position());
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void testTruncatedUtf8FrameIsRejected() {
+        PusherEvent.fromJson(utf8("{\"event\":\"my-event\",\"data\":\"hel"), null);
+    }
+
     @Test
     public void testEventNameIsExtracted() {
         final PusherEvent e = PusherEvent.fromJson(
@@ -52,4 +132,134 @@ public class PusherEventTest {
         );
         assertEquals("{\"code\":null,\"message\":\"Invalid key in subscription auth data: '<YOUR PUSHER KEY>'\"}", e.getData());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testEscapedStringDataIsDecoded() {
+        final PusherEvent e = PusherEvent.fromJson(
+                "{\"event\":\"my-event\",\"data\":\"line\\nbreak \\\"quoted\\\" \\u00e9\"}"
+        );
+        assertEquals("line\nbreak \"quoted\" \u00e9", e.getData());
+    }
+
+    @Test
+    public void testEnvelopeIsParsedRegardlessOfMemberOrderAndWhitespace() {
+        final PusherEvent e = PusherEvent.fromJson(
+                " {\n \"data\" : {\"nested\": {\"event\": \"not-me\"}, \"list\": [1, \"]\"]},\n \"channel\" : \"my-channel\" ,\"event\": \"my-event\" } "
+        );
+        assertEquals("my-event", e.getEventName());
+        assertEquals("my-channel", e.getChannelName());
+        assertEquals("{\"nested\":{\"event\":\"not-me\"},\"list\":[1,\"]\"]}", e.getData());
+    }
+
+    @Test
+    public void testMissingMembersAreNull() {
+        final PusherEvent e = PusherEvent.fromJson("{\"event\":\"pusher:pong\"}");
+        assertEquals("pusher:pong", e.getEventName());
+        assertNull(e.getChannelName());
+        assertNull(e.getUserId());
+        assertNull(e.getData());
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void testMalformedFrameThrows() {
+        PusherEvent.fromJson("{\"event\":\"my-event\",\"data\":\"unterminated}");
+    }
+
+    @Test
+    public void testObjectDataIsOnlySerializedOnce() {
+        final PusherEvent e = PusherEvent.fromJson(
+                "{\"event\":\"my-event\",\"data\":{\"fish\":\"chips\",\"price\":null}}"
+        );
+        assertEquals("{\"fish\":\"chips\",\"price\":null}", e.getData());
+        assertSame(e.getData(), e.getData());
+    }
+
+    @Test
+    public void testRawDataIsKeptAsReceived() {
+        final PusherEvent e = PusherEvent.fromJson(
+                "{\"event\":\"my-event\",\"data\":{ \"fish\" : \"chips\" }}"
+        );
+        assertEquals("{ \"fish\" : \"chips\" }", e.getRawData());
+        assertNull(new PusherEvent("my-event", "my-channel", null, "{}").getRawData());
+    }
+
+    @Test
+    public void testBorrowedEventIsRefilledByEachFrame() {
+        final PusherEvent borrowed = PusherEvent.newBorrowed();
+
+        final PusherEvent first = PusherEvent.fromJson(
+                "{\"event\":\"pusher:error\",\"channel\":\"a\",\"data\":\"one\"}", null, borrowed);
+        assertSame(borrowed, first);
+        assertEquals("one", first.getData());
+        assertEquals(EventKind.ERROR, first.getKind());
+
+        final PusherEvent second = PusherEvent.fromJson(utf8("{\"event\":\"my-event\",\"data\":\"two\"}"), null, borrowed);
+        assertSame(borrowed, second);
+        assertEquals("my-event", second.getEventName());
+        assertNull(second.getChannelName());
+        assertEquals("two", second.getData());
+        assertEquals(EventKind.USER, second.getKind());
+    }
+
+    @Test
+    public void testCopyOfBorrowedEventSurvivesTheNextFrame() {
+        final PusherEvent borrowed = PusherEvent.newBorrowed();
+        final byte[] frame = "{\"event\":\"my-event\",\"channel\":\"a\",\"data\":{\"n\":1}}".getBytes(StandardCharsets.UTF_8);
+        final PusherEvent copy = PusherEvent.fromJson(ByteBuffer.wrap(frame), null, borrowed).copy();
+
+        // the frame buffer and the event are both reused
+        Arrays.fill(frame, (byte) ' ');
+        PusherEvent.fromJson("{\"event\":\"other\",\"data\":\"x\"}", null, borrowed);
+
+        assertFalse(copy.isBorrowed());
+        assertEquals("my-event", copy.getEventName());
+        assertEquals("a", copy.getChannelName());
+        assertEquals("{\"n\":1}", copy.getData());
+    }
+
+    @Test
+    public void testEventWhichIsNotBorrowedIsNotCopiedOrReused() {
+        final PusherEvent e = PusherEvent.fromJson("{\"event\":\"my-event\",\"data\":\"x\"}");
+        assertFalse(e.isBorrowed());
+        assertSame(e, e.copy());
+        assertNotSame(e, PusherEvent.fromJson("{\"event\":\"my-event\",\"data\":\"y\"}", null, e));
+    }
+
+    @Test
+    public void testParsedEventWritesBackEveryMemberItHad() {
+        final String frame = "{\"event\": \"my-event\", \"channel\":\"my-channel\",\"data\":{\"a\":1.50},\"extra\":[true]}";
+        final String expected = "{\"event\":\"my-event\",\"channel\":\"my-channel\",\"data\":{\"a\":1.50},\"extra\":[true]}";
+
+        assertEquals(expected, PusherEvent.fromJson(frame).toJson());
+        assertEquals(expected, PusherEvent.fromJson(utf8(frame), null).toString());
+        assertEquals(expected, new GsonEnvelopeCodec().decodeEvent(frame).toJson());
+    }
+
+    @Test
+    public void testCopyOfABorrowedEventWritesBackEveryMemberItHad() {
+        final String frame = "{\"event\":\"my-event\",\"user_id\":\"1\",\"extra\":2}";
+
+        final PusherEvent borrowed = PusherEvent.newBorrowed();
+        final PusherEvent copy = PusherEvent.fromJson(utf8(frame), null, borrowed).copy();
+        PusherEvent.fromJson(utf8("{\"event\":\"other\"}"), null, borrowed);
+
+        assertEquals(frame, copy.toJson());
+    }
+
+    @Test
+    public void testConstructedEventIsWrittenWithItsNonNullMembers() {
+        assertEquals(
+                "{\"event\":\"my-event\",\"channel\":\"my-channel\",\"userId\":\"1\",\"data\":\"{\\\"a\\\":1}\"}",
+                new PusherEvent("my-event", "my-channel", "1", "{\"a\":1}").toJson()
+        );
+        assertEquals("{\"event\":\"my-event\"}", new PusherEvent("my-event", null, null, (String) null).toJson());
+    }
+
+    private static ByteBuffer utf8(final String frame) {
+        // a slice, so that the frame does not start at the beginning of the backing array
+        final byte[] bytes = ("xx" + frame).getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(2);
+        return buffer.slice();
+    }
+}
@@ -2,18 +2,29 @@ package com.pusher.client.channel.impl;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import com.pusher.client.channel.BatchSubscriptionEventListener;
+import com.pusher.client.channel.BorrowedEventListener;
 import com.pusher.client.channel.ChannelEventListener;
 import com.pusher.client.channel.ChannelState;
+import com.pusher.client.channel.ConflatingEventListener;
 import com.pusher.client.channel.PusherEvent;
+import com.pusher.client.channel.TypedEventListener;
 import com.pusher.client.util.Factory;
+import com.pusher.client.util.StreamingEnvelopeCodec;
+import com.pusher.client.util.SymbolTable;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -25,6 +36,13 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
 @RunWith(MockitoJUnitRunner.class)
 public class ChannelImplTest {
 
@@ -42,6 +60,8 @@ public class ChannelImplTest {
 
     @Before
     public void setUp() {
+        when(factory.getEnvelopeCodec()).thenReturn(new StreamingEnvelopeCodec());
+        when(factory.getSymbolTable()).thenReturn(new SymbolTable());
         doAnswer(
                 new Answer() {
                     @Override
@@ -54,6 +74,18 @@ public class ChannelImplTest {
         )
                 .when(factory)
                 .queueOnEventThread(any(Runnable.class));
+        doAnswer(
+                new Answer() {
+                    @Override
+                    public Object answer(InvocationOnMock invocation) {
+                        final Runnable r = (Runnable) invocation.getArguments()[1];
+                        r.run();
+                        return null;
+                    }
+                }
+        )
+                .when(factory)
+                .queueOnChannelThread(any(String.class), any(Runnable.class));
 
         mockListener = getEventListener();
         channel = newInstance(getChannelName());
@@ -255,8 +287,279 @@ public class ChannelImplTest {
         verify(mockListener).onSubscriptionSucceeded(getChannelName());
     }
 
+    @Test
+    public void testTypedListenersShareOneDecodedInstance() {
+        final TypedEventListener<Fish> typedListener1 = mock(TypedEventListener.class);
+        final TypedEventListener<Fish> typedListener2 = mock(TypedEventListener.class);
+        channel.bind(EVENT_NAME, Fish.class, typedListener1);
+        channel.bind(EVENT_NAME, Fish.class, typedListener2);
+
+        channel.emit(PusherEvent.fromJson("{\"event\":\"" + EVENT_NAME + "\",\"data\":\"{\\\"fish\\\":\\\"chips\\\"}\"}"));
+
+        final ArgumentCaptor<Fish> data1 = ArgumentCaptor.forClass(Fish.class);
+        final ArgumentCaptor<Fish> data2 = ArgumentCaptor.forClass(Fish.class);
+        verify(typedListener1).onEvent(any(PusherEvent.class), data1.capture());
+        verify(typedListener2).onEvent(any(PusherEvent.class), data2.capture());
+        assertEquals("chips", data1.getValue().fish);
+        assertSame(data1.getValue(), data2.getValue());
+    }
+
+    @Test
+    public void testTypedListenerIsNotifiedOfUndecodableData() {
+        final TypedEventListener<Fish> typedListener = mock(TypedEventListener.class);
+        channel.bind(EVENT_NAME, Fish.class, typedListener);
+
+        channel.emit(PusherEvent.fromJson("{\"event\":\"" + EVENT_NAME + "\",\"data\":\"[not json\"}"));
+
+        verify(typedListener, never()).onEvent(any(PusherEvent.class), any(Fish.class));
+        verify(typedListener).onError(anyString(), any(Exception.class));
+    }
+
+    @Test
+    public void testTypedListenerIsNotNotifiedAfterUnbind() {
+        final TypedEventListener<Fish> typedListener = mock(TypedEventListener.class);
+        channel.bind(EVENT_NAME, Fish.class, typedListener);
+        channel.unbind(EVENT_NAME, Fish.class, typedListener);
+
+        channel.emit(PusherEvent.fromJson("{\"event\":\"" + EVENT_NAME + "\",\"data\":\"{}\"}"));
+
+        verify(typedListener, never()).onEvent(any(PusherEvent.class), any(Fish.class));
+    }
+
+    @Test
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void testListenerBoundForTwoTypesIsUnboundForOneOnly() {
+        final TypedEventListener typedListener = mock(TypedEventListener.class);
+        channel.bind(EVENT_NAME, Fish.class, typedListener);
+        channel.bind(EVENT_NAME, Chips.class, typedListener);
+        channel.unbind(EVENT_NAME, Chips.class, typedListener);
+
+        channel.emit(PusherEvent.fromJson("{\"event\":\"" + EVENT_NAME + "\",\"data\":\"{}\"}"));
+
+        final ArgumentCaptor<Object> data = ArgumentCaptor.forClass(Object.class);
+        verify(typedListener).onEvent(any(PusherEvent.class), data.capture());
+        assertTrue(data.getValue() instanceof Fish);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTypedBindWithNullTypeThrowsException() {
+        channel.bind(EVENT_NAME, null, mock(TypedEventListener.class));
+    }
+
+    @Test
+    public void testBorrowingListenerIsLentTheEventAndOthersGetACopy() {
+        final BorrowedEventListener borrowingListener = mock(BorrowedEventListener.class);
+        channel.bindGlobal(borrowingListener);
+        channel.bind(EVENT_NAME, mockListener);
+
+        final PusherEvent borrowed = PusherEvent.fromJson(
+                "{\"event\":\"" + EVENT_NAME + "\",\"data\":\"{}\"}",
+                null,
+                PusherEvent.newBorrowed()
+        );
+        channel.handleEvent(borrowed);
+
+        // encrypted channels lend the decrypted event rather than the frame's
+        verify(borrowingListener).onEvent(argCaptor.capture());
+        assertEquals(EVENT_NAME, argCaptor.getValue().getEventName());
+        verify(mockListener).onEvent(argCaptor.capture());
+        assertFalse(argCaptor.getValue().isBorrowed());
+        assertEquals(EVENT_NAME, argCaptor.getValue().getEventName());
+        assertEquals("{}", argCaptor.getValue().getData());
+    }
+
+    @Test
+    public void testBorrowingListenerExceptionIsPassedToItsOnError() {
+        final BorrowedEventListener borrowingListener = mock(BorrowedEventListener.class);
+        final RuntimeException failure = new RuntimeException("boom");
+        doThrow(failure).when(borrowingListener).onEvent(any(PusherEvent.class));
+        channel.bindGlobal(borrowingListener);
+        channel.bind(EVENT_NAME, mockListener);
+
+        channel.handleEvent(PusherEvent.fromJson("{\"event\":\"" + EVENT_NAME + "\",\"data\":\"{}\"}"));
+
+        verify(borrowingListener).onError(anyString(), eq(failure));
+        verify(mockListener).onEvent(any(PusherEvent.class));
+    }
+
+    @Test
+    public void testInlineDispatchCallsListenersWithoutQueueingAndIsolatesFailures() {
+        when(factory.isInlineDispatch()).thenReturn(true);
+        channel = newInstance(getChannelName());
+        final ChannelEventListener failingListener = getEventListener();
+        final RuntimeException failure = new RuntimeException("boom");
+        doThrow(failure).when(failingListener).onEvent(any(PusherEvent.class));
+        channel.bind(EVENT_NAME, failingListener);
+        channel.bind(EVENT_NAME, mockListener);
+
+        channel.handleEvent(PusherEvent.fromJson("{\"event\":\"" + EVENT_NAME + "\",\"data\":\"{}\"}"));
+
+        verify(failingListener).onError(anyString(), eq(failure));
+        verify(mockListener).onEvent(any(PusherEvent.class));
+        verify(factory, never()).queueOnChannelThread(any(String.class), any(Runnable.class));
+    }
+
+    @Test
+    public void testEventsWaitingForAConflatingListenerAreReplacedByNewerOnes() {
+        final List<Runnable> queued = queueChannelCalls();
+        // conflation is common to every channel, the others only take listeners of their own
+        final ChannelImpl channel = new ChannelImpl("my-channel", factory);
+        final List<String> received = new ArrayList<>();
+        channel.bind(EVENT_NAME, (ConflatingEventListener) event -> received.add(event.getData()));
+
+        for (int i = 1; i <= 3; i++) {
+            channel.handleEvent(PusherEvent.fromJson("{\"event\":\"" + EVENT_NAME + "\",\"data\":\"" + i + "\"}"));
+        }
+
+        assertEquals(1, queued.size());
+        queued.remove(0).run();
+        assertEquals(Arrays.asList("3"), received);
+        assertEquals(2, channel.getConflatedCount());
+
+        channel.handleEvent(PusherEvent.fromJson("{\"event\":\"" + EVENT_NAME + "\",\"data\":\"4\"}"));
+        queued.remove(0).run();
+        assertEquals(Arrays.asList("3", "4"), received);
+    }
+
+    @Test
+    public void testConflatingListenerCanKeyEventsByTheirData() {
+        final List<Runnable> queued = queueChannelCalls();
+        final ChannelImpl channel = new ChannelImpl("my-channel", factory);
+        final List<String> received = new ArrayList<>();
+        channel.bindGlobal(new ConflatingEventListener() {
+            @Override
+            public void onEvent(final PusherEvent event) {
+                received.add(event.getData());
+            }
+
+            @Override
+            public String getConflationKey(final PusherEvent event) {
+                return event.getData().substring(0, 1);
+            }
+        });
+
+        for (final String data : new String[]{"a1", "b1", "a2"}) {
+            channel.handleEvent(PusherEvent.fromJson("{\"event\":\"" + EVENT_NAME + "\",\"data\":\"" + data + "\"}"));
+        }
+        while (!queued.isEmpty()) {
+            queued.remove(0).run();
+        }
+
+        assertEquals(Arrays.asList("a2", "b1"), received);
+        assertEquals(1, channel.getConflatedCount());
+    }
+
+    @Test
+    public void testBatchListenerGetsTheEventsRoutedWhileItsDeliveryWaited() {
+        final List<Runnable> queued = queueChannelCalls();
+        final ChannelImpl channel = new ChannelImpl("my-channel", factory);
+        final List<List<String>> batches = new ArrayList<>();
+        channel.bind(EVENT_NAME, new RecordingBatchListener(batches, 2, 0));
+
+        for (int i = 1; i <= 5; i++) {
+            channel.handleEvent(PusherEvent.fromJson("{\"event\":\"" + EVENT_NAME + "\",\"data\":\"" + i + "\"}"));
+        }
+
+        assertEquals(1, queued.size());
+        queued.remove(0).run();
+        assertEquals(Arrays.asList(Arrays.asList("1", "2"), Arrays.asList("3", "4"), Arrays.asList("5")), batches);
+
+        channel.handleEvent(PusherEvent.fromJson("{\"event\":\"" + EVENT_NAME + "\",\"data\":\"6\"}"));
+        assertEquals(1, queued.size());
+    }
+
+    @Test
+    public void testLingeringBatchIsQueuedWhenFullOrWhenTheLingerExpires() throws InterruptedException {
+        final List<Runnable> queued = Collections.synchronizedList(queueChannelCalls());
+        final ScheduledExecutorService timers = Executors.newSingleThreadScheduledExecutor();
+        when(factory.getTimers()).thenReturn(timers);
+        try {
+            final ChannelImpl channel = new ChannelImpl("my-channel", factory);
+            final List<List<String>> batches = new ArrayList<>();
+            channel.bind(EVENT_NAME, new RecordingBatchListener(batches, 2, 50));
+
+            for (int i = 1; i <= 2; i++) {
+                channel.handleEvent(PusherEvent.fromJson("{\"event\":\"" + EVENT_NAME + "\",\"data\":\"" + i + "\"}"));
+            }
+            // the second event filled the batch
+            assertEquals(1, queued.size());
+            queued.remove(0).run();
+            assertEquals(Arrays.asList(Arrays.asList("1", "2")), batches);
+
+            channel.handleEvent(PusherEvent.fromJson("{\"event\":\"" + EVENT_NAME + "\",\"data\":\"3\"}"));
+            assertTrue(queued.isEmpty());
+
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (queued.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            queued.remove(0).run();
+            assertEquals(Arrays.asList(Arrays.asList("1", "2"), Arrays.asList("3")), batches);
+        } finally {
+            timers.shutdown();
+        }
+    }
+
+    private static class RecordingBatchListener implements BatchSubscriptionEventListener {
+
+        private final List<List<String>> batches;
+        private final int maxBatchSize;
+        private final long lingerMillis;
+
+        RecordingBatchListener(final List<List<String>> batches, final int maxBatchSize, final long lingerMillis) {
+            this.batches = batches;
+            this.maxBatchSize = maxBatchSize;
+            this.lingerMillis = lingerMillis;
+        }
+
+        @Override
+        public void onEvents(final List<PusherEvent> events) {
+            final List<String> data = new ArrayList<>();
+            for (final PusherEvent event : events) {
+                data.add(event.getData());
+            }
+            batches.add(data);
+        }
+
+        @Override
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        @Override
+        public long getLingerMillis() {
+            return lingerMillis;
+        }
+    }
+
+    private List<Runnable> queueChannelCalls() {
+        final List<Runnable> queued = new ArrayList<>();
+        doAnswer(
+                new Answer() {
+                    @Override
+                    public Object answer(InvocationOnMock invocation) {
+                        queued.add((Runnable) invocation.getArguments()[1]);
+                        return null;
+                    }
+                }
+        )
+                .when(factory)
+                .queueOnChannelThread(any(String.class), any(Runnable.class));
+        return queued;
+    }
+
     /* end of tests */
 
+    static class Fish {
+
+        String fish;
+    }
+
+    static class Chips {
+
+        String chips;
+    }
+
     /**
      * This method is overridden in the test subclasses so that these tests can
      * be run against PrivateChannelImpl and PresenceChannelImpl.
@@ -3,6 +3,8 @@ package com.pusher.client.channel.impl;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyObject;
 import static org.mockito.Mockito.anyString;
@@ -22,10 +24,14 @@ import com.pusher.client.channel.PresenceChannelEventListener;
 import com.pusher.client.channel.PrivateChannel;
 import com.pusher.client.channel.PrivateChannelEventListener;
 import com.pusher.client.channel.PusherEvent;
+import com.pusher.client.connection.ConnectionEventListener;
 import com.pusher.client.connection.ConnectionState;
 import com.pusher.client.connection.ConnectionStateChange;
 import com.pusher.client.connection.impl.InternalConnection;
+import com.pusher.client.connection.impl.SharedInternalConnection;
 import com.pusher.client.util.Factory;
+import com.pusher.client.util.StreamingEnvelopeCodec;
+import com.pusher.client.util.SymbolTable;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -35,6 +41,10 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -86,6 +96,8 @@ public class ChannelManagerTest {
 
     @Before
     public void setUp() throws AuthorizationFailureException {
+        when(factory.getEnvelopeCodec()).thenReturn(new StreamingEnvelopeCodec());
+        when(factory.getSymbolTable()).thenReturn(new SymbolTable());
         doAnswer(
                 new Answer() {
                     @Override
@@ -98,6 +110,18 @@ public class ChannelManagerTest {
         )
                 .when(factory)
                 .queueOnEventThread(any(Runnable.class));
+        doAnswer(
+                new Answer() {
+                    @Override
+                    public Object answer(InvocationOnMock invocation) {
+                        final Runnable r = (Runnable) invocation.getArguments()[1];
+                        r.run();
+                        return null;
+                    }
+                }
+        )
+                .when(factory)
+                .queueOnChannelThread(any(String.class), any(Runnable.class));
         when(mockInternalChannel.getName()).thenReturn(CHANNEL_NAME);
         when(mockInternalChannel.toSubscribeMessage()).thenReturn(OUTGOING_SUBSCRIBE_MESSAGE);
         when(mockInternalChannel.toUnsubscribeMessage()).thenReturn(OUTGOING_UNSUBSCRIBE_MESSAGE);
@@ -126,6 +150,19 @@ public class ChannelManagerTest {
         )
                 .when(subscriptionTestFactory)
                 .queueOnEventThread(any(Runnable.class));
+        doAnswer(
+                new Answer() {
+                    @Override
+                    public Object answer(InvocationOnMock invocation) {
+                        final Runnable r = (Runnable) invocation.getArguments()[1];
+                        r.run();
+                        return null;
+                    }
+                }
+        )
+                .when(subscriptionTestFactory)
+                .queueOnChannelThread(any(String.class), any(Runnable.class));
+        when(subscriptionTestFactory.getSymbolTable()).thenReturn(new SymbolTable());
         subscriptionTestChannelManager = new ChannelManager(subscriptionTestFactory);
         subscriptionTestChannelManager.setConnection(subscriptionTestConnection);
     }
@@ -340,6 +377,14 @@ public class ChannelManagerTest {
         verify(mockInternalChannel).updateState(ChannelState.UNSUBSCRIBED);
     }
 
+    @Test
+    public void testUnsubscribeReleasesTheLaneOfTheChannel() {
+        channelManager.subscribeTo(mockInternalChannel, mockEventListener);
+        channelManager.unsubscribeFrom(CHANNEL_NAME);
+
+        verify(factory).releaseChannelThread(CHANNEL_NAME);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testUnsubscribeWithNullChannelNameThrowsException() {
         channelManager.unsubscribeFrom(null);
@@ -445,4 +490,232 @@ public class ChannelManagerTest {
         service.shutdown();
         service.awaitTermination(1, TimeUnit.MINUTES);
     }
+
+    @Test
+    public void testShardedChannelsAreSubscribedOnTheShardTheirNameHashesTo() {
+        final FakeShard[] shards = connectedShards(3);
+        channelManager.setConnections(shards);
+
+        for (int i = 0; i < 30; i++) {
+            channelManager.subscribeTo(new ChannelImpl("channel" + i, factory), null);
+        }
+
+        for (final FakeShard shard : shards) {
+            assertFalse(shard.sent.isEmpty());
+        }
+        for (int i = 0; i < 30; i++) {
+            final String name = "channel" + i;
+            final FakeShard shard = (FakeShard) channelManager.connectionFor(name);
+            assertEquals(1, shard.count("pusher:subscribe", name));
+            assertEquals(1, shards[0].count("pusher:subscribe", name) +
+                    shards[1].count("pusher:subscribe", name) +
+                    shards[2].count("pusher:subscribe", name));
+        }
+    }
+
+    @Test
+    public void testChannelsOfADroppedShardMoveToTheOtherShardsAndBack() {
+        final FakeShard[] shards = connectedShards(3);
+        channelManager.setConnections(shards);
+        final List<String> onDroppedShard = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            final String name = "channel" + i;
+            channelManager.subscribeTo(new ChannelImpl(name, factory), null);
+            if (channelManager.connectionFor(name) == shards[1]) {
+                onDroppedShard.add(name);
+            }
+        }
+        for (final FakeShard shard : shards) {
+            shard.sent.clear();
+        }
+
+        shards[1].changeState(ConnectionState.DISCONNECTED);
+
+        assertFalse(onDroppedShard.isEmpty());
+        for (final String name : onDroppedShard) {
+            final FakeShard standIn = (FakeShard) channelManager.connectionFor(name);
+            assertTrue(standIn != shards[1]);
+            assertEquals(1, standIn.count("pusher:subscribe", name));
+        }
+        // only the channels of the dropped shard moved
+        assertEquals(onDroppedShard.size(), shards[0].sent.size() + shards[2].sent.size());
+
+        for (final FakeShard shard : shards) {
+            shard.sent.clear();
+        }
+        shards[1].changeState(ConnectionState.CONNECTED);
+
+        for (final String name : onDroppedShard) {
+            assertSame(shards[1], channelManager.connectionFor(name));
+            assertEquals(1, shards[1].count("pusher:subscribe", name));
+            assertEquals(1, shards[0].count("pusher:unsubscribe", name) + shards[2].count("pusher:unsubscribe", name));
+        }
+        assertEquals(onDroppedShard.size(), shards[1].sent.size());
+    }
+
+    @Test
+    public void testChannelsOfAReconnectingShardMoveWithoutWaitingForItToGiveUp() {
+        final FakeShard[] shards = connectedShards(2);
+        channelManager.setConnections(shards);
+        for (int i = 0; i < 10; i++) {
+            channelManager.subscribeTo(new ChannelImpl("channel" + i, factory), null);
+        }
+        final FakeShard home = (FakeShard) channelManager.connectionFor("channel0");
+        final FakeShard other = home == shards[0] ? shards[1] : shards[0];
+        other.sent.clear();
+
+        home.changeState(ConnectionState.RECONNECTING);
+
+        assertSame(other, channelManager.connectionFor("channel0"));
+        assertEquals(1, other.count("pusher:subscribe", "channel0"));
+
+        home.changeState(ConnectionState.CONNECTING);
+        home.sent.clear();
+        home.changeState(ConnectionState.CONNECTED);
+
+        assertSame(home, channelManager.connectionFor("channel0"));
+        assertEquals(1, home.count("pusher:subscribe", "channel0"));
+        assertEquals(1, other.count("pusher:unsubscribe", "channel0"));
+    }
+
+    @Test
+    public void testShardedChannelsWaitForTheirShardWhenNoOtherShardIsConnected() {
+        final FakeShard[] shards = connectedShards(2);
+        channelManager.setConnections(shards);
+        for (int i = 0; i < 10; i++) {
+            channelManager.subscribeTo(new ChannelImpl("channel" + i, factory), null);
+        }
+        final FakeShard home = (FakeShard) channelManager.connectionFor("channel0");
+
+        shards[0].changeState(ConnectionState.DISCONNECTED);
+        shards[1].changeState(ConnectionState.DISCONNECTED);
+        home.sent.clear();
+        home.changeState(ConnectionState.CONNECTED);
+
+        assertSame(home, channelManager.connectionFor("channel0"));
+        assertEquals(1, home.count("pusher:subscribe", "channel0"));
+    }
+
+    @Test
+    public void testUnsubscribeFromShardedChannelIsSentOnItsShard() {
+        final FakeShard[] shards = connectedShards(2);
+        channelManager.setConnections(shards);
+        channelManager.subscribeTo(new ChannelImpl(CHANNEL_NAME, factory), null);
+        final FakeShard shard = (FakeShard) channelManager.connectionFor(CHANNEL_NAME);
+
+        channelManager.unsubscribeFrom(CHANNEL_NAME);
+
+        assertEquals(1, shard.count("pusher:unsubscribe", CHANNEL_NAME));
+    }
+
+    @Test
+    public void testChannelConnectionOfAShardedClientConnectsAndDisconnectsEveryShard() {
+        final FakeShard[] shards = connectedShards(3);
+        channelManager.setConnections(shards);
+        final InternalConnection channelConnection = channelManager.getChannelConnection(CHANNEL_NAME);
+
+        channelConnection.connect();
+        channelConnection.disconnect();
+
+        for (final FakeShard shard : shards) {
+            assertEquals(1, shard.connects);
+            assertEquals(1, shard.disconnects);
+        }
+    }
+
+    @Test
+    public void testSubscribeOnASharedConnectionGoesThroughTheHandle() {
+        final SharedInternalConnection shared = mock(SharedInternalConnection.class);
+        when(shared.getState()).thenReturn(ConnectionState.CONNECTED);
+        when(shared.canSubscribe(CHANNEL_NAME)).thenReturn(true);
+        channelManager.setConnection(shared);
+
+        channelManager.subscribeTo(mockInternalChannel, mockEventListener);
+        channelManager.unsubscribeFrom(CHANNEL_NAME);
+
+        verify(shared).subscribe(CHANNEL_NAME, OUTGOING_SUBSCRIBE_MESSAGE);
+        verify(shared).unsubscribe(CHANNEL_NAME, OUTGOING_UNSUBSCRIBE_MESSAGE);
+        verify(shared, never()).sendMessage(anyString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubscribeToAChannelHeldByAnotherClientOfTheSharedConnectionThrows() {
+        final SharedInternalConnection shared = mock(SharedInternalConnection.class);
+        when(shared.canSubscribe(PRESENCE_CHANNEL_NAME)).thenReturn(false);
+        channelManager.setConnection(shared);
+
+        channelManager.subscribeTo(mockPresenceChannel, mockPresenceChannelEventListener);
+    }
+
+    private static FakeShard[] connectedShards(final int count) {
+        final FakeShard[] shards = new FakeShard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new FakeShard();
+        }
+        return shards;
+    }
+
+    private static class FakeShard implements InternalConnection {
+
+        private final List<String> sent = new ArrayList<>();
+        private final Map<ConnectionState, List<ConnectionEventListener>> listeners = new EnumMap<>(ConnectionState.class);
+        private ConnectionState state = ConnectionState.CONNECTED;
+        private int connects;
+        private int disconnects;
+
+        void changeState(final ConnectionState newState) {
+            final ConnectionStateChange change = new ConnectionStateChange(state, newState);
+            state = newState;
+            for (final ConnectionState bound : new ConnectionState[]{newState, ConnectionState.ALL}) {
+                for (final ConnectionEventListener listener : listeners.getOrDefault(bound, new ArrayList<>())) {
+                    listener.onConnectionStateChange(change);
+                }
+            }
+        }
+
+        int count(final String event, final String channelName) {
+            int count = 0;
+            for (final String message : sent) {
+                if (message.contains("\"" + event + "\"") && message.contains("\"" + channelName + "\"")) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public void sendMessage(final String message) {
+            sent.add(message);
+        }
+
+        @Override
+        public void disconnect() {
+            disconnects++;
+        }
+
+        @Override
+        public void connect() {
+            connects++;
+        }
+
+        @Override
+        public void bind(final ConnectionState state, final ConnectionEventListener eventListener) {
+            listeners.computeIfAbsent(state, s -> new ArrayList<>()).add(eventListener);
+        }
+
+        @Override
+        public boolean unbind(final ConnectionState state, final ConnectionEventListener eventListener) {
+            return listeners.containsKey(state) && listeners.get(state).remove(eventListener);
+        }
+
+        @Override
+        public ConnectionState getState() {
+            return state;
+        }
+
+        @Override
+        public String getSocketId() {
+            return SOCKET_ID;
+        }
+    }
 }
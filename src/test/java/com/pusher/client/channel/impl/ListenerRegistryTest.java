@@ -0,0 +1,96 @@
+package com.pusher.client.channel.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.pusher.client.channel.SubscriptionEventListener;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ListenerRegistryTest {
+
+    @Mock
+    private SubscriptionEventListener listener;
+
+    @Mock
+    private SubscriptionEventListener otherListener;
+
+    @Test
+    public void testEmptyRegistryHasNoInterestedListeners() {
+        assertNull(ListenerRegistry.EMPTY.getInterestedListeners("my-event"));
+    }
+
+    @Test
+    public void testBindingTheSameListenerTwiceReturnsTheSameRegistry() {
+        final ListenerRegistry registry = ListenerRegistry.EMPTY.bind("my-event", listener);
+
+        assertSame(registry, registry.bind("my-event", listener));
+        assertArrayEquals(new SubscriptionEventListener[]{listener}, registry.getInterestedListeners("my-event"));
+    }
+
+    @Test
+    public void testGlobalListenersFollowEventListenersWithoutDuplicates() {
+        final ListenerRegistry registry = ListenerRegistry.EMPTY
+                .bind("my-event", listener)
+                .bindGlobal(otherListener)
+                .bindGlobal(listener);
+
+        assertArrayEquals(
+                new SubscriptionEventListener[]{listener, otherListener},
+                registry.getInterestedListeners("my-event")
+        );
+        assertArrayEquals(
+                new SubscriptionEventListener[]{otherListener, listener},
+                registry.getInterestedListeners("other-event")
+        );
+    }
+
+    @Test
+    public void testMergedListenersAreBuiltOnceWhenBound() {
+        final ListenerRegistry registry = ListenerRegistry.EMPTY
+                .bindGlobal(otherListener)
+                .bind("my-event", listener);
+
+        assertSame(registry.getInterestedListeners("my-event"), registry.getInterestedListeners("my-event"));
+    }
+
+    @Test
+    public void testUnbindingTheLastListenersEmptiesTheRegistry() {
+        final ListenerRegistry registry = ListenerRegistry.EMPTY
+                .bind("my-event", listener)
+                .bind("my-event", otherListener)
+                .bindGlobal(listener);
+
+        final ListenerRegistry unbound = registry
+                .unbind("my-event", listener)
+                .unbind("my-event", otherListener)
+                .unbindGlobal(listener);
+
+        assertTrue(unbound.isEmpty());
+        assertNull(unbound.getInterestedListeners("my-event"));
+    }
+
+    @Test
+    public void testEventNamesBeyondTheLinearScanLimitAreIndexed() {
+        ListenerRegistry registry = ListenerRegistry.EMPTY;
+        final int count = ListenerRegistry.LINEAR_SCAN_LIMIT * 2;
+        for (int i = 0; i < count; i++) {
+            registry = registry.bind("event-" + i, i % 2 == 0 ? listener : otherListener);
+        }
+
+        for (int i = 0; i < count; i++) {
+            assertSame(i % 2 == 0 ? listener : otherListener, registry.getInterestedListeners("event-" + i)[0]);
+        }
+        assertNull(registry.getInterestedListeners("event-" + count));
+
+        registry = registry.unbind("event-0", listener);
+        assertNull(registry.getInterestedListeners("event-0"));
+        assertSame(otherListener, registry.getInterestedListeners("event-" + (count - 1))[0]);
+    }
+}
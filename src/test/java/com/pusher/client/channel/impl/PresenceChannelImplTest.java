@@ -3,10 +3,13 @@ package com.pusher.client.channel.impl;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -25,7 +28,9 @@ import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -159,6 +164,38 @@ public class PresenceChannelImplTest extends PrivateChannelImplTest {
         assertEquals("{\"name\":\"Phil Leggetter\",\"twitter_id\":\"@leggetter\"}", user.getInfo());
     }
 
+    @Test
+    public void testUsersInformationComesBeforeSubscriptionSucceededOnTheEventThread() {
+        final List<Runnable> queued = queueChannelCalls();
+
+        channel.handleEvent(newSubscriptionSucceededEvent());
+
+        verify(mockEventListener).onUsersInformationReceived(eq(getChannelName()), any(Set.class));
+        verify(mockEventListener, never()).onSubscriptionSucceeded(getChannelName());
+        assertEquals(1, queued.size());
+        queued.get(0).run();
+        verify(mockEventListener).onSubscriptionSucceeded(getChannelName());
+    }
+
+    @Test
+    public void testUsersInformationIsQueuedAfterSubscriptionSucceededOnALane() {
+        when(factory.isLaneDispatch()).thenReturn(true);
+        channel = newInstance(getChannelName());
+        channel.setEventListener(mockEventListener);
+        final List<Runnable> queued = queueChannelCalls();
+
+        channel.handleEvent(newSubscriptionSucceededEvent());
+
+        verify(mockEventListener, never()).onUsersInformationReceived(anyString(), any(Set.class));
+        assertEquals(2, queued.size());
+        for (final Runnable call : queued) {
+            call.run();
+        }
+        final InOrder inOrder = inOrder(mockEventListener);
+        inOrder.verify(mockEventListener).onSubscriptionSucceeded(getChannelName());
+        inOrder.verify(mockEventListener).onUsersInformationReceived(eq(getChannelName()), any(Set.class));
+    }
+
     @Test
     public void testThatUserIdsPassedAsIntegersGetStoredAsStringIntegersAndNotDoubles() {
         final Map<String, String> userInfo = new LinkedHashMap<String, String>();
@@ -301,4 +338,29 @@ public class PresenceChannelImplTest extends PrivateChannelImplTest {
     protected ChannelEventListener getEventListener() {
         return mock(PresenceChannelEventListener.class);
     }
+
+    private List<Runnable> queueChannelCalls() {
+        final List<Runnable> queued = new ArrayList<>();
+        doAnswer(invocation -> {
+            queued.add((Runnable) invocation.getArguments()[1]);
+            return null;
+        })
+                .when(factory)
+                .queueOnChannelThread(anyString(), any(Runnable.class));
+        return queued;
+    }
+
+    private PusherEvent newSubscriptionSucceededEvent() {
+        final Map<String, Object> hash = new LinkedHashMap<String, Object>();
+        hash.put(USER_ID, new LinkedHashMap<String, Object>());
+
+        final Map<String, Object> presence = new LinkedHashMap<String, Object>();
+        presence.put("count", 1);
+        presence.put("ids", new String[]{USER_ID});
+        presence.put("hash", hash);
+
+        final Map<String, Object> data = new LinkedHashMap<String, Object>();
+        data.put("presence", presence);
+        return new PusherEvent("pusher_internal:subscription_succeeded", getChannelName(), null, data);
+    }
 }
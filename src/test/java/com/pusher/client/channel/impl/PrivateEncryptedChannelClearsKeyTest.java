@@ -16,6 +16,8 @@ import com.pusher.client.connection.impl.InternalConnection;
 import com.pusher.client.crypto.nacl.SecretBoxOpener;
 import com.pusher.client.crypto.nacl.SecretBoxOpenerFactory;
 import com.pusher.client.util.Factory;
+import com.pusher.client.util.StreamingEnvelopeCodec;
+import com.pusher.client.util.SymbolTable;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -50,6 +52,8 @@ public class PrivateEncryptedChannelClearsKeyTest {
 
     @Before
     public void setUp() {
+        when(mockFactory.getEnvelopeCodec()).thenReturn(new StreamingEnvelopeCodec());
+        when(mockFactory.getSymbolTable()).thenReturn(new SymbolTable());
         when(mockChannelAuthorizer.authorize(eq(CHANNEL_NAME), anyString())).thenReturn(AUTH_RESPONSE);
         when(mockSecretBoxOpenerFactory.create(any())).thenReturn(mockSecretBoxOpener);
 
@@ -0,0 +1,64 @@
+package com.pusher.client.connection.websocket;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.pusher.client.connection.ConnectionEventListener;
+import com.pusher.client.connection.ConnectionState;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConnectionListenersTest {
+
+    @Mock
+    private ConnectionEventListener listener;
+
+    @Mock
+    private ConnectionEventListener otherListener;
+
+    @Test
+    public void testListenersBoundToAllFollowThoseBoundToTheStateWithoutDuplicates() {
+        final ConnectionListeners listeners = ConnectionListeners.EMPTY
+                .bind(ConnectionState.ALL, listener)
+                .bind(ConnectionState.CONNECTED, otherListener)
+                .bind(ConnectionState.CONNECTED, listener);
+
+        assertArrayEquals(
+                new ConnectionEventListener[]{listener, otherListener},
+                listeners.getInterestedListeners(ConnectionState.CONNECTED)
+        );
+        assertArrayEquals(
+                new ConnectionEventListener[]{listener},
+                listeners.getInterestedListeners(ConnectionState.DISCONNECTED)
+        );
+        assertArrayEquals(new ConnectionEventListener[]{listener, otherListener}, listeners.getAllListeners());
+    }
+
+    @Test
+    public void testBindingTheSameListenerTwiceReturnsTheSameListeners() {
+        final ConnectionListeners listeners = ConnectionListeners.EMPTY.bind(ConnectionState.CONNECTED, listener);
+
+        assertSame(listeners, listeners.bind(ConnectionState.CONNECTED, listener));
+        assertSame(
+                listeners.getInterestedListeners(ConnectionState.CONNECTED),
+                listeners.getInterestedListeners(ConnectionState.CONNECTED)
+        );
+    }
+
+    @Test
+    public void testUnbindingOnlyRemovesTheListenerFromTheStateItWasBoundTo() {
+        final ConnectionListeners listeners = ConnectionListeners.EMPTY
+                .bind(ConnectionState.CONNECTED, listener)
+                .bind(ConnectionState.DISCONNECTED, listener)
+                .unbind(ConnectionState.CONNECTED, listener);
+
+        assertEquals(0, listeners.getInterestedListeners(ConnectionState.CONNECTED).length);
+        assertArrayEquals(new ConnectionEventListener[]{listener}, listeners.getAllListeners());
+        assertSame(listeners, listeners.unbind(ConnectionState.CONNECTING, listener));
+    }
+}
@@ -0,0 +1,266 @@
+package com.pusher.client.connection.websocket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.pusher.client.PusherOptions;
+import com.pusher.client.util.Factory;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the client against a local server which accepts permessage-deflate,
+ * through a relay which counts the bytes on the wire.
+ */
+public class PerMessageDeflateTest {
+
+    private static final String PAYLOAD = events(200);
+
+    private WebSocketServer server;
+    private Relay relay;
+    private final CountDownLatch serverStarted = new CountDownLatch(1);
+    private final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> receivedByServer = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws Exception {
+        final Draft deflating = new Draft_6455(new PerMessageDeflateExtension());
+        server = new WebSocketServer(new InetSocketAddress("localhost", 0), Collections.singletonList(deflating)) {
+            @Override
+            public void onOpen(final WebSocket conn, final ClientHandshake handshake) {
+                conn.send(PAYLOAD);
+            }
+
+            @Override
+            public void onClose(final WebSocket conn, final int code, final String reason, final boolean remote) {
+            }
+
+            @Override
+            public void onMessage(final WebSocket conn, final String message) {
+                receivedByServer.add(message);
+            }
+
+            @Override
+            public void onError(final WebSocket conn, final Exception ex) {
+            }
+
+            @Override
+            public void onStart() {
+                serverStarted.countDown();
+            }
+        };
+        server.setReuseAddr(true);
+        server.start();
+        assertTrue(serverStarted.await(5, TimeUnit.SECONDS));
+        relay = new Relay(server.getPort());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        relay.close();
+        server.stop();
+    }
+
+    @Test
+    public void testInboundMessagesTakeFarFewerBytesOnTheWire() throws Exception {
+        final WebSocketClientWrapper plain = connect(new PusherOptions());
+        assertEquals(PAYLOAD, received.poll(5, TimeUnit.SECONDS));
+        final long plainBytes = relay.downstream.get();
+        plain.closeBlocking();
+
+        relay.downstream.set(0);
+        final WebSocketClientWrapper deflated = connect(new PusherOptions().setPerMessageDeflate(true));
+        assertEquals(PAYLOAD, received.poll(5, TimeUnit.SECONDS));
+        final long deflatedBytes = relay.downstream.get();
+        deflated.closeBlocking();
+
+        assertTrue(plainBytes > PAYLOAD.length());
+        assertTrue("deflated " + deflatedBytes + " of " + plainBytes, deflatedBytes * 5 < plainBytes);
+    }
+
+    @Test
+    public void testDeflatedFramesAreInflatedBeforeBeingParsedFromTheirBytes() throws Exception {
+        final WebSocketClientWrapper client = connect(
+                new PusherOptions().setPerMessageDeflate(true).setByteFrameParsing(true)
+        );
+
+        final Object message = received.poll(5, TimeUnit.SECONDS);
+        assertTrue(message instanceof ByteBuffer);
+        assertEquals(PAYLOAD, StandardCharsets.UTF_8.decode((ByteBuffer) message).toString());
+
+        client.closeBlocking();
+    }
+
+    @Test
+    public void testOutboundMessagesAreDeflatedFromTheThreshold() throws Exception {
+        final WebSocketClientWrapper client = connect(
+                new PusherOptions().setPerMessageDeflate(4096, 9)
+        );
+        received.poll(5, TimeUnit.SECONDS);
+
+        final String small = events(10);
+        assertTrue(small.length() < 4096);
+        final long beforeSmall = relay.upstream.get();
+        client.send(small);
+        assertEquals(small, receivedByServer.poll(5, TimeUnit.SECONDS));
+        assertTrue(relay.upstream.get() - beforeSmall > small.length());
+
+        final long beforeLarge = relay.upstream.get();
+        client.send(PAYLOAD);
+        assertEquals(PAYLOAD, receivedByServer.poll(5, TimeUnit.SECONDS));
+        assertTrue(relay.upstream.get() - beforeLarge < PAYLOAD.length() / 5);
+
+        client.closeBlocking();
+    }
+
+    @Test
+    public void testBatchedMessagesArriveInOrderWhenDeflated() throws Exception {
+        final WebSocketClientWrapper client = connect(
+                new PusherOptions().setPerMessageDeflate(64, 6)
+        );
+        received.poll(5, TimeUnit.SECONDS);
+
+        final List<String> batch = Arrays.asList(events(1), PAYLOAD, events(5), PAYLOAD);
+        client.sendBatch(batch);
+
+        for (final String message : batch) {
+            assertEquals(message, receivedByServer.poll(5, TimeUnit.SECONDS));
+        }
+        client.closeBlocking();
+    }
+
+    private WebSocketClientWrapper connect(final PusherOptions options) throws Exception {
+        final WebSocketClientWrapper client = new Factory(options).newWebSocketClientWrapper(
+                new URI("ws://localhost:" + relay.getPort()),
+                Proxy.NO_PROXY,
+                new QueueingListener()
+        );
+        assertTrue(client.connectBlocking(5, TimeUnit.SECONDS));
+        return client;
+    }
+
+    private static String events(final int count) {
+        final StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"event\":\"price-update\",\"channel\":\"market-data\",\"data\":")
+                    .append("\"{\\\"symbol\\\":\\\"ACME\\\",\\\"price\\\":")
+                    .append(100 + i % 17)
+                    .append(",\\\"sequence\\\":")
+                    .append(i)
+                    .append("}\"}");
+        }
+        return sb.append(']').toString();
+    }
+
+    private class QueueingListener implements WebSocketListener {
+
+        @Override
+        public void onOpen(final ServerHandshake handshakeData) {
+        }
+
+        @Override
+        public void onMessage(final String message) {
+            received.add(message);
+        }
+
+        @Override
+        public void onMessage(final ByteBuffer message) {
+            received.add(message);
+        }
+
+        @Override
+        public void onClose(final int code, final String reason, final boolean remote) {
+        }
+
+        @Override
+        public void onError(final Exception ex) {
+            received.add(ex);
+        }
+    }
+
+    /**
+     * Passes each connection on to the server, counting the bytes which go
+     * through in each direction.
+     */
+    private static class Relay {
+
+        private final ServerSocket serverSocket = new ServerSocket(0);
+        private final AtomicLong upstream = new AtomicLong();
+        private final AtomicLong downstream = new AtomicLong();
+
+        Relay(final int serverPort) throws IOException {
+            final Thread acceptor = new Thread(() -> {
+                try {
+                    while (true) {
+                        final Socket client = serverSocket.accept();
+                        final Socket target = new Socket("localhost", serverPort);
+                        pump(client.getInputStream(), target.getOutputStream(), upstream);
+                        pump(target.getInputStream(), client.getOutputStream(), downstream);
+                    }
+                } catch (final IOException e) {
+                    // closed
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+        }
+
+        private static void pump(final InputStream in, final OutputStream out, final AtomicLong count) {
+            final Thread pump = new Thread(() -> {
+                final byte[] buffer = new byte[8192];
+                try {
+                    int n;
+                    while ((n = in.read(buffer)) >= 0) {
+                        count.addAndGet(n);
+                        out.write(buffer, 0, n);
+                        out.flush();
+                    }
+                    out.close();
+                } catch (final IOException e) {
+                    // either side went away
+                }
+            });
+            pump.setDaemon(true);
+            pump.start();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.pusher.client.connection.websocket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.pusher.client.PusherOptions;
+import com.pusher.client.ReconnectStrategy;
+import com.pusher.client.channel.PusherEvent;
+import com.pusher.client.connection.ConnectionEventListener;
+import com.pusher.client.connection.ConnectionState;
+import com.pusher.client.connection.ConnectionStateChange;
+import com.pusher.client.connection.impl.InternalConnection;
+import com.pusher.client.connection.impl.SharedInternalConnection;
+import com.pusher.client.util.Factory;
+import com.pusher.client.util.GsonEnvelopeCodec;
+import com.pusher.client.util.StreamingEnvelopeCodec;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SharedConnectionTest {
+
+    // the registry lives as long as the JVM, so each test uses an app of its own
+    private static final AtomicInteger apps = new AtomicInteger();
+
+    private final PusherOptions options = new PusherOptions().setSharedConnection(true);
+    private final AtomicInteger factoriesMade = new AtomicInteger();
+    private final List<PusherEvent> firstEvents = new ArrayList<>();
+    private final List<PusherEvent> secondEvents = new ArrayList<>();
+    private String apiKey;
+    private Consumer<PusherEvent> socketEvents;
+
+    @Mock
+    private Factory factory;
+
+    @Mock
+    private InternalConnection connection;
+
+    @Mock
+    private ConnectionEventListener listener;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        apiKey = "shared-" + apps.incrementAndGet();
+        when(factory.getEnvelopeCodec()).thenReturn(new StreamingEnvelopeCodec());
+        when(factory.newWebSocketConnection(anyString(), any(PusherOptions.class), any(Consumer.class)))
+                .thenAnswer(invocation -> {
+                    socketEvents = (Consumer<PusherEvent>) invocation.getArguments()[2];
+                    return connection;
+                });
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[0]).run();
+            return null;
+        }).when(factory).queueOnEventThread(any(Runnable.class));
+        when(connection.getState()).thenReturn(ConnectionState.CONNECTED);
+    }
+
+    @Test
+    public void testClientsOfTheSameAppShareOneConnection() {
+        final InternalConnection first = acquire(apiKey, firstEvents::add);
+        final InternalConnection second = acquire(apiKey, secondEvents::add);
+        acquire("other-" + apiKey, event -> { });
+
+        assertNotSame(first, second);
+        assertEquals(2, factoriesMade.get());
+    }
+
+    @Test
+    public void testClientsWithDifferentConnectionSettingsGetConnectionsOfTheirOwn() {
+        acquire(apiKey, options, firstEvents::add);
+        acquire(apiKey, shared().setEnvelopeCodec(new GsonEnvelopeCodec()), event -> { });
+        acquire(apiKey, shared().setPerMessageDeflate(true), event -> { });
+        acquire(apiKey, shared().setMaxReconnectGapInSeconds(10), event -> { });
+
+        assertEquals(4, factoriesMade.get());
+    }
+
+    @Test
+    public void testOptionsObjectsAreComparedWithEquals() {
+        final ReconnectStrategy strategy = (attempt, previousDelayMillis) -> 1000;
+        acquire(apiKey, shared().setReconnectStrategy(strategy), firstEvents::add);
+        acquire(apiKey, shared().setReconnectStrategy(strategy), secondEvents::add);
+        assertEquals(1, factoriesMade.get());
+
+        // a strategy of the user's own is only equal to itself
+        final ReconnectStrategy same = (attempt, previousDelayMillis) -> 1000;
+        acquire(apiKey, shared().setReconnectStrategy(same), event -> { });
+        assertEquals(2, factoriesMade.get());
+
+        // the built-in ones are equal when set up alike
+        acquire(apiKey, shared().setReconnectStrategy(ReconnectStrategy.fullJitter(100, 1000)), event -> { });
+        acquire(apiKey, shared().setReconnectStrategy(ReconnectStrategy.fullJitter(100, 1000)), event -> { });
+        assertEquals(3, factoriesMade.get());
+    }
+
+    @Test
+    public void testChannelIsSubscribedOnceAndUnsubscribedByTheLastClient() {
+        final SharedInternalConnection first = connected(firstEvents::add);
+        final SharedInternalConnection second = connected(secondEvents::add);
+
+        first.subscribe("my-channel", "subscribe");
+        second.subscribe("my-channel", "subscribe");
+        verify(connection, times(1)).sendMessage("subscribe");
+
+        first.unsubscribe("my-channel", "unsubscribe");
+        verify(connection, never()).sendMessage("unsubscribe");
+        second.unsubscribe("my-channel", "unsubscribe");
+        verify(connection).sendMessage("unsubscribe");
+    }
+
+    @Test
+    public void testLaterClientGetsTheStoredSubscriptionSucceeded() {
+        final SharedInternalConnection first = connected(firstEvents::add);
+        final SharedInternalConnection second = connected(secondEvents::add);
+
+        first.subscribe("my-channel", "subscribe");
+        socketEvents.accept(new PusherEvent("pusher_internal:subscription_succeeded", "my-channel", null, "{}"));
+        second.subscribe("my-channel", "subscribe");
+
+        assertEquals(1, firstEvents.size());
+        assertEquals(1, secondEvents.size());
+        assertEquals("pusher_internal:subscription_succeeded", secondEvents.get(0).getEventName());
+    }
+
+    @Test
+    public void testChannelEventsOnlyGoToTheClientsHoldingTheChannel() {
+        final SharedInternalConnection first = connected(firstEvents::add);
+        connected(secondEvents::add);
+
+        first.subscribe("my-channel", "subscribe");
+        socketEvents.accept(new PusherEvent("my-event", "my-channel", null, "{}"));
+        socketEvents.accept(new PusherEvent("pusher:signin_success", null, null, "{}"));
+
+        assertEquals(2, firstEvents.size());
+        assertEquals(1, secondEvents.size());
+    }
+
+    @Test
+    public void testPresenceChannelIsHeldByOneClientOnly() {
+        final SharedInternalConnection first = connected(firstEvents::add);
+        final SharedInternalConnection second = connected(secondEvents::add);
+
+        first.subscribe("presence-room", "subscribe");
+
+        assertTrue(first.canSubscribe("presence-room"));
+        assertFalse(second.canSubscribe("presence-room"));
+        assertTrue(second.canSubscribe("private-room"));
+    }
+
+    @Test
+    public void testConnectionIsClosedWhenTheLastClientDisconnects() {
+        final SharedInternalConnection first = connected(firstEvents::add);
+        final SharedInternalConnection second = connected(secondEvents::add);
+        first.bind(ConnectionState.ALL, listener);
+        first.subscribe("my-channel", "subscribe");
+        second.subscribe("my-channel", "subscribe");
+
+        first.disconnect();
+        assertEquals(ConnectionState.DISCONNECTED, first.getState());
+        assertEquals(ConnectionState.CONNECTED, second.getState());
+        verify(connection, never()).disconnect();
+        // the channel is still held by the other client
+        verify(connection, never()).sendMessage("{\"event\":\"pusher:unsubscribe\",\"data\":{\"channel\":\"my-channel\"}}");
+        final ArgumentCaptor<ConnectionStateChange> change = ArgumentCaptor.forClass(ConnectionStateChange.class);
+        verify(listener).onConnectionStateChange(change.capture());
+        assertEquals(ConnectionState.DISCONNECTED, change.getValue().getCurrentState());
+
+        second.disconnect();
+        verify(connection).disconnect();
+    }
+
+    @Test
+    public void testLastClientToDisconnectLetsGoOfTheConnection() {
+        final SharedInternalConnection first = connected(firstEvents::add);
+        final ArgumentCaptor<ConnectionEventListener> shared = ArgumentCaptor.forClass(ConnectionEventListener.class);
+        verify(connection).bind(eq(ConnectionState.ALL), shared.capture());
+
+        first.disconnect();
+        verify(connection).disconnect();
+        verify(factory, never()).shutdownThreads();
+        shared.getValue().onConnectionStateChange(
+                new ConnectionStateChange(ConnectionState.DISCONNECTING, ConnectionState.DISCONNECTED)
+        );
+        verify(factory).shutdownThreads();
+
+        // the next client opens a connection of its own
+        acquire(apiKey, secondEvents::add);
+        assertEquals(2, factoriesMade.get());
+    }
+
+    @Test
+    public void testClientWhichConnectsAgainPutsTheConnectionBackInTheRegistry() {
+        final SharedInternalConnection first = connected(firstEvents::add);
+        first.disconnect();
+
+        first.connect();
+        acquire(apiKey, secondEvents::add);
+
+        assertEquals(1, factoriesMade.get());
+    }
+
+    @Test
+    public void testClientConnectingToAnOpenConnectionIsToldItIsConnected() {
+        connected(firstEvents::add);
+        final SharedInternalConnection second = (SharedInternalConnection) acquire(apiKey, secondEvents::add);
+        second.bind(ConnectionState.CONNECTED, listener);
+
+        second.connect();
+
+        verify(connection, never()).connect();
+        verify(listener).onConnectionStateChange(any(ConnectionStateChange.class));
+    }
+
+    private SharedInternalConnection connected(final Consumer<PusherEvent> eventHandler) {
+        final SharedInternalConnection handle = (SharedInternalConnection) acquire(apiKey, eventHandler);
+        handle.connect();
+        return handle;
+    }
+
+    private InternalConnection acquire(final String key, final Consumer<PusherEvent> eventHandler) {
+        return acquire(key, options, eventHandler);
+    }
+
+    private static PusherOptions shared() {
+        return new PusherOptions().setSharedConnection(true);
+    }
+
+    private InternalConnection acquire(
+            final String key,
+            final PusherOptions options,
+            final Consumer<PusherEvent> eventHandler
+    ) {
+        final Supplier<Factory> newFactory = () -> {
+            factoriesMade.incrementAndGet();
+            return factory;
+        };
+        return SharedConnection.acquire(key, options, newFactory, eventHandler);
+    }
+}
@@ -0,0 +1,142 @@
+package com.pusher.client.connection.websocket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class Utf8FrameDraftTest {
+
+    private static final String FRAME = "{\"event\":\"caf\u00e9\",\"data\":\"\u20ac\"}";
+
+    private WebSocketServer server;
+    private final CountDownLatch serverStarted = new CountDownLatch(1);
+    private final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+    // a fragmented message, then a message in a single frame
+    private volatile Consumer<WebSocket> frames = conn -> {
+        conn.sendFragmentedFrame(Opcode.TEXT, utf8("{\"event\":"), false);
+        conn.sendFragmentedFrame(Opcode.TEXT, utf8("\"fragmented\"}"), true);
+        conn.send(FRAME);
+    };
+
+    @Before
+    public void setUp() throws InterruptedException {
+        server = new WebSocketServer(new InetSocketAddress("localhost", 0)) {
+            @Override
+            public void onOpen(final WebSocket conn, final ClientHandshake handshake) {
+                frames.accept(conn);
+            }
+
+            @Override
+            public void onClose(final WebSocket conn, final int code, final String reason, final boolean remote) {
+            }
+
+            @Override
+            public void onMessage(final WebSocket conn, final String message) {
+            }
+
+            @Override
+            public void onError(final WebSocket conn, final Exception ex) {
+            }
+
+            @Override
+            public void onStart() {
+                serverStarted.countDown();
+            }
+        };
+        server.start();
+        assertTrue(serverStarted.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        server.stop();
+    }
+
+    @Test
+    public void testCompleteTextFramesAreDeliveredAsBytes() throws Exception {
+        final WebSocketClientWrapper client = connect();
+
+        assertEquals("{\"event\":\"fragmented\"}", received.poll(5, TimeUnit.SECONDS));
+        final Object message = received.poll(5, TimeUnit.SECONDS);
+        assertTrue(message instanceof ByteBuffer);
+        assertEquals(FRAME, StandardCharsets.UTF_8.decode((ByteBuffer) message).toString());
+
+        client.closeBlocking();
+    }
+
+    @Test
+    public void testTextFrameInsideAFragmentedMessageIsRejected() throws Exception {
+        frames = conn -> {
+            conn.sendFragmentedFrame(Opcode.TEXT, utf8("{\"event\":"), false);
+            conn.send(FRAME);
+            conn.sendFragmentedFrame(Opcode.TEXT, utf8("\"fragmented\"}"), true);
+        };
+        final WebSocketClientWrapper client = connect();
+
+        final Object message = received.poll(5, TimeUnit.SECONDS);
+        assertTrue(String.valueOf(message), message instanceof InvalidDataException);
+
+        client.closeBlocking();
+    }
+
+    private WebSocketClientWrapper connect() throws Exception {
+        final WebSocketClientWrapper client = new WebSocketClientWrapper(
+                new URI("ws://localhost:" + server.getPort()),
+                Proxy.NO_PROXY,
+                new QueueingListener(),
+                new Utf8FrameDraft()
+        );
+        assertTrue(client.connectBlocking(5, TimeUnit.SECONDS));
+        return client;
+    }
+
+    private static ByteBuffer utf8(final String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private class QueueingListener implements WebSocketListener {
+
+        @Override
+        public void onOpen(final ServerHandshake handshakeData) {
+        }
+
+        @Override
+        public void onMessage(final String message) {
+            received.add(message);
+        }
+
+        @Override
+        public void onMessage(final ByteBuffer message) {
+            received.add(message);
+        }
+
+        @Override
+        public void onClose(final int code, final String reason, final boolean remote) {
+        }
+
+        @Override
+        public void onError(final Exception ex) {
+            received.add(ex);
+        }
+    }
+}
@@ -3,10 +3,12 @@ package com.pusher.client.connection.websocket;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.timeout;
@@ -14,16 +16,22 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.pusher.client.ReconnectStrategy;
 import com.pusher.client.channel.PusherEvent;
 import com.pusher.client.connection.ConnectionEventListener;
 import com.pusher.client.connection.ConnectionState;
 import com.pusher.client.connection.ConnectionStateChange;
 import com.pusher.client.util.DoNothingExecutor;
 import com.pusher.client.util.Factory;
+import com.pusher.client.util.StreamingEnvelopeCodec;
+import com.pusher.client.util.SymbolTable;
+import com.pusher.client.util.internal.EventLoop;
+import com.pusher.client.util.internal.OutboundQueue;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -33,6 +41,11 @@ import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -74,6 +87,9 @@ public class WebSocketConnectionTest {
 
     @Before
     public void setUp() throws URISyntaxException, SSLException {
+        when(factory.getEnvelopeCodec()).thenReturn(new StreamingEnvelopeCodec());
+        when(factory.getSymbolTable()).thenReturn(new SymbolTable());
+        when(factory.newOutboundQueue()).thenReturn(new OutboundQueue(null, 0));
         when(factory.newWebSocketClientWrapper(any(URI.class), any(Proxy.class), any(WebSocketConnection.class)))
                 .thenReturn(mockUnderlyingConnection);
         doAnswer(
@@ -88,6 +104,21 @@ public class WebSocketConnectionTest {
         )
                 .when(factory)
                 .queueOnEventThread(any(Runnable.class));
+        final Answer handleFrame = new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                final EventLoop.FrameHandler handler = (EventLoop.FrameHandler) invocation.getArguments()[0];
+                final Object frame = invocation.getArguments()[1];
+                if (frame instanceof String) {
+                    handler.handleFrame((String) frame);
+                } else {
+                    handler.handleFrame((ByteBuffer) frame);
+                }
+                return null;
+            }
+        };
+        doAnswer(handleFrame).when(factory).queueFrameOnEventThread(any(EventLoop.FrameHandler.class), any(String.class));
+        doAnswer(handleFrame).when(factory).queueFrameOnEventThread(any(EventLoop.FrameHandler.class), any(ByteBuffer.class));
         when(factory.getTimers()).thenReturn(new DoNothingExecutor());
 
         connection =
@@ -221,6 +252,44 @@ public class WebSocketConnectionTest {
         assertEquals("21112.816204", connection.getSocketId());
     }
 
+    @Test
+    public void testReceivePusherConnectionEstablishedMessageAsBytesSetsSocketId() {
+        connection.connect();
+        connection.onMessage(ByteBuffer.wrap(CONN_ESTABLISHED_EVENT.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(ConnectionState.CONNECTED, connection.getState());
+        assertEquals("21112.816204", connection.getSocketId());
+    }
+
+    @Test
+    public void testBorrowedEventIsReusedForEachFrame() throws URISyntaxException {
+        final PusherEvent borrowed = PusherEvent.newBorrowed();
+        when(factory.newBorrowedEvent()).thenReturn(borrowed);
+        final List<String> eventNames = new ArrayList<>();
+        final List<PusherEvent> events = new ArrayList<>();
+        connection = new WebSocketConnection(
+                URL,
+                ACTIVITY_TIMEOUT,
+                PONG_TIMEOUT,
+                MAX_RECONNECTION_ATTEMPTS,
+                MAX_GAP,
+                PROXY,
+                event -> {
+                    events.add(event);
+                    eventNames.add(event.getEventName());
+                },
+                factory
+        );
+
+        connection.onMessage(INCOMING_MESSAGE);
+        connection.onMessage(ByteBuffer.wrap(CONN_ESTABLISHED_EVENT.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(Arrays.asList(EVENT_NAME, "pusher:connection_established"), eventNames);
+        assertSame(borrowed, events.get(0));
+        assertSame(borrowed, events.get(1));
+        assertEquals("21112.816204", connection.getSocketId());
+    }
+
     @Test
     public void testReceivePusherErrorMessageRaisesErrorEvent() {
         connection.connect();
@@ -263,6 +332,66 @@ public class WebSocketConnectionTest {
         verify(mockEventListener).onError("An exception occurred while sending message [message]", null, e);
     }
 
+    @Test
+    public void testMessagesSentBeforeTheFlushRunsGoOutInOneWrite() {
+        connect();
+        final List<Runnable> queued = new ArrayList<>();
+        doAnswer(invocation -> queued.add((Runnable) invocation.getArguments()[0]))
+                .when(factory)
+                .queueOnEventThread(any(Runnable.class));
+
+        connection.sendMessage("{\"event\":\"client-one\"}");
+        connection.sendMessage("{\"event\":\"client-two\"}");
+        connection.sendMessage("{\"event\":\"pusher:ping\"}");
+        assertEquals(1, queued.size());
+        queued.remove(0).run();
+
+        verify(mockUnderlyingConnection).sendBatch(Arrays.asList(
+                "{\"event\":\"pusher:ping\"}",
+                "{\"event\":\"client-one\"}",
+                "{\"event\":\"client-two\"}"
+        ));
+        verify(mockUnderlyingConnection, never()).send(anyString());
+        assertTrue(queued.isEmpty());
+    }
+
+    @Test
+    public void testMessagesWaitWhileTheSocketIsBehindWithItsWrites() {
+        connect();
+        when(mockUnderlyingConnection.hasBufferedData()).thenReturn(true);
+
+        connection.sendMessage("message");
+
+        verify(mockUnderlyingConnection, never()).send(anyString());
+        verify(mockEventListener, never()).onError(anyString(), anyString(), any(Exception.class));
+    }
+
+    @Test
+    public void testFlushWaitsLongerEachTimeTheSocketIsStillBehind() {
+        connect();
+        when(factory.getTimers()).thenReturn(scheduledExecutorService);
+        final List<Runnable> retries = new ArrayList<>();
+        doAnswer(invocation -> {
+            retries.add((Runnable) invocation.getArguments()[0]);
+            return null;
+        })
+                .when(scheduledExecutorService)
+                .schedule(any(Runnable.class), any(Long.class), any(TimeUnit.class));
+        when(mockUnderlyingConnection.hasBufferedData()).thenReturn(true);
+
+        connection.sendMessage("message");
+        retries.remove(0).run();
+        retries.remove(0).run();
+        when(mockUnderlyingConnection.hasBufferedData()).thenReturn(false);
+        retries.remove(0).run();
+
+        verify(scheduledExecutorService).schedule(any(Runnable.class), eq(1L), eq(TimeUnit.MILLISECONDS));
+        verify(scheduledExecutorService).schedule(any(Runnable.class), eq(2L), eq(TimeUnit.MILLISECONDS));
+        verify(scheduledExecutorService).schedule(any(Runnable.class), eq(4L), eq(TimeUnit.MILLISECONDS));
+        verify(mockUnderlyingConnection).send("message");
+        assertTrue(retries.isEmpty());
+    }
+
     @Test
     public void testReceiveUserMessagePassesMessageToEventHandler() {
         connect();
@@ -370,6 +499,21 @@ public class WebSocketConnectionTest {
         verify(mockUnderlyingConnection, timeout((int) (ACTIVITY_TIMEOUT + PONG_TIMEOUT))).close();
     }
 
+    @Test
+    public void testEventQueueOverflowFailsTheConnectionAndReconnects() {
+        final ArgumentCaptor<EventLoop.FrameHandler> frames = ArgumentCaptor.forClass(EventLoop.FrameHandler.class);
+        connection.connect();
+        connection.onMessage(CONN_ESTABLISHED_EVENT);
+        verify(factory).queueFrameOnEventThread(frames.capture(), anyString());
+
+        frames.getValue().handleOverflow();
+
+        verify(mockUnderlyingConnection).removeWebSocketListener();
+        verify(mockUnderlyingConnection).close();
+        verify(mockEventListener).onError(anyString(), (String) any(), (Exception) any());
+        assertEquals(ConnectionState.RECONNECTING, connection.getState());
+    }
+
     @Test
     public void stateIsReconnectingAfterOnCloseWithoutTheUserDisconnecting() {
         connection.connect();
@@ -419,6 +563,27 @@ public class WebSocketConnectionTest {
         assertEquals(ConnectionState.RECONNECTING, connection.getState());
     }
 
+    @Test
+    public void testReconnectWaitsTheDelayOfTheStrategyInMilliseconds() throws URISyntaxException {
+        when(factory.getTimers()).thenReturn(scheduledExecutorService);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[0]).run();
+            return null;
+        })
+                .when(scheduledExecutorService)
+                .schedule(any(Runnable.class), any(Long.class), any(TimeUnit.class));
+        final ReconnectStrategy strategy = (attempt, previousDelayMillis) -> previousDelayMillis + 250;
+        connection =
+                new WebSocketConnection(URL, ACTIVITY_TIMEOUT, PONG_TIMEOUT, 6, strategy, PROXY, mockEventHandler, factory);
+        connection.connect();
+
+        connection.onClose(500, "reason", true);
+        connection.onClose(500, "reason", true);
+
+        verify(scheduledExecutorService).schedule(any(Runnable.class), eq(250L), eq(TimeUnit.MILLISECONDS));
+        verify(scheduledExecutorService).schedule(any(Runnable.class), eq(500L), eq(TimeUnit.MILLISECONDS));
+    }
+
     @Test
     @SuppressWarnings("rawtypes")
     public void testStopsReconnectingAfterMaxReconnectionAttemptsIsReached() throws URISyntaxException {
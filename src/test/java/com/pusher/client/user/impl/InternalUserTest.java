@@ -16,6 +16,7 @@ import com.pusher.client.channel.impl.ChannelManager;
 import com.pusher.client.connection.ConnectionState;
 import com.pusher.client.connection.impl.InternalConnection;
 import com.pusher.client.util.Factory;
+import com.pusher.client.util.StreamingEnvelopeCodec;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -55,6 +56,7 @@ public class InternalUserTest {
 
     @Before
     public void setUp() {
+        when(mockFactory.getEnvelopeCodec()).thenReturn(new StreamingEnvelopeCodec());
         when(mockConnection.getSocketId()).thenReturn(socketId);
         when(mockFactory.getChannelManager()).thenReturn(mockChannelManager);
         user = new InternalUser(mockConnection, mockUserAuthenticator, mockFactory);
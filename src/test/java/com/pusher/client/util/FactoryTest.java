@@ -0,0 +1,258 @@
+package com.pusher.client.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.pusher.client.PusherOptions;
+import com.pusher.client.WaitStrategy;
+import com.pusher.client.util.internal.EventLoop;
+import com.pusher.client.util.internal.VirtualThreads;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class FactoryTest {
+
+    private final Factory first = new Factory(new PusherOptions());
+    private final Factory second = new Factory(new PusherOptions());
+
+    @After
+    public void tearDown() {
+        first.shutdownThreads();
+        second.shutdownThreads();
+    }
+
+    @Test
+    public void testClientsRunTheirEventTasksIndependently() throws InterruptedException {
+        final CountDownLatch secondRan = new CountDownLatch(1);
+        final CountDownLatch firstSawSecond = new CountDownLatch(1);
+
+        // the first client's task only completes once the second client's has run
+        first.queueOnEventThread(() -> {
+            try {
+                if (secondRan.await(5, TimeUnit.SECONDS)) {
+                    firstSawSecond.countDown();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        second.queueOnEventThread(secondRan::countDown);
+
+        assertTrue(firstSawSecond.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testChannelsOnDifferentLanesAreDispatchedInParallel() throws InterruptedException {
+        final Factory factory = new Factory(new PusherOptions().setDispatchLanes(2));
+        try {
+            final String slowChannel = "channel-0";
+            final String otherChannel = channelOnOtherLane(factory, slowChannel);
+            final CountDownLatch otherRan = new CountDownLatch(1);
+            final CountDownLatch slowSawOther = new CountDownLatch(1);
+
+            factory.queueOnChannelThread(slowChannel, () -> {
+                try {
+                    if (otherRan.await(5, TimeUnit.SECONDS)) {
+                        slowSawOther.countDown();
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            factory.queueOnChannelThread(otherChannel, otherRan::countDown);
+
+            assertTrue(slowSawOther.await(10, TimeUnit.SECONDS));
+        } finally {
+            factory.shutdownThreads();
+        }
+    }
+
+    @Test
+    public void testChannelIsDispatchedInOrderOnItsLane() throws InterruptedException {
+        final Factory factory = new Factory(new PusherOptions().setDispatchLanes(4));
+        try {
+            final List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+            final CountDownLatch done = new CountDownLatch(1);
+            for (int i = 0; i < 100; i++) {
+                final int n = i;
+                factory.queueOnChannelThread("my-channel", () -> seen.add(n));
+            }
+            factory.queueOnChannelThread("my-channel", done::countDown);
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 100; i++) {
+                assertEquals(Integer.valueOf(i), seen.get(i));
+            }
+        } finally {
+            factory.shutdownThreads();
+        }
+    }
+
+    private static String channelOnOtherLane(final Factory factory, final String channelName) {
+        for (int i = 1; ; i++) {
+            final String candidate = "channel-" + i;
+            if (factory.laneOf(candidate) != factory.laneOf(channelName)) {
+                return candidate;
+            }
+        }
+    }
+
+    @Test
+    public void testVirtualThreadDispatchGivesEachChannelALaneWhenSupported() throws InterruptedException {
+        final Factory factory = new Factory(new PusherOptions().setVirtualThreadDispatch(true));
+        try {
+            final CountDownLatch otherRan = new CountDownLatch(1);
+            final CountDownLatch blockedSawOther = new CountDownLatch(1);
+            final AtomicReference<String> threadName = new AtomicReference<>();
+
+            factory.queueOnChannelThread("blocked-channel", () -> {
+                threadName.set(Thread.currentThread().getName());
+                try {
+                    if (otherRan.await(5, TimeUnit.SECONDS)) {
+                        blockedSawOther.countDown();
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            factory.queueOnChannelThread("other-channel", otherRan::countDown);
+
+            if (VirtualThreads.isSupported()) {
+                assertTrue(blockedSawOther.await(10, TimeUnit.SECONDS));
+                assertTrue(threadName.get().startsWith("pusher-java-client channel-"));
+            } else {
+                // both channels share the event thread, the first waits in vain
+                assertFalse(blockedSawOther.await(2, TimeUnit.SECONDS));
+                assertEquals("pusher-java-client eventQueue", threadName.get());
+            }
+        } finally {
+            factory.shutdownThreads();
+        }
+    }
+
+    @Test
+    public void testReleasedChannelLaneIsRemovedOnceItsCallsHaveRun() throws InterruptedException {
+        assumeTrue(VirtualThreads.isSupported());
+        final Factory factory = new Factory(new PusherOptions().setVirtualThreadDispatch(true));
+        try {
+            final CountDownLatch ran = new CountDownLatch(1);
+            factory.queueOnChannelThread("my-channel", ran::countDown);
+            factory.releaseChannelThread("my-channel");
+
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 100 && factory.hasChannelLane("my-channel"); i++) {
+                Thread.sleep(10);
+            }
+            assertFalse(factory.hasChannelLane("my-channel"));
+        } finally {
+            factory.shutdownThreads();
+        }
+    }
+
+    @Test
+    public void testDispatchLanesTakePrecedenceOverInlineDispatch() {
+        assertTrue(new Factory(new PusherOptions().setInlineDispatch(true)).isInlineDispatch());
+        assertFalse(new Factory(new PusherOptions().setInlineDispatch(true).setDispatchLanes(2)).isInlineDispatch());
+        assertFalse(new Factory(new PusherOptions()).isInlineDispatch());
+    }
+
+    @Test
+    public void testListenersAreOnTheEventThreadUnlessLanesAreSet() {
+        assertFalse(new Factory(new PusherOptions()).isLaneDispatch());
+        assertTrue(new Factory(new PusherOptions().setDispatchLanes(2)).isLaneDispatch());
+    }
+
+    @Test
+    public void testSuppliedExecutorsRunTheClientAndOutliveIt() throws InterruptedException {
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        final Factory factory = new Factory(
+                new PusherOptions().setEventExecutor(pool).setScheduledExecutor(scheduler).setDispatchLanes(2)
+        );
+        try {
+            final List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+            final CountDownLatch done = new CountDownLatch(2);
+            for (int i = 0; i < 100; i++) {
+                final int n = i;
+                factory.queueOnEventThread(() -> seen.add(n));
+            }
+            factory.queueOnEventThread(done::countDown);
+            factory.queueOnChannelThread("my-channel", done::countDown);
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 100; i++) {
+                assertEquals(Integer.valueOf(i), seen.get(i));
+            }
+            assertSame(scheduler, factory.getTimers());
+
+            factory.shutdownThreads();
+
+            assertFalse(pool.isShutdown());
+            assertFalse(scheduler.isShutdown());
+            final CountDownLatch ranAfterShutdown = new CountDownLatch(1);
+            factory.queueOnEventThread(ranAfterShutdown::countDown);
+            assertTrue(ranAfterShutdown.await(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdown();
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testRingBufferEventLoopKeepsFramesAndTasksInOrderAcrossShutdown() throws InterruptedException {
+        final Factory factory = new Factory(new PusherOptions().setRingBufferEventLoop(8, WaitStrategy.PARK));
+        try {
+            final List<String> seen = Collections.synchronizedList(new ArrayList<>());
+            final EventLoop.FrameHandler handler = new EventLoop.FrameHandler() {
+                @Override
+                public void handleFrame(final String frame) {
+                    seen.add(frame);
+                }
+
+                @Override
+                public void handleFrame(final ByteBuffer frame) {
+                    seen.add(StandardCharsets.UTF_8.decode(frame).toString());
+                }
+            };
+            for (int i = 0; i < 50; i++) {
+                final String n = Integer.toString(i);
+                if (i % 2 == 0) {
+                    factory.queueFrameOnEventThread(handler, n);
+                } else {
+                    factory.queueOnEventThread(() -> seen.add(n));
+                }
+            }
+            final CountDownLatch done = new CountDownLatch(1);
+            factory.queueOnEventThread(done::countDown);
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 50; i++) {
+                assertEquals(Integer.toString(i), seen.get(i));
+            }
+
+            factory.shutdownThreads();
+
+            final CountDownLatch ranAfterShutdown = new CountDownLatch(1);
+            factory.queueFrameOnEventThread(handler, ByteBuffer.wrap("after".getBytes(StandardCharsets.UTF_8)));
+            factory.queueOnEventThread(ranAfterShutdown::countDown);
+            assertTrue(ranAfterShutdown.await(10, TimeUnit.SECONDS));
+            assertEquals("after", seen.get(50));
+        } finally {
+            factory.shutdownThreads();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.pusher.client.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.pusher.client.EnvelopeCodec;
+import com.pusher.client.channel.PusherEvent;
+import com.pusher.client.message.AuthResponse;
+import com.pusher.client.message.AuthenticationResponse;
+import com.pusher.client.message.ChannelData;
+import com.pusher.client.message.EncryptedReceivedData;
+import com.pusher.client.message.PresenceMemberData;
+import com.pusher.client.message.PresenceSubscriptionData;
+import com.pusher.client.message.SigninMessage;
+import com.pusher.client.message.SubscribeMessage;
+import com.pusher.client.message.SubscriptionCountData;
+import com.pusher.client.message.UnsubscribeMessage;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class StreamingEnvelopeCodecTest {
+
+    private final EnvelopeCodec codec = new StreamingEnvelopeCodec();
+    private final EnvelopeCodec gsonCodec = new GsonEnvelopeCodec();
+
+    @Test
+    public void testOutboundMessagesMatchGsonCodec() {
+        final Object[] messages = {
+                new SubscribeMessage("my-channel"),
+                new SubscribeMessage("presence-my-channel", "key:sig", "{\"user_id\":\"1\",\"user_info\":{\"a\":\"<&>\"}}"),
+                new SubscribeMessage("private-my-channel", "key:sig", null),
+                new UnsubscribeMessage("my-channel"),
+                new SigninMessage("key:sig", "{\"id\":\"1\"}"),
+        };
+        for (final Object message : messages) {
+            assertEquals(gsonCodec.encode(message), codec.encode(message));
+        }
+    }
+
+    @Test
+    public void testOutboundMessagesDecodeAsWithGsonCodec() {
+        final String json = codec.encode(new SubscribeMessage("private-my-channel", "key:sig", null));
+
+        final SubscribeMessage message = codec.decode(json, SubscribeMessage.class);
+
+        assertEquals(gsonCodec.decode(json, SubscribeMessage.class).getData(), message.getData());
+        assertEquals(json, codec.encode(message));
+        assertEquals("my-channel", codec.decode(codec.encode(new UnsubscribeMessage("my-channel")), UnsubscribeMessage.class)
+                .getData().get("channel"));
+    }
+
+    @Test
+    public void testEncryptedDataEncodesAsWithGsonCodec() {
+        final EncryptedReceivedData data = new EncryptedReceivedData("bm9uY2U=", "Y2lwaGVydGV4dA==");
+
+        assertEquals(gsonCodec.encode(data), codec.encode(data));
+    }
+
+    @Test
+    public void testEncodedEventMatchesGsonCodec() {
+        final PusherEvent event = new PusherEvent("client-my-event", "private-my-channel", null, "{\"a\":\"<b>\"}");
+        assertEquals(gsonCodec.encodeEvent(event), codec.encodeEvent(event));
+    }
+
+    @Test
+    public void testDecodedEventMatchesGsonCodec() {
+        final String frame =
+                "{\"event\":\"my-event\",\"channel\":\"my-channel\",\"user_id\":\"u1\",\"data\":{\"fish\":\"chips\",\"n\":null}}";
+        final PusherEvent expected = gsonCodec.decodeEvent(frame);
+        final PusherEvent actual = codec.decodeEvent(frame);
+        assertEquals(expected.getEventName(), actual.getEventName());
+        assertEquals(expected.getChannelName(), actual.getChannelName());
+        assertEquals(expected.getUserId(), actual.getUserId());
+        assertEquals(expected.getData(), actual.getData());
+    }
+
+    @Test
+    public void testDecodesAuthResponse() {
+        final AuthResponse response = codec.decode(
+                "{\"auth\":\"key:sig\",\"channel_data\":\"{}\",\"shared_secret\":\"c2VjcmV0\",\"extra\":[1,{}]}",
+                AuthResponse.class
+        );
+        assertEquals("key:sig", response.getAuth());
+        assertEquals("{}", response.getChannelData());
+        assertEquals("c2VjcmV0", response.getSharedSecret());
+    }
+
+    @Test
+    public void testDecodesNumericUserIdAsString() {
+        assertEquals("5116", codec.decode("{\"user_id\":5116}", ChannelData.class).getUserId());
+    }
+
+    @Test
+    public void testDecodesSubscriptionCount() {
+        assertEquals(3, codec.decode("{\"subscription_count\":3}", SubscriptionCountData.class).getCount());
+    }
+
+    @Test
+    public void testDecodesAuthenticationResponse() {
+        final AuthenticationResponse response = codec.decode(
+                "{\"auth\":\"key:sig\",\"user_data\":\"{\\\"id\\\":\\\"1\\\"}\"}",
+                AuthenticationResponse.class
+        );
+        assertEquals("key:sig", response.getAuth());
+        assertEquals("{\"id\":\"1\"}", response.getUserData());
+    }
+
+    @Test
+    public void testInboundMessagesDecodeReflectivelyWithoutUnsafe() {
+        final Gson gson = new GsonBuilder().disableJdkUnsafe().create();
+
+        assertEquals("key:sig", gson.fromJson("{\"auth\":\"key:sig\"}", AuthResponse.class).getAuth());
+        assertEquals("1", gson.fromJson("{\"user_id\":\"1\"}", ChannelData.class).getUserId());
+        assertEquals("1", gson.fromJson("{\"user_id\":\"1\"}", PresenceMemberData.class).getId());
+        assertEquals("key:sig", gson.fromJson("{\"auth\":\"key:sig\"}", AuthenticationResponse.class).getAuth());
+        assertEquals(0, gson.fromJson("{\"nonce\":\"\"}", EncryptedReceivedData.class).getNonce().length);
+        assertEquals(3, gson.fromJson("{\"subscription_count\":3}", SubscriptionCountData.class).getCount());
+        assertNull(gson.fromJson("{}", PresenceSubscriptionData.class).presence);
+    }
+
+    @Test
+    public void testDecodingNullReturnsNull() {
+        assertNull(codec.decode(null, AuthResponse.class));
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void testDecodingMalformedMessageThrows() {
+        codec.decode("{\"auth\":{}}", AuthResponse.class);
+    }
+
+    @Test
+    public void testPresenceMemberInfoIsCapturedAsReceived() {
+        final String json = "{\"presence\":{\"count\":2,\"ids\":[\"1\",\"2\"],\"hash\":{" +
+                "\"1\":{\"name\":\"<Ada>\",\"age\":36,\"tags\":[\"a\"]}," +
+                "\"2\":null}}}";
+
+        final PresenceSubscriptionData data = codec.decode(json, PresenceSubscriptionData.class);
+
+        assertEquals(Arrays.asList("1", "2"), data.getIds());
+        assertEquals("{\"name\":\"<Ada>\",\"age\":36,\"tags\":[\"a\"]}", data.getHash().get("1"));
+        assertNull(data.getHash().get("2"));
+        assertEquals(gsonCodec.decode(json, PresenceSubscriptionData.class).getHash(), data.getHash());
+    }
+
+    @Test
+    public void testPresenceSubscriptionWithoutPresenceHasNoPresence() {
+        assertNull(codec.decode("{\"other\":{}}", PresenceSubscriptionData.class).presence);
+        assertNull(gsonCodec.decode("{\"other\":{}}", PresenceSubscriptionData.class).presence);
+    }
+
+    @Test
+    public void testDecodesPresenceMember() {
+        final String json = "{\"user_id\":42,\"user_info\":{\"name\":\"Ada\"}}";
+
+        final PresenceMemberData member = codec.decode(json, PresenceMemberData.class);
+
+        assertEquals("42", member.getId());
+        assertEquals("{\"name\":\"Ada\"}", member.getInfo());
+        assertEquals(gsonCodec.decode(json, PresenceMemberData.class).getInfo(), member.getInfo());
+        assertNull(codec.decode("{\"user_id\":\"1\"}", PresenceMemberData.class).getInfo());
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void testTruncatedPresenceSubscriptionIsRejected() {
+        codec.decode("{\"presence\":{\"ids\":[\"1\"", PresenceSubscriptionData.class);
+    }
+}
@@ -0,0 +1,59 @@
+package com.pusher.client.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class SymbolTableTest {
+
+    @Test
+    public void testInternReturnsTheFirstInstanceOfAName() {
+        final SymbolTable symbols = new SymbolTable();
+        final String first = new String("my-channel");
+
+        assertSame(first, symbols.intern(first));
+        assertSame(first, symbols.intern(new String("my-channel")));
+    }
+
+    @Test
+    public void testInternOfNullIsNull() {
+        assertNull(new SymbolTable().intern(null));
+    }
+
+    @Test
+    public void testLookupResolvesARangeOfCharacters() {
+        final SymbolTable symbols = new SymbolTable("my-event");
+
+        final String frame = "{\"event\":\"my-event\"}";
+        final int start = frame.indexOf("my-event");
+
+        assertSame("my-event", symbols.lookup(frame, start, start + "my-event".length()));
+    }
+
+    @Test
+    public void testLookupOfAnUnknownNameIsNull() {
+        final SymbolTable symbols = new SymbolTable("my-event");
+
+        assertNull(symbols.lookup("my-even", 0, 7));
+        assertNull(symbols.lookup("my-events", 0, 9));
+        assertNull(symbols.lookup("", 0, 0));
+    }
+
+    @Test
+    public void testNamesSurviveTheTableGrowing() {
+        final SymbolTable symbols = new SymbolTable();
+        final String[] names = new String[1000];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = symbols.intern("channel-" + i);
+        }
+
+        for (int i = 0; i < names.length; i++) {
+            final String name = "channel-" + i;
+            assertSame(names[i], symbols.intern(name));
+            assertSame(names[i], symbols.lookup(name, 0, name.length()));
+        }
+        assertEquals("channel-999", names[999]);
+    }
+}
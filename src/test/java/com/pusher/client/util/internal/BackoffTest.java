@@ -0,0 +1,92 @@
+package com.pusher.client.util.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.pusher.client.ReconnectStrategy;
+import com.pusher.client.example.ReconnectSimulation;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class BackoffTest {
+
+    @Test
+    public void testQuadraticIsTheSquareOfTheAttemptInSeconds() {
+        final ReconnectStrategy strategy = Backoff.quadratic(30);
+
+        assertEquals(1000, strategy.getDelayMillis(1, 0));
+        assertEquals(4000, strategy.getDelayMillis(2, 1000));
+        assertEquals(25000, strategy.getDelayMillis(5, 16000));
+        assertEquals(30000, strategy.getDelayMillis(6, 25000));
+    }
+
+    @Test
+    public void testQuadraticWithNoGapReconnectsAtOnce() {
+        final ReconnectStrategy strategy = Backoff.quadratic(0);
+
+        assertEquals(0, strategy.getDelayMillis(1, 0));
+        assertEquals(0, strategy.getDelayMillis(5, 0));
+    }
+
+    @Test
+    public void testExponentialDoublesUpToTheCap() {
+        final ReconnectStrategy strategy = ReconnectStrategy.exponential(100, 1000);
+
+        assertEquals(100, strategy.getDelayMillis(1, 0));
+        assertEquals(200, strategy.getDelayMillis(2, 100));
+        assertEquals(800, strategy.getDelayMillis(4, 400));
+        assertEquals(1000, strategy.getDelayMillis(5, 800));
+        assertEquals(1000, strategy.getDelayMillis(Integer.MAX_VALUE, 1000));
+    }
+
+    @Test
+    public void testFullJitterStaysBetweenZeroAndTheExponentialDelay() {
+        final ReconnectStrategy strategy = ReconnectStrategy.fullJitter(100, 1000);
+
+        for (int attempt = 1; attempt < 100; attempt++) {
+            final long delay = strategy.getDelayMillis(attempt, 0);
+            assertTrue(delay >= 0);
+            assertTrue(delay <= Math.min(1000, 100L << Math.min(attempt - 1, 20)));
+        }
+    }
+
+    @Test
+    public void testDecorrelatedJitterStaysBetweenTheBaseAndThreeTimesThePreviousDelay() {
+        final ReconnectStrategy strategy = ReconnectStrategy.decorrelatedJitter(100, 10000);
+
+        long previous = 0;
+        for (int attempt = 1; attempt < 100; attempt++) {
+            final long delay = strategy.getDelayMillis(attempt, previous);
+            assertTrue(delay >= 100);
+            assertTrue(delay <= Math.min(10000, Math.max(100, previous) * 3));
+            previous = delay;
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapBelowTheBaseThrows() {
+        ReconnectStrategy.fullJitter(1000, 999);
+    }
+
+    @Test
+    public void testJitterSpreadsTheAttemptsOfAFleet() {
+        final ReconnectSimulation simulation = new ReconnectSimulation(2000, 5000, 200);
+        final Random random = new Random(1);
+
+        final ReconnectSimulation.Result lockstep = simulation.run(new Backoff(Backoff.Kind.EXPONENTIAL, 1000, 30000, random));
+        final ReconnectSimulation.Result full = simulation.run(new Backoff(Backoff.Kind.FULL_JITTER, 1000, 30000, random));
+        final ReconnectSimulation.Result decorrelated =
+                simulation.run(new Backoff(Backoff.Kind.DECORRELATED_JITTER, 1000, 30000, random));
+
+        // every client comes back in the same second, every time
+        assertEquals(2000, lockstep.peakAttemptsPerSecond());
+        assertTrue(full.getRejected() < lockstep.getRejected());
+        assertTrue(decorrelated.getRejected() < lockstep.getRejected());
+        assertTrue(full.getAllConnectedMillis() < lockstep.getAllConnectedMillis() / 2);
+        assertTrue(decorrelated.getAllConnectedMillis() < lockstep.getAllConnectedMillis() / 2);
+        assertEquals(0, full.getGaveUp());
+        assertEquals(0, decorrelated.getGaveUp());
+    }
+}
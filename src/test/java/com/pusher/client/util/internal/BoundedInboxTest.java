@@ -0,0 +1,176 @@
+package com.pusher.client.util.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.pusher.client.EventQueueListener;
+import com.pusher.client.EventQueueStats;
+import com.pusher.client.OverflowPolicy;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+public class BoundedInboxTest {
+
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private final Executor eventThread = scheduled::add;
+    private final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> marks = Collections.synchronizedList(new ArrayList<>());
+    private int overflowed;
+    private final EventLoop.FrameHandler handler = new EventLoop.FrameHandler() {
+        @Override
+        public void handleFrame(final String frame) {
+            handled.add(frame);
+        }
+
+        @Override
+        public void handleFrame(final ByteBuffer frame) {
+            handled.add(StandardCharsets.UTF_8.decode(frame).toString());
+        }
+
+        @Override
+        public void handleOverflow() {
+            overflowed++;
+        }
+    };
+    private final EventQueueListener listener = new EventQueueListener() {
+        @Override
+        public void onHighWaterMark(final EventQueueStats stats) {
+            marks.add("high " + stats.getQueued());
+        }
+
+        @Override
+        public void onLowWaterMark(final EventQueueStats stats) {
+            marks.add("low " + stats.getQueued());
+        }
+
+        @Override
+        public void onOverflow(final EventQueueStats stats) {
+            marks.add("overflow " + stats.getQueued());
+        }
+    };
+
+    @Test
+    public void testFramesAreHandledInOrderByOneDrainTask() {
+        final BoundedInbox inbox = new BoundedInbox(4, OverflowPolicy.DROP_NEWEST, null, eventThread);
+        inbox.offer(handler, "1");
+        inbox.offer(handler, ByteBuffer.wrap("2".getBytes(StandardCharsets.UTF_8)));
+        inbox.offer(handler, "3");
+
+        assertEquals(1, scheduled.size());
+        scheduled.remove(0).run();
+
+        assertEquals(Arrays.asList("1", "2", "3"), handled);
+        assertEquals(0, inbox.getQueued());
+        assertEquals(3, inbox.getHighestQueued());
+    }
+
+    @Test
+    public void testDropNewestDiscardsTheArrivingFrame() {
+        final BoundedInbox inbox = new BoundedInbox(2, OverflowPolicy.DROP_NEWEST, null, eventThread);
+        inbox.offer(handler, "1");
+        inbox.offer(handler, "2");
+        inbox.offer(handler, "3");
+        scheduled.remove(0).run();
+
+        assertEquals(Arrays.asList("1", "2"), handled);
+        assertEquals(1, inbox.getOverflows());
+        assertEquals(1, inbox.getDropped());
+    }
+
+    @Test
+    public void testDropOldestMakesRoomForTheArrivingFrame() {
+        final BoundedInbox inbox = new BoundedInbox(2, OverflowPolicy.DROP_OLDEST, null, eventThread);
+        inbox.offer(handler, "1");
+        inbox.offer(handler, "2");
+        inbox.offer(handler, "3");
+        scheduled.remove(0).run();
+
+        assertEquals(Arrays.asList("2", "3"), handled);
+        assertEquals(1, inbox.getOverflows());
+        assertEquals(1, inbox.getDropped());
+    }
+
+    @Test
+    public void testFailConnectionDiscardsTheQueueAndTellsTheHandler() {
+        final BoundedInbox inbox = new BoundedInbox(2, OverflowPolicy.FAIL_CONNECTION, null, eventThread);
+        inbox.offer(handler, "1");
+        inbox.offer(handler, "2");
+        inbox.offer(handler, "3");
+        scheduled.remove(0).run();
+
+        assertEquals(1, overflowed);
+        assertEquals(Collections.emptyList(), handled);
+        assertEquals(3, inbox.getDropped());
+    }
+
+    @Test
+    public void testBlockWaitsForTheEventThreadToMakeRoom() throws InterruptedException {
+        final BoundedInbox inbox = new BoundedInbox(1, OverflowPolicy.BLOCK, null, eventThread);
+        inbox.offer(handler, "1");
+        final Thread socket = new Thread(() -> inbox.offer(handler, "2"));
+        socket.start();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (inbox.getOverflows() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(socket.isAlive());
+
+        scheduled.remove(0).run();
+        socket.join(5000);
+        while (!scheduled.isEmpty()) {
+            scheduled.remove(0).run();
+        }
+
+        assertEquals(Arrays.asList("1", "2"), handled);
+        assertEquals(0, inbox.getDropped());
+    }
+
+    @Test
+    public void testListenerIsToldOfTheWaterMarksOnceEachAndOfOverflows() {
+        final BoundedInbox inbox = new BoundedInbox(4, OverflowPolicy.DROP_NEWEST, listener, eventThread);
+        for (int i = 0; i < 5; i++) {
+            inbox.offer(handler, Integer.toString(i));
+        }
+        scheduled.remove(0).run();
+
+        assertEquals(Arrays.asList("high 3", "overflow 4", "low 1"), marks);
+    }
+
+    @Test
+    public void testDrainRunsABatchAtATimeAndQueuesItselfForTheRest() {
+        final BoundedInbox inbox = new BoundedInbox(2, OverflowPolicy.BLOCK, null, eventThread);
+        // each frame handled brings another, as a fast socket would
+        final EventLoop.FrameHandler refilling = new EventLoop.FrameHandler() {
+            @Override
+            public void handleFrame(final String frame) {
+                handled.add(frame);
+                if (frame.length() == 1) {
+                    inbox.offer(this, frame + "'");
+                }
+            }
+
+            @Override
+            public void handleFrame(final ByteBuffer frame) {
+                handleFrame(StandardCharsets.UTF_8.decode(frame).toString());
+            }
+        };
+        inbox.offer(refilling, "1");
+        inbox.offer(refilling, "2");
+
+        scheduled.remove(0).run();
+        assertEquals(Arrays.asList("1", "2"), handled);
+        assertEquals(1, scheduled.size());
+
+        scheduled.remove(0).run();
+        assertEquals(Arrays.asList("1", "2", "1'", "2'"), handled);
+    }
+}
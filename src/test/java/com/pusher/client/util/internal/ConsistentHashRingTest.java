@@ -0,0 +1,86 @@
+package com.pusher.client.util.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ConsistentHashRingTest {
+
+    private static final int KEYS = 10000;
+
+    private final ConsistentHashRing<String> ring = new ConsistentHashRing<>(Arrays.asList("a", "b", "c", "d"));
+
+    @Test
+    public void spreadsKeysOverAllNodes() {
+        final Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.get("private-channel-" + i), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        for (final int count : counts.values()) {
+            // a fair share is 2500
+            assertTrue("count " + count, count > 1500 && count < 3500);
+        }
+    }
+
+    @Test
+    public void removingANodeOnlyMovesItsOwnKeys() {
+        final ConsistentHashRing<String> withoutB = ring.without(1);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            final String key = "channel-" + i;
+            final String before = ring.get(key);
+            final String after = withoutB.get(key);
+            assertNotEquals("b", after);
+            if (!before.equals("b")) {
+                assertSame(before, after);
+            } else {
+                moved++;
+            }
+        }
+        assertTrue(moved > 0);
+        assertEquals(3, withoutB.size());
+        assertFalse(withoutB.contains(1));
+    }
+
+    @Test
+    public void addingANodeBackMovesItsKeysHome() {
+        final ConsistentHashRing<String> restored = ring.without(2).with(2);
+
+        for (int i = 0; i < KEYS; i++) {
+            final String key = "channel-" + i;
+            assertSame(ring.get(key), restored.get(key));
+        }
+    }
+
+    @Test
+    public void unchangedRingIsReturnedAsIs() {
+        assertSame(ring, ring.with(0));
+        final ConsistentHashRing<String> withoutA = ring.without(0);
+        assertSame(withoutA, withoutA.without(0));
+    }
+
+    @Test
+    public void emptyRingMapsToNothing() {
+        final ConsistentHashRing<String> single = new ConsistentHashRing<>(Collections.singletonList("a"));
+
+        assertEquals("a", single.get("channel"));
+        assertEquals(null, single.without(0).get("channel"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ringNeedsANode() {
+        new ConsistentHashRing<>(Collections.<String>emptyList());
+    }
+}
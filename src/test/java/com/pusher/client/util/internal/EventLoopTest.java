@@ -0,0 +1,206 @@
+package com.pusher.client.util.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.pusher.client.WaitStrategy;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EventLoopTest {
+
+    private final Object lock = new Object();
+    private final List<Throwable> uncaught = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadFactory threads = r -> {
+        final Thread t = new Thread(r, "event-loop-test");
+        t.setDaemon(true);
+        t.setUncaughtExceptionHandler((thread, e) -> uncaught.add(e));
+        return t;
+    };
+    private EventLoop loop;
+
+    @After
+    public void tearDown() {
+        if (loop != null) {
+            loop.shutdown();
+        }
+    }
+
+    @Test
+    public void testFramesAndTasksRunInOrderAcrossWrapsOfTheRing() throws InterruptedException {
+        loop = new EventLoop(4, WaitStrategy.PARK, lock, threads);
+        final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        final RecordingHandler handler = new RecordingHandler(handled);
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final String item = Integer.toString(i);
+            expected.add(item);
+            switch (i % 3) {
+                case 0:
+                    assertTrue(loop.publish(handler, item));
+                    break;
+                case 1:
+                    assertTrue(loop.publish(handler, ByteBuffer.wrap(item.getBytes(StandardCharsets.UTF_8))));
+                    break;
+                default:
+                    assertTrue(loop.execute(() -> handled.add(item)));
+            }
+        }
+        awaitDrained();
+
+        assertEquals(expected, handled);
+    }
+
+    @Test
+    public void testItemsRunHoldingTheLock() throws InterruptedException {
+        loop = new EventLoop(8, WaitStrategy.YIELD, lock, threads);
+        final List<Boolean> held = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 10; i++) {
+            loop.execute(() -> held.add(Thread.holdsLock(lock)));
+        }
+        awaitDrained();
+
+        assertEquals(Collections.nCopies(10, true), held);
+    }
+
+    @Test
+    public void testLoopPublishingToAFullRingDoesNotWaitOnItself() throws InterruptedException {
+        loop = new EventLoop(2, WaitStrategy.PARK, lock, threads);
+        final List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch drained = new CountDownLatch(1);
+        loop.execute(() -> {
+            // more than the ring holds
+            for (int i = 1; i <= 5; i++) {
+                final int n = i;
+                loop.execute(() -> ran.add(n));
+            }
+            loop.execute(drained::countDown);
+            ran.add(0);
+        });
+
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), ran);
+    }
+
+    @Test
+    public void testLoopRunsItsOwnTasksWhileAPublisherKeepsTheRingFull() throws InterruptedException {
+        loop = new EventLoop(2, WaitStrategy.PARK, lock, threads);
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicInteger published = new AtomicInteger();
+        final Thread publisher = new Thread(() -> {
+            for (int i = 0; !stop.get(); i++) {
+                final int next = i + 1;
+                // each task holds on until the one after it is in the ring,
+                // so the loop never finds the ring empty
+                final boolean accepted = loop.execute(() -> awaitPublished(published, next, stop));
+                if (!accepted) {
+                    return;
+                }
+                published.incrementAndGet();
+            }
+        });
+        final CountDownLatch ranOwn = new CountDownLatch(5);
+        loop.execute(() -> {
+            awaitPublished(published, 0, stop);
+            // the ring is full, these go to the loop's own queue
+            for (int i = 0; i < 5; i++) {
+                loop.execute(ranOwn::countDown);
+            }
+        });
+        publisher.setDaemon(true);
+        publisher.start();
+        try {
+            assertTrue(ranOwn.await(5, TimeUnit.SECONDS));
+        } finally {
+            stop.set(true);
+            publisher.join(5000);
+        }
+    }
+
+    @Test
+    public void testLoopCarriesOnAfterAnItemThrows() throws InterruptedException {
+        loop = new EventLoop(4, WaitStrategy.PARK, lock, threads);
+        final IllegalStateException boom = new IllegalStateException("boom");
+        final List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+        loop.execute(() -> {
+            throw boom;
+        });
+        loop.execute(() -> ran.add(1));
+        awaitDrained();
+
+        assertEquals(Collections.singletonList(boom), uncaught);
+        assertEquals(Collections.singletonList(1), ran);
+    }
+
+    @Test
+    public void testShutdownRunsWhatWasPublishedAndThenTurnsItemsAway() throws InterruptedException {
+        loop = new EventLoop(4, WaitStrategy.PARK, lock, threads);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+        loop.execute(() -> {
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        loop.execute(() -> ran.add(1));
+        loop.shutdown();
+        release.countDown();
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        boolean accepted = true;
+        while (accepted && System.nanoTime() < deadline) {
+            accepted = loop.execute(() -> ran.add(2));
+            Thread.sleep(1);
+        }
+
+        assertFalse(accepted);
+        assertEquals(1, (int) ran.get(0));
+    }
+
+    private static void awaitPublished(final AtomicInteger published, final int task, final AtomicBoolean stop) {
+        while (published.get() <= task && !stop.get()) {
+            Thread.yield();
+        }
+    }
+
+    private void awaitDrained() throws InterruptedException {
+        final CountDownLatch drained = new CountDownLatch(1);
+        loop.execute(drained::countDown);
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+    }
+
+    private static final class RecordingHandler implements EventLoop.FrameHandler {
+
+        private final List<String> handled;
+
+        RecordingHandler(final List<String> handled) {
+            this.handled = handled;
+        }
+
+        @Override
+        public void handleFrame(final String frame) {
+            handled.add(frame);
+        }
+
+        @Override
+        public void handleFrame(final ByteBuffer frame) {
+            handled.add(StandardCharsets.UTF_8.decode(frame).toString());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.pusher.client.util.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.pusher.client.OutboundQueueListener;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class OutboundQueueTest {
+
+    private static final String PING = "{\"event\":\"pusher:ping\",\"data\":{}}";
+    private static final String SUBSCRIBE = "{\"event\":\"pusher:subscribe\",\"data\":{\"channel\":\"my-channel\"}}";
+    private static final String UNSUBSCRIBE = "{\"event\":\"pusher:unsubscribe\",\"data\":{\"channel\":\"my-channel\"}}";
+    private static final String CLIENT_EVENT = "{\"event\":\"client-typing\",\"channel\":\"private-room\",\"data\":{}}";
+
+    private final List<String> marks = new ArrayList<>();
+    private final OutboundQueueListener listener = new OutboundQueueListener() {
+        @Override
+        public void onBackpressure(final int queued) {
+            marks.add("backpressure " + queued);
+        }
+
+        @Override
+        public void onDrained(final int queued) {
+            marks.add("drained " + queued);
+        }
+    };
+
+    @Test
+    public void testOnlyTheFirstMessageSchedulesAFlush() {
+        final OutboundQueue queue = new OutboundQueue(null, 0);
+
+        assertTrue(queue.offer(CLIENT_EVENT));
+        assertFalse(queue.offer(CLIENT_EVENT));
+        queue.poll(OutboundQueue.MAX_BATCH_CHARS);
+        assertFalse(queue.flushed());
+
+        assertTrue(queue.offer(CLIENT_EVENT));
+    }
+
+    @Test
+    public void testFlushIsRescheduledWhileMessagesAreLeft() {
+        final OutboundQueue queue = new OutboundQueue(null, 0);
+        queue.offer(CLIENT_EVENT);
+        queue.offer(CLIENT_EVENT);
+
+        assertEquals(1, queue.poll(1).size());
+        assertTrue(queue.flushed());
+        assertFalse(queue.offer(CLIENT_EVENT));
+        assertEquals(2, queue.poll(OutboundQueue.MAX_BATCH_CHARS).size());
+        assertFalse(queue.flushed());
+    }
+
+    @Test
+    public void testPingsGoFirstThenSubscriptions() {
+        final OutboundQueue queue = new OutboundQueue(null, 0);
+        queue.offer(CLIENT_EVENT);
+        queue.offer(SUBSCRIBE);
+        queue.offer(PING);
+
+        assertEquals(Arrays.asList(PING, SUBSCRIBE, CLIENT_EVENT), queue.poll(OutboundQueue.MAX_BATCH_CHARS));
+    }
+
+    @Test
+    public void testUnsubscribeDoesNotOvertakeEarlierMessages() {
+        final OutboundQueue queue = new OutboundQueue(null, 0);
+        queue.offer(CLIENT_EVENT);
+        queue.offer(UNSUBSCRIBE);
+        queue.offer(SUBSCRIBE);
+
+        assertEquals(Arrays.asList(CLIENT_EVENT, UNSUBSCRIBE, SUBSCRIBE), queue.poll(OutboundQueue.MAX_BATCH_CHARS));
+    }
+
+    @Test
+    public void testBatchTakesAtLeastOneMessage() {
+        final OutboundQueue queue = new OutboundQueue(null, 0);
+        queue.offer(CLIENT_EVENT);
+        queue.offer(CLIENT_EVENT);
+
+        assertEquals(1, queue.poll(0).size());
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void testUnparseableMessagesAreSentInOrder() {
+        final OutboundQueue queue = new OutboundQueue(null, 0);
+        queue.offer("not json");
+        queue.offer(CLIENT_EVENT);
+
+        assertEquals(Arrays.asList("not json", CLIENT_EVENT), queue.poll(OutboundQueue.MAX_BATCH_CHARS));
+    }
+
+    @Test
+    public void testListenerIsToldOfBackpressureAndDraining() {
+        final OutboundQueue queue = new OutboundQueue(listener, 8);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(CLIENT_EVENT);
+        }
+        assertEquals(Arrays.asList("backpressure 8"), marks);
+
+        queue.poll(CLIENT_EVENT.length() * 7);
+        assertEquals(Arrays.asList("backpressure 8"), marks);
+        queue.poll(1);
+        assertEquals(Arrays.asList("backpressure 8", "drained 2"), marks);
+    }
+}
@@ -0,0 +1,116 @@
+package com.pusher.client.util.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+public class SerialExecutorTest {
+
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private final Executor pool = scheduled::add;
+    private final SerialExecutor executor = new SerialExecutor(pool);
+
+    @Test
+    public void testTasksRunInOrderOnOneThreadOfThePool() {
+        final List<Integer> ran = new ArrayList<>();
+        executor.execute(() -> ran.add(1));
+        executor.execute(() -> ran.add(2));
+        executor.execute(() -> ran.add(3));
+
+        assertEquals(1, scheduled.size());
+        scheduled.remove(0).run();
+
+        assertEquals(Arrays.asList(1, 2, 3), ran);
+        assertEquals(0, scheduled.size());
+    }
+
+    @Test
+    public void testTaskQueuedAfterDrainingSchedulesAgain() {
+        final List<Integer> ran = new ArrayList<>();
+        executor.execute(() -> ran.add(1));
+        scheduled.remove(0).run();
+        executor.execute(() -> ran.add(2));
+        scheduled.remove(0).run();
+
+        assertEquals(Arrays.asList(1, 2), ran);
+    }
+
+    @Test
+    public void testRemainingTasksRunAfterATaskThrows() {
+        final List<Integer> ran = new ArrayList<>();
+        executor.execute(() -> {
+            throw new IllegalStateException("boom");
+        });
+        executor.execute(() -> ran.add(2));
+
+        try {
+            scheduled.remove(0).run();
+        } catch (final IllegalStateException expected) {
+            // passed on to the thread, as a pool would
+        }
+        assertEquals(1, scheduled.size());
+        scheduled.remove(0).run();
+
+        assertEquals(Arrays.asList(2), ran);
+    }
+
+    @Test
+    public void testTasksRunAgainOnceTheExecutorStopsRejectingThem() {
+        final List<Integer> ran = new ArrayList<>();
+        final boolean[] rejecting = {true};
+        final SerialExecutor serial = new SerialExecutor(task -> {
+            if (rejecting[0]) {
+                throw new RejectedExecutionException();
+            }
+            scheduled.add(task);
+        });
+
+        try {
+            serial.execute(() -> ran.add(1));
+            fail();
+        } catch (final RejectedExecutionException expected) {
+            // the task is dropped, as the executor would have
+        }
+        rejecting[0] = false;
+        serial.execute(() -> ran.add(2));
+        scheduled.remove(0).run();
+
+        assertEquals(Arrays.asList(2), ran);
+    }
+
+    @Test
+    public void testRemainingTasksRunAfterTheExecutorRejectsTheirDrain() {
+        final List<Integer> ran = new ArrayList<>();
+        final boolean[] rejecting = {false};
+        final SerialExecutor serial = new SerialExecutor(task -> {
+            if (rejecting[0]) {
+                throw new RejectedExecutionException();
+            }
+            scheduled.add(task);
+        });
+        serial.execute(() -> {
+            throw new IllegalStateException("boom");
+        });
+        serial.execute(() -> ran.add(2));
+
+        rejecting[0] = true;
+        try {
+            scheduled.remove(0).run();
+            fail();
+        } catch (final IllegalStateException expected) {
+            assertEquals(1, expected.getSuppressed().length);
+        }
+        rejecting[0] = false;
+        serial.execute(() -> ran.add(3));
+        scheduled.remove(0).run();
+
+        assertEquals(Arrays.asList(2, 3), ran);
+    }
+}